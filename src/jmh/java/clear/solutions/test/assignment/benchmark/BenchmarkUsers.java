@@ -0,0 +1,48 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dao.OffHeapUserDao;
+import clear.solutions.test.assignment.dao.ShardedUserDao;
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+final class BenchmarkUsers {
+    static final LocalDate FIRST_BIRTH_DATE = LocalDate.of(1950, 1, 1);
+    static final int BIRTH_DATE_DAYS = 365 * 50;
+
+    private BenchmarkUsers() {
+    }
+
+    static UserDao createDao(String storage, int expectedSize) {
+        return switch (storage) {
+            case "heap" -> new UserDaoImpl();
+            case "off-heap" -> new OffHeapUserDao(expectedSize);
+            case "sharded" -> new ShardedUserDao(16);
+            default -> throw new IllegalArgumentException("Unknown storage " + storage);
+        };
+    }
+
+    /**
+     * Saves {@code count} users with birth dates spread uniformly over {@link #BIRTH_DATE_DAYS}.
+     */
+    static <T extends UserDao> T fill(T userDao, int count, long seed) {
+        final var random = new SplittableRandom(seed);
+        for (int i = 0; i < count; i++) {
+            userDao.save(user(i, FIRST_BIRTH_DATE.plusDays(random.nextInt(BIRTH_DATE_DAYS))));
+        }
+        return userDao;
+    }
+
+    static User user(int number, LocalDate birthDate) {
+        return new User(null,
+                "user%d@mail.com".formatted(number),
+                "John",
+                "Johnson",
+                birthDate,
+                "%d Main Street, New York, NY 10001, USA".formatted(number),
+                "(555) 555-%04d".formatted(number % 10_000));
+    }
+}
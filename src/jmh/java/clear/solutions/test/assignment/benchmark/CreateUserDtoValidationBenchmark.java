@@ -0,0 +1,111 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.constants.ApiConstants;
+import clear.solutions.test.assignment.dto.CreateUserDto;
+import clear.solutions.test.assignment.validation.EmailValidator;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Email;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Bean Validation of a registration request, and of its email with the single pass validator
+ * against the previous {@code @Email} constraint and regex. The adversarial emails fail only
+ * after the regex has backtracked through most of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CreateUserDtoValidationBenchmark {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(ApiConstants.EMAIL_REGEX);
+
+    private static final Map<String, String> EMAILS = Map.of(
+            "short", "username@domain.com",
+            "long", "first.middle.last_name-1@sub.example-domain.co.uk",
+            "invalid", "invalid@email",
+            "longLabels", "a".repeat(64) + "@" + ("b".repeat(62) + ".").repeat(3) + "b".repeat(60) + "-",
+            "digitLabels", "a@b" + ".a1".repeat(80) + ".c0",
+            "longLocalPart", "a".repeat(10_000) + "@domain.com");
+
+    @Param({"short", "long", "invalid", "longLabels", "digitLabels", "longLocalPart"})
+    public String input;
+
+    private String email;
+
+    private ValidatorFactory validatorFactory;
+    private Validator validator;
+    private CreateUserDto request;
+
+    @Setup
+    public void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+        email = EMAILS.get(input);
+        request = new CreateUserDto();
+        request.setEmail(email);
+        request.setFirstName("John");
+        request.setLastName("Smith");
+        request.setBirthDate(LocalDate.of(1990, 1, 29));
+    }
+
+    @TearDown
+    public void tearDown() {
+        validatorFactory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreateUserDto>> validate() {
+        return validator.validate(request);
+    }
+
+    @Benchmark
+    public boolean emailRegex() {
+        return EMAIL_PATTERN.matcher(email).matches();
+    }
+
+    @Benchmark
+    public boolean emailValidator() {
+        return EmailValidator.isValid(email);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<RegexEmail>> regexEmailConstraint() {
+        return validator.validateValue(RegexEmail.class, "email", email);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<CreateUserDto>> emailConstraint() {
+        return validator.validateValue(CreateUserDto.class, "email", email);
+    }
+
+    /**
+     * The email constraint {@link CreateUserDto} had before {@code @ValidEmail}.
+     */
+    public static class RegexEmail {
+        @Email(regexp = ApiConstants.EMAIL_REGEX)
+        private String email;
+    }
+}
@@ -0,0 +1,100 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.DaoMetrics;
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.config.MeterFilter;
+import io.micrometer.core.instrument.distribution.DistributionStatisticConfig;
+import io.micrometer.prometheus.PrometheusConfig;
+import io.micrometer.prometheus.PrometheusMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overhead of the dao metrics on its cheapest operations, without metrics and with a Prometheus
+ * registry publishing histograms as {@code application.yml} configures it, timing the lookups
+ * sampled by default or all of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DaoMetricsBenchmark {
+
+    @Param({"disabled", "prometheus", "prometheusUnsampled"})
+    public String metrics;
+
+    @Param({"100000"})
+    public int users;
+
+    private UserDaoImpl userDao;
+    private User[] stored;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userDao = BenchmarkUsers.fill(new UserDaoImpl(new UserConfigurationProperties(), createMetrics(metrics)), users, 42L);
+        stored = userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX).toArray(User[]::new);
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return userDao.findById(randomUser().getId());
+    }
+
+    @Benchmark
+    public User save() {
+        return userDao.save(randomUser().withLastName("Smith"));
+    }
+
+    @Benchmark
+    public List<User> findFirstPage() {
+        final var from = randomUser().getBirthDate();
+        return userDao.findByBirthDateRange(from, from.plusDays(30), null, 100);
+    }
+
+    private User randomUser() {
+        return stored[ThreadLocalRandom.current().nextInt(stored.length)];
+    }
+
+    private static DaoMetrics createMetrics(String metrics) {
+        return switch (metrics) {
+            case "disabled" -> DaoMetrics.DISABLED;
+            case "prometheus", "prometheusUnsampled" -> {
+                final var registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+                registry.config().meterFilter(new MeterFilter() {
+                    @Override
+                    public DistributionStatisticConfig configure(Meter.Id id, DistributionStatisticConfig config) {
+                        return DistributionStatisticConfig.builder()
+                                .percentilesHistogram(true)
+                                .build()
+                                .merge(config);
+                    }
+                });
+                yield new DaoMetrics(registry, metrics.equals("prometheus")
+                        ? new UserConfigurationProperties().getMetrics().getLookupSampling()
+                        : 1);
+            }
+            default -> throw new IllegalArgumentException("Unknown metrics " + metrics);
+        };
+    }
+}
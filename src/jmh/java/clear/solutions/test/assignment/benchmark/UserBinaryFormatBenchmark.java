@@ -0,0 +1,87 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.dto.DataDto;
+import clear.solutions.test.assignment.dto.UserDto;
+import clear.solutions.test.assignment.json.DataDtoJsonComponent;
+import clear.solutions.test.assignment.json.UserJsonComponent;
+import clear.solutions.test.assignment.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding of a birth date range response of 100K users on the server and its decoding into
+ * {@link UserDto} on a client, per body format. The payload size of each format is printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserBinaryFormatBenchmark {
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private DataDto<List<User>> response;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        final var builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .serializers(new UserJsonComponent.Serializer(), new DataDtoJsonComponent.Serializer())
+                .deserializers(new DataDtoJsonComponent.Deserializer());
+        switch (format) {
+            case "json" -> {
+            }
+            case "cbor" -> builder.factory(new CBORFactory());
+            case "smile" -> builder.factory(new SmileFactory());
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        }
+        final var objectMapper = builder.build();
+        writer = objectMapper.writerFor(new TypeReference<DataDto<List<User>>>() {
+        });
+        reader = objectMapper.readerFor(new TypeReference<DataDto<List<UserDto>>>() {
+        });
+        final var users = BenchmarkUsers.fill(new UserDaoImpl(), 100_000, 42)
+                .findByBirthDateRange(LocalDate.MIN, LocalDate.MAX);
+        response = DataDto.of(users);
+        payload = writer.writeValueAsBytes(response);
+        System.out.printf("%n%s payload: %d bytes%n", format, payload.length);
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        return writer.writeValueAsBytes(response);
+    }
+
+    @Benchmark
+    public DataDto<List<UserDto>> decode() throws IOException {
+        return reader.readValue(payload);
+    }
+}
@@ -0,0 +1,123 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.controller.UserController;
+import clear.solutions.test.assignment.controller.UserEntityTagAdvice;
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.exception.ErrorMetrics;
+import clear.solutions.test.assignment.exception.GlobalExceptionHandler;
+import clear.solutions.test.assignment.mapper.UserMapperImpl;
+import clear.solutions.test.assignment.service.BirthDateRangeCache;
+import clear.solutions.test.assignment.service.UserNameIndex;
+import clear.solutions.test.assignment.service.UserServiceImpl;
+import clear.solutions.test.assignment.service.UserStatistics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+import org.springframework.validation.beanvalidation.LocalValidatorFactoryBean;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+/**
+ * Full request handling through {@link UserController} with MockMvc: argument binding, Bean
+ * Validation, the service, the dao and JSON writing, without the network and the servlet
+ * container.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserControllerBenchmark {
+    private static final String REGISTER_REQUEST = """
+            {"data":{"email":"username@domain.com","firstName":"John","lastName":"Smith","birthDate":"1990-01-29","address":"123 Main Street","phone":"(555) 555-5555"}}""";
+
+    @Param({"100000"})
+    public int users;
+
+    @Param({"0", "64"})
+    public int rangeCacheMegabytes;
+
+    private MockMvc mockMvc;
+    private long userId;
+    private String entityTag;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final var properties = new UserConfigurationProperties();
+        properties.setMinAge(18);
+        properties.getRangeCache().setMaxWeight(DataSize.ofMegabytes(rangeCacheMegabytes));
+        final var userDao = new UserDaoImpl();
+        final var errorMetrics = new ErrorMetrics(new SimpleMeterRegistry());
+        // the service registers the listeners, so it is created before the users are saved
+        final var userService = new UserServiceImpl(properties, userDao, new BirthDateRangeCache(properties),
+                new UserStatistics(properties), new UserNameIndex(userDao), errorMetrics);
+        BenchmarkUsers.fill(userDao, users, 42L);
+        final var objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        final var validator = new LocalValidatorFactoryBean();
+        validator.afterPropertiesSet();
+        mockMvc = MockMvcBuilders
+                .standaloneSetup(new UserController(userService, new UserMapperImpl(), objectMapper))
+                .setControllerAdvice(new GlobalExceptionHandler(errorMetrics), new UserEntityTagAdvice())
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .setValidator(validator)
+                .build();
+        userId = users / 2;
+        entityTag = "\"" + userDao.findById(userId).orElseThrow().getVersion() + '"';
+    }
+
+    @Benchmark
+    public MockHttpServletResponse register() throws Exception {
+        return mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(REGISTER_REQUEST))
+                .andReturn()
+                .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse findUser() throws Exception {
+        return mockMvc.perform(get("/users/{userId}", userId))
+                .andReturn()
+                .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse findUserNotModified() throws Exception {
+        return mockMvc.perform(get("/users/{userId}", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+                .andReturn()
+                .getResponse();
+    }
+
+    @Benchmark
+    public MockHttpServletResponse findFirstPage() throws Exception {
+        return mockMvc.perform(get("/users")
+                        .param("from", "1990-01-01")
+                        .param("to", "1990-12-31"))
+                .andReturn()
+                .getResponse();
+    }
+}
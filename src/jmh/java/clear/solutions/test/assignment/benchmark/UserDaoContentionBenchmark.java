@@ -0,0 +1,91 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code save} and {@code findById} of existing users from several threads at once, alone and
+ * mixed in one group, and registrations of new users taking ids from the sequence.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserDaoContentionBenchmark {
+
+    @Param({"heap", "off-heap", "sharded"})
+    public String storage;
+
+    @Param({"100000"})
+    public int users;
+
+    private UserDao userDao;
+    private User[] stored;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userDao = BenchmarkUsers.fill(BenchmarkUsers.createDao(storage, users), users, 42L);
+        // sharded ids are not consecutive
+        stored = userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX).toArray(User[]::new);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public User save() {
+        return userDao.save(randomUser().withLastName("Smith"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<User> register() {
+        // removed again to keep the size of the dao
+        final var user = BenchmarkUsers.user(ThreadLocalRandom.current().nextInt(users), randomUser().getBirthDate());
+        return userDao.removeIfPresent(userDao.save(user).getId());
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Optional<User> findById() {
+        return userDao.findById(randomUser().getId());
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public User mixedSave() {
+        return save();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(3)
+    public Optional<User> mixedFindById() {
+        return findById();
+    }
+
+    private User randomUser() {
+        return stored[ThreadLocalRandom.current().nextInt(stored.length)];
+    }
+}
@@ -0,0 +1,97 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.service.UserNameIndex;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fills a dao, with the name index listening to it, and reports the heap left used by it after a
+ * full collection, the direct buffers it allocated and the time the collector took while filling it;
+ * the counters add up over iterations, so one is measured.
+ * 10M heap users need about 9 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xms12g", "-Xmx12g", "-XX:MaxDirectMemorySize=8g"})
+public class UserDaoFootprintBenchmark {
+
+    @Param({"heap", "off-heap"})
+    public String storage;
+
+    @Param({"1000000", "10000000"})
+    public int users;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Footprint {
+        public long heapMegabytes;
+        public long directMegabytes;
+        public long gcMillis;
+        public long gcCount;
+    }
+
+    /**
+     * Frees the dao of the previous iteration, the cleaners of its direct buffers run after it is
+     * collected.
+     */
+    @Setup(Level.Iteration)
+    public void collect() throws InterruptedException {
+        System.gc();
+        Thread.sleep(1_000);
+    }
+
+    @Benchmark
+    public UserDao fill(Footprint footprint) {
+        final var gcMillis = gcMillis();
+        final var gcCount = gcCount();
+        final var directBytes = directBytes();
+        final var userDao = BenchmarkUsers.createDao(storage, users);
+        userDao.addListener(new UserNameIndex(userDao, storage.equals("off-heap")));
+        BenchmarkUsers.fill(userDao, users, 42L);
+        footprint.gcMillis = gcMillis() - gcMillis;
+        footprint.gcCount = gcCount() - gcCount;
+        System.gc();
+        footprint.heapMegabytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() >> 20;
+        footprint.directMegabytes = (directBytes() - directBytes) >> 20;
+        return userDao;
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+                .sum();
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .sum();
+    }
+
+    private static long directBytes() {
+        return ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class).stream()
+                .filter(pool -> pool.getName().equals("direct"))
+                .mapToLong(BufferPoolMXBean::getMemoryUsed)
+                .sum();
+    }
+}
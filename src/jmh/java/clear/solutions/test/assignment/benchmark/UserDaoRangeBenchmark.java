@@ -0,0 +1,69 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Birth date range queries over a random range covering {@code selectivity} of all users.
+ * 10M heap users need about 6 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class UserDaoRangeBenchmark {
+
+    @Param({"heap", "off-heap", "sharded"})
+    public String storage;
+
+    @Param({"10000", "1000000", "10000000"})
+    public int users;
+
+    @Param({"0.0001", "0.01", "0.1"})
+    public double selectivity;
+
+    private UserDao userDao;
+    private int rangeDays;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        userDao = BenchmarkUsers.fill(BenchmarkUsers.createDao(storage, users), users, 42L);
+        rangeDays = Math.max(1, (int) (BenchmarkUsers.BIRTH_DATE_DAYS * selectivity));
+    }
+
+    @Benchmark
+    public List<User> findByBirthDateRange() {
+        final var from = randomFrom();
+        return userDao.findByBirthDateRange(from, from.plusDays(rangeDays - 1));
+    }
+
+    @Benchmark
+    public List<User> findFirstPage() {
+        final var from = randomFrom();
+        return userDao.findByBirthDateRange(from, from.plusDays(rangeDays - 1), null, 100);
+    }
+
+    private LocalDate randomFrom() {
+        return BenchmarkUsers.FIRST_BIRTH_DATE.plusDays(
+                ThreadLocalRandom.current().nextInt(BenchmarkUsers.BIRTH_DATE_DAYS - rangeDays + 1));
+    }
+}
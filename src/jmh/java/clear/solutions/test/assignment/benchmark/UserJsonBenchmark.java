@@ -0,0 +1,128 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dto.CreateUserDto;
+import clear.solutions.test.assignment.dto.DataDto;
+import clear.solutions.test.assignment.dto.UserDto;
+import clear.solutions.test.assignment.json.DataDtoJsonComponent;
+import clear.solutions.test.assignment.json.UserJsonComponent;
+import clear.solutions.test.assignment.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson (de)serialization of the user payloads with an object mapper configured the way Spring
+ * Boot configures the one of the application. {@code reflective} copies users to {@link UserDto}
+ * and binds all payloads by reflection, as the application did before its codecs;
+ * {@code streaming} registers {@link UserJsonComponent} and {@link DataDtoJsonComponent}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    @Param({"reflective", "streaming"})
+    private String codec;
+
+    private boolean streaming;
+    private ObjectWriter userWriter;
+    private ObjectWriter pageWriter;
+    private ObjectReader requestReader;
+    private User user;
+    private List<User> page;
+    private byte[] request;
+
+    @Setup
+    public void setUp() throws IOException {
+        streaming = codec.equals("streaming");
+        final var builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        if (streaming) {
+            builder.serializers(new UserJsonComponent.Serializer(), new DataDtoJsonComponent.Serializer())
+                    .deserializers(new DataDtoJsonComponent.Deserializer(), new UserJsonComponent.CreateUserDtoDeserializer(),
+                            new UserJsonComponent.UserContactsDtoDeserializer());
+        }
+        final ObjectMapper objectMapper = builder.build();
+        userWriter = streaming
+                ? objectMapper.writerFor(new TypeReference<DataDto<User>>() {
+        })
+                : objectMapper.writerFor(new TypeReference<DataDto<UserDto>>() {
+        });
+        pageWriter = streaming
+                ? objectMapper.writerFor(new TypeReference<DataDto<List<User>>>() {
+        })
+                : objectMapper.writerFor(new TypeReference<DataDto<List<UserDto>>>() {
+        });
+        requestReader = objectMapper.readerFor(new TypeReference<DataDto<CreateUserDto>>() {
+        });
+        user = new User(100L, "username@domain.com", "John", "Smith", LocalDate.of(1990, 1, 29),
+                "123 Main Street, New York, NY 10001, USA", "(555) 555-5555");
+        page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(user.withId(100L + i).withEmail("username%d@domain.com".formatted(i)));
+        }
+        final var createUserDto = new CreateUserDto();
+        createUserDto.setEmail(user.getEmail());
+        createUserDto.setFirstName(user.getFirstName());
+        createUserDto.setLastName(user.getLastName());
+        createUserDto.setBirthDate(user.getBirthDate());
+        createUserDto.setAddress(user.getAddress());
+        createUserDto.setPhone(user.getPhone());
+        request = objectMapper.writeValueAsBytes(DataDto.of(createUserDto));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return userWriter.writeValueAsBytes(DataDto.of(streaming ? user : toUserDto(user)));
+    }
+
+    @Benchmark
+    public byte[] serializePage() throws IOException {
+        return pageWriter.writeValueAsBytes(DataDto.of(streaming
+                ? page
+                : page.stream().map(UserJsonBenchmark::toUserDto).toList(), "cursor"));
+    }
+
+    @Benchmark
+    public DataDto<CreateUserDto> deserialize() throws IOException {
+        return requestReader.readValue(request);
+    }
+
+    /**
+     * The copy the user mapper made for every response.
+     */
+    private static UserDto toUserDto(User user) {
+        final var response = new UserDto();
+        response.setId(user.getId());
+        response.setEmail(user.getEmail());
+        response.setFirstName(user.getFirstName());
+        response.setLastName(user.getLastName());
+        response.setBirthDate(user.getBirthDate());
+        response.setAddress(user.getAddress());
+        response.setPhone(user.getPhone());
+        return response;
+    }
+}
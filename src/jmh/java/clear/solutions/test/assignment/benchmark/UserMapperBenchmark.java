@@ -0,0 +1,63 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dto.CreateUserDto;
+import clear.solutions.test.assignment.dto.UserContactsDto;
+import clear.solutions.test.assignment.mapper.UserMapperImpl;
+import clear.solutions.test.assignment.model.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserMapperBenchmark {
+
+    private final UserMapperImpl userMapper = new UserMapperImpl();
+    private CreateUserDto createUserDto;
+    private UserContactsDto contactsDto;
+    private User stored;
+
+    @Setup
+    public void setUp() {
+        createUserDto = new CreateUserDto();
+        createUserDto.setEmail("username@domain.com");
+        createUserDto.setFirstName("John");
+        createUserDto.setLastName("Smith");
+        createUserDto.setBirthDate(LocalDate.of(1990, 1, 29));
+        createUserDto.setAddress("123 Main Street, New York, NY 10001, USA");
+        createUserDto.setPhone("(555) 555-5555");
+        contactsDto = new UserContactsDto();
+        contactsDto.setEmail("username100@domain.com");
+        contactsDto.setPhone("(555) 555-0000");
+        stored = userMapper.toUser(createUserDto).withId(1L);
+    }
+
+    @Benchmark
+    public User registerRoundTrip() {
+        return userMapper.toUser(createUserDto).withId(1L);
+    }
+
+    @Benchmark
+    public User updateRoundTrip() {
+        return userMapper.updateUser(stored, createUserDto);
+    }
+
+    @Benchmark
+    public User patchRoundTrip() {
+        return userMapper.patchUser(stored, contactsDto);
+    }
+}
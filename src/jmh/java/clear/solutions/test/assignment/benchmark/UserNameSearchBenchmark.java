@@ -0,0 +1,86 @@
+package clear.solutions.test.assignment.benchmark;
+
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+import clear.solutions.test.assignment.service.UserNameIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Name searches over users named by random syllables, about 700 distinct first names and 20K
+ * distinct last names. {@code fullName} matches a few users, {@code lastNamePart} a few hundred
+ * per million and {@code prefix} a few percent of all users. The heap size of the index per user
+ * is printed on setup. 10M heap users need about 8 GB of heap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms10g", "-Xmx10g"})
+public class UserNameSearchBenchmark {
+    private static final List<String> SYLLABLES = List.of("an", "bel", "cor", "da", "el", "fin", "gar", "ha", "is",
+            "jo", "ka", "lin", "mar", "na", "ol", "pe", "quin", "ro", "sa", "tam", "ul", "vi", "wes", "ya", "zo",
+            "ber", "chen", "dor");
+
+    @Param({"100000", "1000000", "10000000"})
+    public int users;
+
+    private UserNameIndex nameIndex;
+    private String fullName;
+    private String lastNamePart;
+
+    @Setup
+    public void setUp() {
+        final var userDao = new UserDaoImpl();
+        nameIndex = new UserNameIndex(userDao);
+        userDao.addListener(nameIndex);
+        final var random = new SplittableRandom(42);
+        User user = null;
+        for (int i = 0; i < users; i++) {
+            user = userDao.save(BenchmarkUsers.user(i, BenchmarkUsers.FIRST_BIRTH_DATE)
+                    .withFirstName(name(random, 2))
+                    .withLastName(name(random, 3)));
+        }
+        fullName = user.getFirstName() + " " + user.getLastName();
+        lastNamePart = user.getLastName().substring(1);
+        System.out.printf("%nindex: %s%n", nameIndex.getStats());
+    }
+
+    @Benchmark
+    public List<User> fullName() {
+        return nameIndex.search(fullName, 100);
+    }
+
+    @Benchmark
+    public List<User> lastNamePart() {
+        return nameIndex.search(lastNamePart, 100);
+    }
+
+    @Benchmark
+    public List<User> prefix() {
+        return nameIndex.search("jo", 100);
+    }
+
+    private static String name(SplittableRandom random, int syllables) {
+        final var name = new StringBuilder();
+        for (int i = 0; i < syllables; i++) {
+            name.append(SYLLABLES.get(random.nextInt(SYLLABLES.size())));
+        }
+        name.setCharAt(0, Character.toUpperCase(name.charAt(0)));
+        return name.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package clear.solutions.test.assignment.configuration;
+
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.service.BirthDateRangeCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Gauges of the stored users and of the birth date range cache, read only when the metrics are
+ * scraped. Latency of the endpoints is recorded by Spring as {@code http.server.requests}.
+ */
+@Configuration
+public class MetricsConfiguration {
+
+    @Bean
+    public MeterBinder userCountMetrics(UserDao userDao) {
+        return registry -> Gauge.builder("user.count", userDao, UserDao::countAll)
+                .description("Stored users")
+                .baseUnit("users")
+                .register(registry);
+    }
+
+    @Bean
+    public MeterBinder rangeCacheMetrics(BirthDateRangeCache rangeCache) {
+        return registry -> {
+            counter("user.range.cache.requests", rangeCache, stats -> stats.hitCount())
+                    .tag("result", "hit")
+                    .register(registry);
+            counter("user.range.cache.requests", rangeCache, stats -> stats.missCount())
+                    .tag("result", "miss")
+                    .register(registry);
+            counter("user.range.cache.evictions", rangeCache, stats -> stats.evictionCount())
+                    .tag("cause", "size")
+                    .register(registry);
+            counter("user.range.cache.evictions", rangeCache, stats -> stats.invalidationCount())
+                    .tag("cause", "write")
+                    .register(registry);
+            Gauge.builder("user.range.cache.size", rangeCache, cache -> cache.getStats().size())
+                    .description("Cached range pages")
+                    .register(registry);
+            Gauge.builder("user.range.cache.weight", rangeCache, cache -> cache.getStats().weight())
+                    .description("Estimated heap size of the cached range pages")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    private static FunctionCounter.Builder<BirthDateRangeCache> counter(String name, BirthDateRangeCache rangeCache,
+                                                                        ToDoubleFunction<BirthDateRangeCache.Stats> count) {
+        return FunctionCounter.builder(name, rangeCache, cache -> count.applyAsDouble(cache.getStats()));
+    }
+}
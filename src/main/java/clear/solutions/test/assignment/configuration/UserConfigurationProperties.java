@@ -1,14 +1,45 @@
 package clear.solutions.test.assignment.configuration;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
 import org.springframework.validation.annotation.Validated;
 
+import java.nio.file.Path;
+import java.time.Duration;
+
 @Validated
 @ConfigurationProperties(prefix = "user")
 public class UserConfigurationProperties {
     @NotNull
     private Integer minAge;
+    @NotNull
+    @Positive
+    private Integer pageSize = 100;
+    @NotNull
+    @Positive
+    private Integer maxPageSize = 1000;
+    @NotNull
+    @Positive
+    private Integer maxBatchSize = 1000;
+    @NotNull
+    private Storage storage = Storage.HEAP;
+    @NotNull
+    private Boolean uniqueEmail = false;
+    @NotNull
+    @Positive
+    private Integer offHeapExpectedSize = 1 << 16;
+    @NotNull
+    @Positive
+    private Integer shards = 16;
+    @Valid
+    private final Wal wal = new Wal();
+    @Valid
+    private final RangeCache rangeCache = new RangeCache();
+    @Valid
+    private final Metrics metrics = new Metrics();
 
     public Integer getMinAge() {
         return minAge;
@@ -17,4 +48,158 @@ public class UserConfigurationProperties {
     public void setMinAge(Integer minAge) {
         this.minAge = minAge;
     }
+
+    public Integer getPageSize() {
+        return pageSize;
+    }
+
+    public void setPageSize(Integer pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    public Integer getMaxPageSize() {
+        return maxPageSize;
+    }
+
+    public void setMaxPageSize(Integer maxPageSize) {
+        this.maxPageSize = maxPageSize;
+    }
+
+    public Integer getMaxBatchSize() {
+        return maxBatchSize;
+    }
+
+    public void setMaxBatchSize(Integer maxBatchSize) {
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Storage getStorage() {
+        return storage;
+    }
+
+    public void setStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    public Boolean getUniqueEmail() {
+        return uniqueEmail;
+    }
+
+    public void setUniqueEmail(Boolean uniqueEmail) {
+        this.uniqueEmail = uniqueEmail;
+    }
+
+    public Integer getOffHeapExpectedSize() {
+        return offHeapExpectedSize;
+    }
+
+    public void setOffHeapExpectedSize(Integer offHeapExpectedSize) {
+        this.offHeapExpectedSize = offHeapExpectedSize;
+    }
+
+    public Integer getShards() {
+        return shards;
+    }
+
+    public void setShards(Integer shards) {
+        this.shards = shards;
+    }
+
+    public Wal getWal() {
+        return wal;
+    }
+
+    public RangeCache getRangeCache() {
+        return rangeCache;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public enum Storage {
+        HEAP,
+        OFF_HEAP,
+        SHARDED
+    }
+
+    public static class Wal {
+        private boolean enabled;
+        @NotNull
+        private Path directory = Path.of("data", "wal");
+        @NotNull
+        @Positive
+        private Integer batchSize = 256;
+        @NotNull
+        private Duration batchWindow = Duration.ZERO;
+        @NotNull
+        private Duration snapshotInterval = Duration.ofMinutes(10);
+
+        public boolean isEnabled() {
+            return enabled;
+        }
+
+        public void setEnabled(boolean enabled) {
+            this.enabled = enabled;
+        }
+
+        public Path getDirectory() {
+            return directory;
+        }
+
+        public void setDirectory(Path directory) {
+            this.directory = directory;
+        }
+
+        public Integer getBatchSize() {
+            return batchSize;
+        }
+
+        public void setBatchSize(Integer batchSize) {
+            this.batchSize = batchSize;
+        }
+
+        public Duration getBatchWindow() {
+            return batchWindow;
+        }
+
+        public void setBatchWindow(Duration batchWindow) {
+            this.batchWindow = batchWindow;
+        }
+
+        public Duration getSnapshotInterval() {
+            return snapshotInterval;
+        }
+
+        public void setSnapshotInterval(Duration snapshotInterval) {
+            this.snapshotInterval = snapshotInterval;
+        }
+    }
+
+    public static class RangeCache {
+        @NotNull
+        private DataSize maxWeight = DataSize.ofMegabytes(64);
+
+        public DataSize getMaxWeight() {
+            return maxWeight;
+        }
+
+        public void setMaxWeight(DataSize maxWeight) {
+            this.maxWeight = maxWeight;
+        }
+    }
+
+    public static class Metrics {
+        @NotNull
+        @Positive
+        private Integer lookupSampling = 16;
+
+        public Integer getLookupSampling() {
+            return lookupSampling;
+        }
+
+        public void setLookupSampling(Integer lookupSampling) {
+            this.lookupSampling = lookupSampling;
+        }
+    }
 }
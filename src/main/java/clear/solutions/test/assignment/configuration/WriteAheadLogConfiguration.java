@@ -0,0 +1,67 @@
+package clear.solutions.test.assignment.configuration;
+
+import clear.solutions.test.assignment.model.User;
+import clear.solutions.test.assignment.persistence.Checkpointer;
+import clear.solutions.test.assignment.persistence.Recoverable;
+import clear.solutions.test.assignment.persistence.SnapshotStore;
+import clear.solutions.test.assignment.persistence.UserCodec;
+import clear.solutions.test.assignment.persistence.WriteAheadLog;
+import clear.solutions.test.assignment.service.UserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.util.concurrent.ThreadFactory;
+
+@Configuration
+@ConditionalOnProperty(prefix = "user.wal", name = "enabled", havingValue = "true")
+public class WriteAheadLogConfiguration {
+    private static final int SNAPSHOT_BLOCK_SIZE = 1 << 20;
+
+    private final Environment environment;
+
+    public WriteAheadLogConfiguration(Environment environment) {
+        this.environment = environment;
+    }
+
+    @Bean(destroyMethod = "close")
+    public WriteAheadLog<User> userWriteAheadLog(UserConfigurationProperties properties) {
+        final var wal = properties.getWal();
+        return new WriteAheadLog<>(wal.getDirectory(), new UserCodec(),
+                wal.getBatchSize(), wal.getBatchWindow(), background("user-wal-flusher"));
+    }
+
+    /**
+     * Recovers the user storage before anything can read from it. Closed before the log, taking
+     * a final snapshot once the web server has stopped. Created after the user service, which
+     * registers the listeners with the storage, so they see the recovered users.
+     */
+    @Bean(destroyMethod = "close")
+    public Checkpointer<User> userCheckpointer(UserConfigurationProperties properties,
+                                               Recoverable<User> userStorage,
+                                               WriteAheadLog<User> userWriteAheadLog,
+                                               UserService userService) {
+        final var wal = properties.getWal();
+        final var checkpointer = new Checkpointer<>(userStorage, userWriteAheadLog,
+                new SnapshotStore<>(wal.getDirectory(), new UserCodec(), SNAPSHOT_BLOCK_SIZE),
+                wal.getSnapshotInterval(), background("user-snapshot"));
+        checkpointer.recover();
+        return checkpointer;
+    }
+
+    /**
+     * Virtual threads when {@code spring.threads.virtual.enabled} is set, which are always daemon.
+     */
+    private ThreadFactory background(String name) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return Thread.ofVirtual().name(name).factory();
+        }
+        return runnable -> {
+            final var thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,25 @@
+package clear.solutions.test.assignment.controller;
+
+import clear.solutions.test.assignment.service.UserNameIndex;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Size and estimated heap size per user of the name search index at {@code /actuator/nameindex}.
+ */
+@Component
+@Endpoint(id = "nameindex")
+public class NameIndexEndpoint {
+
+    private final UserNameIndex nameIndex;
+
+    public NameIndexEndpoint(UserNameIndex nameIndex) {
+        this.nameIndex = nameIndex;
+    }
+
+    @ReadOperation
+    public UserNameIndex.Stats stats() {
+        return nameIndex.getStats();
+    }
+}
@@ -0,0 +1,25 @@
+package clear.solutions.test.assignment.controller;
+
+import clear.solutions.test.assignment.service.BirthDateRangeCache;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hit ratio, evictions and size of the birth date range cache at {@code /actuator/rangecache}.
+ */
+@Component
+@Endpoint(id = "rangecache")
+public class RangeCacheEndpoint {
+
+    private final BirthDateRangeCache rangeCache;
+
+    public RangeCacheEndpoint(BirthDateRangeCache rangeCache) {
+        this.rangeCache = rangeCache;
+    }
+
+    @ReadOperation
+    public BirthDateRangeCache.Stats stats() {
+        return rangeCache.getStats();
+    }
+}
@@ -1,16 +1,26 @@
 package clear.solutions.test.assignment.controller;
 
+import clear.solutions.test.assignment.dto.BatchOperationDto;
+import clear.solutions.test.assignment.dto.BatchResultDto;
 import clear.solutions.test.assignment.dto.CreateUserDto;
 import clear.solutions.test.assignment.dto.DataDto;
 import clear.solutions.test.assignment.dto.UserContactsDto;
-import clear.solutions.test.assignment.dto.UserDto;
+import clear.solutions.test.assignment.exception.ApiException;
+import clear.solutions.test.assignment.exception.Error;
 import clear.solutions.test.assignment.mapper.UserMapper;
+import clear.solutions.test.assignment.model.User;
 import clear.solutions.test.assignment.service.UserService;
+import clear.solutions.test.assignment.service.UserStatistics;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PatchMapping;
@@ -18,14 +28,22 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/users")
@@ -33,49 +51,161 @@ public class UserController {
 
     private final UserService userService;
     private final UserMapper userMapper;
+    private final ObjectWriter userWriter;
 
-    public UserController(UserService userService, UserMapper userMapper) {
+    public UserController(UserService userService, UserMapper userMapper, ObjectMapper objectMapper) {
         this.userService = userService;
         this.userMapper = userMapper;
+        this.userWriter = objectMapper.writerFor(User.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+                .withRootValueSeparator("");
     }
 
     @GetMapping
-    public DataDto<List<UserDto>> findUsersByBirthDateRange(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
-                                                            @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
-        return DataDto.of(userService.findByBirthDateRange(from, to).stream()
-                .map(userMapper::toUserDto)
-                .collect(Collectors.toList()));
+    public DataDto<List<User>> findUsersByBirthDateRange(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                         @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                         @RequestParam(name = "cursor", required = false) String cursor,
+                                                         @RequestParam(name = "limit", required = false) Integer limit,
+                                                         final WebRequest webRequest) {
+        final var page = userService.findByBirthDateRange(from, to, cursor, limit);
+        if (webRequest.checkNotModified(page.getLastModified())) {
+            return null;
+        }
+        return DataDto.of(page.getContent(), page.getNextCursor());
+    }
+
+    @GetMapping("/birthdays")
+    public DataDto<List<User>> findUsersByBirthday(@RequestParam(name = "from") @DateTimeFormat(pattern = "MM-dd") MonthDay from,
+                                                   @RequestParam(name = "days", required = false) Integer days,
+                                                   @RequestParam(name = "cursor", required = false) String cursor,
+                                                   @RequestParam(name = "limit", required = false) Integer limit) {
+        final var page = userService.findByBirthday(from, days, cursor, limit);
+        return DataDto.of(page.getContent(), page.getNextCursor());
+    }
+
+    @GetMapping(params = "email")
+    public DataDto<List<User>> findUsersByEmail(@RequestParam(name = "email") String email) {
+        return DataDto.of(userService.findByEmail(email));
+    }
+
+    @GetMapping(params = "phone")
+    public DataDto<List<User>> findUsersByPhone(@RequestParam(name = "phone") String phone) {
+        return DataDto.of(userService.findByPhone(phone));
+    }
+
+    @GetMapping("/search")
+    public DataDto<List<User>> searchUsersByName(@RequestParam(name = "name") String name,
+                                                 @RequestParam(name = "limit", required = false) Integer limit) {
+        return DataDto.of(userService.searchByName(name, limit));
+    }
+
+    @GetMapping("/stats")
+    public DataDto<UserStatistics.Stats> getStats() {
+        return DataDto.of(userService.getStats());
+    }
+
+    /**
+     * Tagged by {@link UserEntityTagAdvice}, which answers a matching {@code If-None-Match} with 304.
+     */
+    @GetMapping("/{userId}")
+    public DataDto<User> findUser(@PathVariable final Long userId) {
+        return DataDto.of(userService.find(userId));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRange(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                             @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return streamUsers(userService.streamByBirthDateRange(from, to));
+    }
+
+    @GetMapping(params = "stream=true")
+    public ResponseEntity<StreamingResponseBody> streamUsersByBirthDateRangeOnFlag(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                                   @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return streamUsers(userService.streamByBirthDateRange(from, to));
     }
 
     @ResponseStatus(value = HttpStatus.CREATED)
     @PostMapping
-    public DataDto<UserDto> register(@Valid @RequestBody final DataDto<CreateUserDto> dataDto,
-                                     final HttpServletResponse servletResponse) {
+    public DataDto<User> register(@Valid @RequestBody final DataDto<CreateUserDto> dataDto,
+                                  final HttpServletResponse servletResponse) {
         final var registered = userService.save(userMapper.toUser(dataDto.getData()));
         servletResponse.addHeader(HttpHeaders.LOCATION, "/users/%d".formatted(registered.getId()));
-        return DataDto.of(userMapper.toUserDto(registered));
+        return DataDto.of(registered);
+    }
+
+    @PostMapping("/batch")
+    public DataDto<List<BatchResultDto>> applyBatch(@Valid @RequestBody final DataDto<List<BatchOperationDto>> dataDto,
+                                                    @RequestParam(name = "atomic", defaultValue = "false") boolean atomic) {
+        final var operations = dataDto.getData().stream()
+                .map(userMapper::toBatchOperation)
+                .toList();
+        final var results = userService.applyBatch(operations, atomic);
+        final var response = new ArrayList<BatchResultDto>(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            response.add(userMapper.toBatchResultDto(operations.get(i), results.get(i)));
+        }
+        return DataDto.of(response);
     }
 
     @PutMapping("/{userId}")
-    public DataDto<UserDto> updateUser(@PathVariable final Long userId,
-                                       @Valid @RequestBody final DataDto<CreateUserDto> dataDto) {
-        var user = userService.find(userId);
-        userMapper.updateUser(user, dataDto.getData());
-        user = userService.save(user);
-        return DataDto.of(userMapper.toUserDto(user));
+    public DataDto<User> updateUser(@PathVariable final Long userId,
+                                    @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) final String ifMatch,
+                                    @Valid @RequestBody final DataDto<CreateUserDto> dataDto) {
+        final var user = userService.update(userId, expectedVersion(ifMatch),
+                target -> userMapper.updateUser(target, dataDto.getData()));
+        return DataDto.of(user);
     }
 
     @PatchMapping("/{userId}/contacts")
-    public DataDto<UserDto> patchUser(@PathVariable final Long userId,
-                                       @Valid @RequestBody final DataDto<UserContactsDto> dataDto) {
-        var user = userService.find(userId);
-        userMapper.patchUser(user, dataDto.getData());
-        user = userService.save(user);
-        return DataDto.of(userMapper.toUserDto(user));
+    public DataDto<User> patchUser(@PathVariable final Long userId,
+                                   @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) final String ifMatch,
+                                   @Valid @RequestBody final DataDto<UserContactsDto> dataDto) {
+        final var user = userService.update(userId, expectedVersion(ifMatch),
+                target -> userMapper.patchUser(target, dataDto.getData()));
+        return DataDto.of(user);
     }
 
     @DeleteMapping("/{userId}")
-    public void deleteUser(@PathVariable final Long userId) {
-        userService.delete(userId);
+    public void deleteUser(@PathVariable final Long userId,
+                           @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) final String ifMatch) {
+        userService.delete(userId, expectedVersion(ifMatch));
+    }
+
+    @DeleteMapping
+    public DataDto<Long> deleteUsersByBirthDateRange(@RequestParam(name = "from") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                     @RequestParam(name = "to") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return DataDto.of(userService.deleteByBirthDateRange(from, to));
+    }
+
+    /**
+     * Version of a strong entity tag issued by {@link UserEntityTagAdvice} for any representation,
+     * null for a missing header or {@code *}. Any other tag cannot match the current version.
+     */
+    private static Long expectedVersion(final String ifMatch) {
+        if (Objects.isNull(ifMatch) || ifMatch.isBlank() || ifMatch.strip().equals("*")) {
+            return null;
+        }
+        final var version = UserEntityTagAdvice.version(ifMatch.strip());
+        if (Objects.isNull(version)) {
+            throw new ApiException(Error.VERSION_MISMATCH);
+        }
+        return version;
+    }
+
+    private ResponseEntity<StreamingResponseBody> streamUsers(final Stream<User> users) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(outputStream -> writeNdjson(users, outputStream));
+    }
+
+    private void writeNdjson(final Stream<User> users, final OutputStream outputStream) throws IOException {
+        try (users) {
+            final var generator = userWriter.createGenerator(outputStream);
+            for (var iterator = users.iterator(); iterator.hasNext(); ) {
+                userWriter.writeValue(generator, iterator.next());
+                generator.writeRaw('\n');
+            }
+            generator.flush();
+        }
     }
 }
@@ -0,0 +1,78 @@
+package clear.solutions.test.assignment.controller;
+
+import clear.solutions.test.assignment.dto.DataDto;
+import clear.solutions.test.assignment.model.User;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+/**
+ * Entity tags of the single users returned by {@link UserController}.
+ * <p>
+ * JSON, CBOR and Smile bodies of the same version differ, so the strong tag holds the version and,
+ * for any type but JSON, the subtype the body is written as: {@code "3"}, {@code "3-cbor"}. The
+ * type is only known once the message converter is selected, so the tag is set here rather than
+ * in the controller, and a {@code GET} with a matching {@code If-None-Match} is answered with 304
+ * before the body is written.
+ */
+@ControllerAdvice(assignableTypes = UserController.class)
+public class UserEntityTagAdvice implements ResponseBodyAdvice<DataDto<User>> {
+
+    @Override
+    public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+        final var type = ResolvableType.forMethodParameter(returnType);
+        return DataDto.class.equals(type.resolve()) && User.class.equals(type.getGeneric(0).resolve());
+    }
+
+    @Override
+    public DataDto<User> beforeBodyWrite(DataDto<User> body, MethodParameter returnType, MediaType selectedContentType,
+                                         Class<? extends HttpMessageConverter<?>> selectedConverterType,
+                                         ServerHttpRequest request, ServerHttpResponse response) {
+        if (body == null || body.getData() == null) {
+            return body;
+        }
+        final var servletResponse = ((ServletServerHttpResponse) response).getServletResponse();
+        final var tag = entityTag(body.getData().getVersion(), selectedContentType);
+        servletResponse.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (request.getMethod() != HttpMethod.GET && request.getMethod() != HttpMethod.HEAD) {
+            servletResponse.setHeader(HttpHeaders.ETAG, tag);
+            return body;
+        }
+        final var webRequest = new ServletWebRequest(((ServletServerHttpRequest) request).getServletRequest(), servletResponse);
+        return webRequest.checkNotModified(tag) ? null : body;
+    }
+
+    static String entityTag(long version, MediaType type) {
+        if (type == null || MediaType.APPLICATION_JSON.isCompatibleWith(type)) {
+            return "\"" + version + '"';
+        }
+        return "\"" + version + '-' + type.getSubtype() + '"';
+    }
+
+    /**
+     * @return version of a strong tag issued by {@link #entityTag} for any type, or null if the
+     * tag is not one of them
+     */
+    static Long version(String tag) {
+        if (tag.length() < 3 || !tag.startsWith("\"") || !tag.endsWith("\"")) {
+            return null;
+        }
+        final var value = tag.substring(1, tag.length() - 1);
+        final var separator = value.indexOf('-');
+        try {
+            return Long.parseLong(separator < 0 ? value : value.substring(0, separator));
+        } catch (NumberFormatException ignored) {
+            return null;
+        }
+    }
+}
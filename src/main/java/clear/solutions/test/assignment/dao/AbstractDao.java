@@ -1,46 +1,413 @@
 package clear.solutions.test.assignment.dao;
 
+import clear.solutions.test.assignment.dao.DaoMetrics.Operation;
 import clear.solutions.test.assignment.model.Entity;
+import clear.solutions.test.assignment.persistence.Recoverable;
+import clear.solutions.test.assignment.persistence.WriteAheadLog;
+import org.springframework.core.GenericTypeResolver;
 import org.springframework.util.Assert;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
-public abstract class AbstractDao<T extends Entity> implements Dao<T> {
+public abstract class AbstractDao<T extends Entity<T>> implements Dao<T>, Recoverable<T> {
+    private static final int WRITE_STRIPES = 256;
 
     private final AtomicLong sequence;
     protected final Map<Long, T> entities;
+    protected final DaoMetrics metrics;
+    private volatile WriteAheadLog<T> writeAheadLog;
+    // held shared by logged writes and exclusively by checkpoints
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final List<EntityListener<T>> listeners = new CopyOnWriteArrayList<>();
+    // indexes of the members declared Indexed by the entity type
+    private final EntityIndexes<T> indexes;
+    private final QueryPlanner<T> planner;
+    // serialize the logged writes of an id while they wait for their record
+    private final Lock[] writeStripes = new Lock[WRITE_STRIPES];
 
     public AbstractDao() {
+        this(new ConcurrentHashMap<>());
+    }
+
+    /**
+     * @param entities storage of the entities by id, must apply {@code compute} and
+     *                 {@code computeIfPresent} atomically
+     */
+    protected AbstractDao(Map<Long, T> entities) {
+        this(entities, DaoMetrics.DISABLED);
+    }
+
+    protected AbstractDao(Map<Long, T> entities, DaoMetrics metrics) {
+        this(entities, metrics, null);
+    }
+
+    /**
+     * @param indexes indexes of the members declared Indexed, built by a subclass that keeps the ones
+     *                its queries read, or null to build them on the heap for the entity type
+     */
+    AbstractDao(Map<Long, T> entities, DaoMetrics metrics, EntityIndexes<T> indexes) {
         this.sequence = new AtomicLong(0L);
-        this.entities = new ConcurrentHashMap<>();
+        this.entities = entities;
+        this.metrics = metrics;
+        this.indexes = indexes != null
+                ? indexes
+                : EntityIndexes.of(GenericTypeResolver.resolveTypeArgument(getClass(), AbstractDao.class), IndexStorage.HEAP);
+        this.planner = new QueryPlanner<>(this.indexes, entities);
+        Arrays.setAll(writeStripes, stripe -> new ReentrantLock());
     }
 
     public T save(T entity) {
-        if (entity.getId() == null) {
-            entity.setId(sequence.incrementAndGet());
+        final var started = metrics.start(Operation.SAVE);
+        try {
+            final var identified = entity.getId() == null
+                    ? entity.withId(sequence.incrementAndGet())
+                    : entity;
+            return write(identified.getId(), previous -> stamp(previous, identified)).current();
+        } finally {
+            metrics.stop(Operation.SAVE, started);
+        }
+    }
+
+    @Override
+    public Optional<T> update(Long id, UnaryOperator<T> mutator) {
+        return update(id, null, mutator);
+    }
+
+    @Override
+    public Optional<T> update(Long id, Long expectedVersion, UnaryOperator<T> mutator) {
+        Assert.notNull(id, "id must be not null");
+        Assert.notNull(mutator, "mutator must be not null");
+        final var started = metrics.start(Operation.UPDATE);
+        try {
+            final var written = write(id, previous -> {
+                if (previous == null) {
+                    return null;
+                }
+                checkVersion(previous, expectedVersion);
+                final var current = mutator.apply(previous);
+                Assert.isTrue(id.equals(current.getId()), "mutator must keep the id");
+                return stamp(previous, current);
+            });
+            return Optional.ofNullable(written).map(Write::current);
+        } finally {
+            metrics.stop(Operation.UPDATE, started);
         }
-        entities.put(entity.getId(), entity);
-        return (T) entity.clone();
     }
 
     public Optional<T> findById(Long id) {
         Assert.notNull(id, "id must be not null");
-        return Optional.ofNullable(entities.get(id))
-                .map(entity -> (T) entity.clone());
+        final var started = metrics.start(Operation.FIND_BY_ID);
+        final var entity = entities.get(id);
+        metrics.stop(Operation.FIND_BY_ID, started);
+        return Optional.ofNullable(entity);
+    }
+
+    @Override
+    public List<T> find(Query<T> query) {
+        Assert.notNull(query, "query must be not null");
+        final var started = metrics.start(Operation.FIND_BY_QUERY);
+        final var found = planner.find(query);
+        metrics.stop(Operation.FIND_BY_QUERY, started);
+        return found;
+    }
+
+    @Override
+    public void addListener(EntityListener<T> listener) {
+        Assert.notNull(listener, "listener must be not null");
+        this.listeners.add(listener);
     }
 
     public void deleteAll() {
-        this.entities.clear();
+        this.entities.keySet().forEach(this::deleteById);
     }
 
     public void deleteById(Long userId) {
-        this.entities.remove(userId);
+        final var started = metrics.start(Operation.REMOVE);
+        try {
+            deleteIf(userId, entity -> true);
+        } finally {
+            metrics.stop(Operation.REMOVE, started);
+        }
+    }
+
+    @Override
+    public Optional<T> removeIfPresent(Long id) {
+        return removeIfPresent(id, null);
+    }
+
+    @Override
+    public Optional<T> removeIfPresent(Long id, Long expectedVersion) {
+        Assert.notNull(id, "id must be not null");
+        final var started = metrics.start(Operation.REMOVE);
+        try {
+            return Optional.ofNullable(remove(id, entity -> {
+                checkVersion(entity, expectedVersion);
+                return true;
+            }));
+        } finally {
+            metrics.stop(Operation.REMOVE, started);
+        }
+    }
+
+    /**
+     * Deletes the entity only if it matches the condition, checked atomically with the removal.
+     *
+     * @return true if the entity was deleted
+     */
+    protected boolean deleteIf(Long entityId, Predicate<T> condition) {
+        return remove(entityId, condition) != null;
+    }
+
+    /**
+     * @return the removed entity, or null if it is absent or does not match the condition
+     */
+    private T remove(Long entityId, Predicate<T> condition) {
+        final var written = write(entityId, previous -> previous == null || !condition.test(previous) ? previous : null);
+        return written == null ? null : written.previous();
     }
 
     public long countAll() {
         return this.entities.size();
     }
+
+    @Override
+    public boolean undelete(T entity) {
+        Assert.notNull(entity.getId(), "id must be not null");
+        final var started = metrics.start(Operation.SAVE);
+        try {
+            return write(entity.getId(), previous -> previous == null ? entity : previous) != null;
+        } finally {
+            metrics.stop(Operation.SAVE, started);
+        }
+    }
+
+    @Override
+    public void restore(T entity) {
+        Assert.notNull(entity.getId(), "id must be not null");
+        sequence.accumulateAndGet(entity.getId(), Math::max);
+        entities.compute(entity.getId(), (id, previous) -> {
+            onRestore(previous, entity);
+            publish(previous, entity);
+            return entity;
+        });
+    }
+
+    @Override
+    public void restoreDeletion(Long id) {
+        entities.computeIfPresent(id, (key, previous) -> {
+            onDelete(previous);
+            publish(previous, null);
+            return null;
+        });
+    }
+
+    @Override
+    public void restoreSequence(long sequence) {
+        this.sequence.accumulateAndGet(sequence, Math::max);
+    }
+
+    @Override
+    public void setWriteAheadLog(WriteAheadLog<T> writeAheadLog) {
+        this.writeAheadLog = writeAheadLog;
+    }
+
+    @Override
+    public long checkpoint(Runnable action) {
+        checkpointLock.writeLock().lock();
+        try {
+            action.run();
+            return sequence.get();
+        } finally {
+            checkpointLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Iterator<T> snapshotIterator() {
+        return entities.values().iterator();
+    }
+
+    /**
+     * Applies a change to the entity of an id: the change maps the stored entity, or null, to the
+     * entity to store, or to null to remove it, and returns its argument to leave it as it is.
+     * <p>
+     * Without a log the change runs inside the compute of the entry. With a log it runs under the
+     * stripe lock of the id, and the new entity is stored and shown to the indexes and the listeners
+     * only once its record is durable, so no reader sees a write that a failed append loses.
+     *
+     * @return the entities before and after the change, or null if it left the entity as it is
+     */
+    private Write<T> write(Long id, UnaryOperator<T> change) {
+        final var log = this.writeAheadLog;
+        if (log == null) {
+            final var written = new AtomicReference<Write<T>>();
+            entities.compute(id, (key, previous) -> {
+                final var current = change.apply(previous);
+                if (current == previous) {
+                    return previous;
+                }
+                if (current == null) {
+                    onDelete(previous);
+                } else {
+                    onSave(previous, current);
+                }
+                publish(previous, current);
+                written.set(new Write<>(previous, current));
+                return current;
+            });
+            return written.get();
+        }
+        final var stripe = writeStripes[Long.hashCode(id * 0x9E3779B97F4A7C15L) & (WRITE_STRIPES - 1)];
+        checkpointLock.readLock().lock();
+        stripe.lock();
+        try {
+            // only writers of the id, serialized by the stripe, change its entry
+            final var previous = entities.get(id);
+            final var current = change.apply(previous);
+            if (current == previous) {
+                return null;
+            }
+            // encoded first, an entity that cannot be encoded or a closed log fails the write before anything changed
+            final var pending = current == null ? log.prepareDelete(id) : log.prepareSave(current);
+            if (current != null) {
+                // claimed before the append, so a duplicate is never logged; readers check the entity they
+                // resolve from an index, so the claim shows nothing before the entity is stored
+                onSave(previous, current);
+            }
+            try {
+                awaitDurable(log.append(pending));
+            } catch (RuntimeException e) {
+                if (current != null) {
+                    unclaim(previous, current);
+                }
+                throw e;
+            }
+            entities.compute(id, (key, ignored) -> {
+                if (current == null) {
+                    onDelete(previous);
+                }
+                publish(previous, current);
+                return current;
+            });
+            return new Write<>(previous, current);
+        } finally {
+            stripe.unlock();
+            checkpointLock.readLock().unlock();
+        }
+    }
+
+    private T stamp(T previous, T entity) {
+        metrics.countWriteCopy();
+        return entity.withVersion(previous == null ? 1L : previous.getVersion() + 1L);
+    }
+
+    /**
+     * Takes back the {@link #onSave} of a write whose record could not be logged, without enforcing
+     * the constraints between entities again.
+     */
+    private void unclaim(T previous, T current) {
+        if (previous == null) {
+            onDelete(current);
+        } else {
+            onRestore(current, previous);
+        }
+    }
+
+    private void publish(T previous, T current) {
+        if (current == null) {
+            indexes.remove(previous);
+            notifyDelete(previous);
+        } else {
+            indexes.update(previous, current);
+            notifySave(previous, current);
+        }
+    }
+
+    private void notifySave(T previous, T current) {
+        for (var listener : listeners) {
+            listener.onSave(previous, current);
+        }
+    }
+
+    private void notifyDelete(T previous) {
+        for (var listener : listeners) {
+            listener.onDelete(previous);
+        }
+    }
+
+    private static void checkVersion(Entity<?> entity, Long expectedVersion) {
+        if (expectedVersion != null && entity.getVersion() != expectedVersion) {
+            throw new VersionConflictException(entity.getId(), expectedVersion, entity.getVersion());
+        }
+    }
+
+    /**
+     * Blocks under the stripe lock of the id only, so writers of other ids keep joining the same
+     * batch and a virtual thread is not pinned to its carrier while it waits.
+     */
+    private static void awaitDurable(CompletableFuture<?> committed) {
+        try {
+            committed.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException("Write-ahead log append failed", cause);
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Called by the writer of the id before the stored entity is replaced, so secondary indexes
+     * see the same order of writes for a given id as the entities map does. Readers of these
+     * indexes must check the entity they resolve, the index is ahead of the map until the record
+     * of the write is durable. A write whose record cannot be logged is taken back with
+     * {@link #onRestore} from the current entity to the previous one, or {@link #onDelete} of a
+     * new one.
+     *
+     * @param previous entity stored before this save, or null for a new entity
+     * @param current  entity being stored
+     */
+    protected void onSave(T previous, T current) {
+    }
+
+    /**
+     * Called instead of {@link #onSave} while restoring from a snapshot or a log. The entities
+     * of a snapshot may come from different moments, so constraints between entities must not
+     * be enforced here; replaying the log brings them back in line.
+     */
+    protected void onRestore(T previous, T current) {
+        onSave(previous, current);
+    }
+
+    /**
+     * Called atomically with the removal of the stored entity, once the delete is durable.
+     *
+     * @param previous entity being removed
+     */
+    protected void onDelete(T previous) {
+    }
+
+    private record Write<T>(T previous, T current) {
+    }
 }
@@ -0,0 +1,61 @@
+package clear.solutions.test.assignment.dao;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+public final class BirthDateKey implements Comparable<BirthDateKey> {
+    private final long epochDay;
+    private final long id;
+
+    public BirthDateKey(LocalDate birthDate, long id) {
+        this.epochDay = Objects.requireNonNull(birthDate, "birthDate must be not null").toEpochDay();
+        this.id = id;
+    }
+
+    public static BirthDateKey lowest(LocalDate birthDate) {
+        return new BirthDateKey(birthDate, Long.MIN_VALUE);
+    }
+
+    public static BirthDateKey highest(LocalDate birthDate) {
+        return new BirthDateKey(birthDate, Long.MAX_VALUE);
+    }
+
+    public LocalDate getBirthDate() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean matches(LocalDate birthDate) {
+        return birthDate != null && birthDate.toEpochDay() == epochDay;
+    }
+
+    @Override
+    public int compareTo(BirthDateKey other) {
+        final var byDate = Long.compare(epochDay, other.epochDay);
+        return byDate != 0 ? byDate : Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        BirthDateKey that = (BirthDateKey) o;
+        return epochDay == that.epochDay && id == that.id;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(epochDay, id);
+    }
+
+    @Override
+    public String toString() {
+        return "BirthDateKey{" +
+                "birthDate=" + getBirthDate() +
+                ", id=" + id +
+                '}';
+    }
+}
@@ -2,14 +2,69 @@ package clear.solutions.test.assignment.dao;
 
 import clear.solutions.test.assignment.model.Entity;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.function.UnaryOperator;
 
-public interface Dao<T extends Entity> {
+public interface Dao<T extends Entity<T>> {
 
     T save(T entity);
 
     Optional<T> findById(Long id);
 
+    /**
+     * Replaces the entity with the result of the mutator, atomically with reading it. The mutator
+     * may run while other writes of the same id wait, so it must be quick and free of side effects
+     * other than throwing to cancel the update.
+     *
+     * @return the stored entity, or empty if there is no entity with the id
+     */
+    Optional<T> update(Long id, UnaryOperator<T> mutator);
+
+    /**
+     * Same as {@link #update(Long, UnaryOperator)}, applied only to the given version.
+     *
+     * @param expectedVersion version the entity must have, or null for any version
+     * @throws VersionConflictException if the entity has another version
+     */
+    Optional<T> update(Long id, Long expectedVersion, UnaryOperator<T> mutator);
+
+    /**
+     * @return the removed entity, or empty if there is no entity with the id
+     */
+    Optional<T> removeIfPresent(Long id);
+
+    /**
+     * Same as {@link #removeIfPresent(Long)}, applied only to the given version.
+     *
+     * @param expectedVersion version the entity must have, or null for any version
+     * @throws VersionConflictException if the entity has another version
+     */
+    Optional<T> removeIfPresent(Long id, Long expectedVersion);
+
+    /**
+     * Stores a deleted entity again as it was, keeping its version, so that undoing a delete does
+     * not move the version back to the one of a new entity.
+     *
+     * @return false if an entity with the id is stored
+     */
+    boolean undelete(T entity);
+
+    /**
+     * Entities matching every condition of the query, in order of id, read through the index of
+     * the most selective indexed condition. The plan chosen is logged at debug level by
+     * {@code QueryPlanner}.
+     *
+     * @throws IllegalArgumentException if a condition names an unknown member or a value of
+     *                                  another type than the member's
+     */
+    List<T> find(Query<T> query);
+
+    /**
+     * Registers a listener for the writes that follow, including restores from a snapshot or a log.
+     */
+    void addListener(EntityListener<T> listener);
+
     void deleteAll();
 
     void deleteById(Long userId);
@@ -0,0 +1,156 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers of the dao operations that complete, sizes of the range query results and counts of
+ * the user objects the dao copies. Meters are created once, so recording is a clock read and an
+ * atomic add; {@link #DISABLED} does not read the clock at all.
+ * <p>
+ * Reading the clock around a lookup by key costs several times the lookup itself, as it keeps
+ * the cache misses of consecutive lookups from overlapping. Lookups are therefore timed one in
+ * {@code lookupSampling}, their timer counts the sampled lookups only.
+ * <p>
+ * Histograms of the timers and sizes are enabled by the registry configuration, see
+ * {@code management.metrics.distribution} in {@code application.yml}.
+ */
+@Component
+public class DaoMetrics {
+    public static final DaoMetrics DISABLED = new DaoMetrics(new CompositeMeterRegistry(), false, 1);
+
+    private static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final boolean timed;
+    private final int lookupSampling;
+    private final Clock clock;
+    private final Timer[] timers;
+    private final DistributionSummary rangeSizes;
+    private final Counter readCopies;
+    private final Counter writeCopies;
+
+    @Autowired
+    public DaoMetrics(MeterRegistry registry, UserConfigurationProperties properties) {
+        this(registry, properties.getMetrics().getLookupSampling());
+    }
+
+    /**
+     * @param lookupSampling one in how many lookups by key is timed, 1 times all of them
+     */
+    public DaoMetrics(MeterRegistry registry, int lookupSampling) {
+        this(registry, true, lookupSampling);
+    }
+
+    private DaoMetrics(MeterRegistry registry, boolean timed, int lookupSampling) {
+        Assert.isTrue(lookupSampling > 0, "lookupSampling must be positive");
+        this.timed = timed;
+        this.lookupSampling = lookupSampling;
+        this.clock = registry.config().clock();
+        this.timers = new Timer[Operation.values().length];
+        for (var operation : Operation.values()) {
+            timers[operation.ordinal()] = Timer.builder("user.dao.operations")
+                    .description("Latency of the user dao operations")
+                    .tag("operation", operation.tag)
+                    .register(registry);
+        }
+        this.rangeSizes = DistributionSummary.builder("user.dao.range.size")
+                .description("Users returned by a birth date range query")
+                .baseUnit("users")
+                .register(registry);
+        this.readCopies = copyCounter(registry, "read");
+        this.writeCopies = copyCounter(registry, "write");
+    }
+
+    private DaoMetrics(DaoMetrics source) {
+        this.timed = false;
+        this.lookupSampling = source.lookupSampling;
+        this.clock = source.clock;
+        this.timers = source.timers;
+        this.rangeSizes = source.rangeSizes;
+        this.readCopies = source.readCopies;
+        this.writeCopies = source.writeCopies;
+    }
+
+    /**
+     * Same copy counters without timers and sizes, for daos that are parts of a timed one.
+     */
+    public DaoMetrics copiesOnly() {
+        return timed ? new DaoMetrics(this) : this;
+    }
+
+    /**
+     * @return start of the operation to pass to {@link #stop}
+     */
+    public long start(Operation operation) {
+        if (!timed || (operation.lookup && lookupSampling > 1
+                && ThreadLocalRandom.current().nextInt(lookupSampling) != 0)) {
+            return NOT_TIMED;
+        }
+        return clock.monotonicTime();
+    }
+
+    public void stop(Operation operation, long started) {
+        if (started != NOT_TIMED) {
+            timers[operation.ordinal()].record(clock.monotonicTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void recordRangeSize(int size) {
+        if (timed) {
+            rangeSizes.record(size);
+        }
+    }
+
+    /**
+     * A user object materialized from stored data on a read.
+     */
+    public void countReadCopy() {
+        readCopies.increment();
+    }
+
+    /**
+     * A user object copied to stamp its version on a write.
+     */
+    public void countWriteCopy() {
+        writeCopies.increment();
+    }
+
+    private static Counter copyCounter(MeterRegistry registry, String cause) {
+        return Counter.builder("user.dao.copies")
+                .description("User objects created by the dao")
+                .tag("cause", cause)
+                .register(registry);
+    }
+
+    public enum Operation {
+        SAVE("save", false),
+        UPDATE("update", false),
+        REMOVE("remove", false),
+        FIND_BY_ID("findById", true),
+        FIND_BY_EMAIL("findByEmail", true),
+        FIND_BY_PHONE("findByPhone", true),
+        FIND_BY_BIRTH_DATE_RANGE("findByBirthDateRange", false),
+        FIND_BY_BIRTHDAY("findByBirthday", false),
+        FIND_BY_QUERY("findByQuery", false),
+        DELETE_BY_BIRTH_DATE_RANGE("deleteByBirthDateRange", false);
+
+        private final String tag;
+        private final boolean lookup;
+
+        Operation(String tag, boolean lookup) {
+            this.tag = tag;
+            this.lookup = lookup;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package clear.solutions.test.assignment.dao;
+
+import java.io.Serial;
+
+/**
+ * Thrown by a save when unique emails are enforced and another user already has the email.
+ */
+public class DuplicateEmailException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public DuplicateEmailException(String email) {
+        super("Email %s is already in use".formatted(email));
+    }
+}
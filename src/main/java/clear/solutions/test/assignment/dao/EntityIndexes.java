@@ -0,0 +1,354 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.Entity;
+import clear.solutions.test.assignment.model.Indexed;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Function;
+
+/**
+ * Indexes of the members of an entity type declared {@link Indexed}, and readers of all its
+ * members by name for the conditions of the queries.
+ * <p>
+ * The dao updates the indexes inside the compute of the entity's entry, so an index sees the
+ * writes of an id in the order of the entities map. A reader may still see an index a write ahead
+ * of or behind the entity, so results are checked on the entities.
+ */
+final class EntityIndexes<T extends Entity<T>> {
+    private final Class<?> type;
+    private final IndexStorage storage;
+    private final Map<String, MemberIndex<T>> indexes;
+    private final ConcurrentMap<String, Member<T>> members = new ConcurrentHashMap<>();
+
+    private EntityIndexes(Class<?> type, IndexStorage storage, Map<String, MemberIndex<T>> indexes) {
+        this.type = type;
+        this.storage = storage;
+        this.indexes = indexes;
+    }
+
+    /**
+     * @param type entity type, or null if it is unknown and nothing is indexed
+     */
+    static <T extends Entity<T>> EntityIndexes<T> of(Class<?> type, IndexStorage storage) {
+        if (type == null) {
+            return new EntityIndexes<>(Object.class, storage, Map.of());
+        }
+        final var indexes = new EntityIndexes<T>(type, storage, new LinkedHashMap<>());
+        ReflectionUtils.doWithFields(type, field -> indexes.declare(field.getName(), field.getAnnotation(Indexed.class)),
+                field -> field.isAnnotationPresent(Indexed.class) && !Modifier.isStatic(field.getModifiers()));
+        ReflectionUtils.doWithMethods(type, method -> indexes.declare(method.getName(), method.getAnnotation(Indexed.class)),
+                method -> method.isAnnotationPresent(Indexed.class) && !Modifier.isStatic(method.getModifiers()));
+        return indexes;
+    }
+
+    private void declare(String name, Indexed indexed) {
+        final var member = member(name);
+        if (indexed.value() == Indexed.Type.SORTED && !Comparable.class.isAssignableFrom(ClassUtils.resolvePrimitiveIfNecessary(member.type()))) {
+            throw new IllegalStateException("Sorted index of " + type.getSimpleName() + "." + name + " needs comparable values");
+        }
+        final MemberIndex<T> index;
+        if (indexed.value() == Indexed.Type.HASH) {
+            index = new HashIndex<>(member, storage);
+        } else if (storage == IndexStorage.HEAP) {
+            index = new HeapSortedIndex<>(member);
+        } else {
+            index = new OffHeapSortedIndex<>(member);
+        }
+        indexes.put(name, index);
+    }
+
+    void update(T previous, T current) {
+        for (var index : indexes.values()) {
+            index.update(previous, current);
+        }
+    }
+
+    void remove(T previous) {
+        for (var index : indexes.values()) {
+            index.update(previous, null);
+        }
+    }
+
+    /**
+     * @return index of the member, or null if it is not indexed
+     */
+    MemberIndex<T> index(String name) {
+        return indexes.get(name);
+    }
+
+    /**
+     * Sorted index of a member, for the queries of the daos that need the keys in order.
+     *
+     * @throws IllegalArgumentException if the member has no sorted index
+     */
+    SortedIndex<T> sortedIndex(String name) {
+        if (index(name) instanceof SortedIndex<T> index) {
+            return index;
+        }
+        throw new IllegalArgumentException("No sorted index of " + name);
+    }
+
+    /**
+     * Field of the entity type or of its superclasses with the name, or else a method without
+     * parameters returning a value.
+     *
+     * @throws IllegalArgumentException if the type has no such member
+     */
+    Member<T> member(String name) {
+        return members.computeIfAbsent(name, this::resolve);
+    }
+
+    private Member<T> resolve(String name) {
+        final Field field = ReflectionUtils.findField(type, name);
+        if (field != null && !Modifier.isStatic(field.getModifiers())) {
+            ReflectionUtils.makeAccessible(field);
+            return new Member<>(name, field.getType(), entity -> ReflectionUtils.getField(field, entity));
+        }
+        final Method method = ReflectionUtils.findMethod(type, name);
+        if (method != null && !Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class) {
+            ReflectionUtils.makeAccessible(method);
+            return new Member<>(name, method.getReturnType(), entity -> ReflectionUtils.invokeMethod(method, entity));
+        }
+        throw new IllegalArgumentException("Unknown member " + name + " of " + type.getSimpleName());
+    }
+
+    /**
+     * @param type   declared type of the values
+     * @param reader value of the member of an entity
+     */
+    record Member<T>(String name, Class<?> type, Function<T, Object> reader) {
+
+        /**
+         * @throws IllegalArgumentException if the value cannot be one of the member
+         */
+        void checkValue(Object value) {
+            if (!ClassUtils.isAssignableValue(type, value)) {
+                throw new IllegalArgumentException(name + " takes values of type " + type.getSimpleName()
+                        + ", not " + value.getClass().getSimpleName());
+            }
+        }
+    }
+
+    abstract static sealed class MemberIndex<T extends Entity<T>> permits HashIndex, SortedIndex {
+        private final Member<T> member;
+
+        MemberIndex(Member<T> member) {
+            this.member = member;
+        }
+
+        Member<T> member() {
+            return member;
+        }
+
+        /**
+         * @param current entity being stored, or null if the previous one is removed
+         */
+        void update(T previous, T current) {
+            final var previousValue = previous == null ? null : member.reader().apply(previous);
+            final var value = current == null ? null : member.reader().apply(current);
+            if (previous != null && current != null && Objects.equals(previousValue, value)) {
+                return;
+            }
+            if (previousValue != null) {
+                remove(previousValue, previous.getId());
+            }
+            if (value != null) {
+                add(value, current.getId());
+            }
+        }
+
+        abstract void add(Object value, long id);
+
+        abstract void remove(Object value, long id);
+    }
+
+    static final class HashIndex<T extends Entity<T>> extends MemberIndex<T> {
+        private final ConcurrentMap<Object, Set<Long>> ids = new ConcurrentHashMap<>();
+        private final IndexStorage storage;
+
+        HashIndex(Member<T> member, IndexStorage storage) {
+            super(member);
+            this.storage = storage;
+        }
+
+        @Override
+        void add(Object value, long id) {
+            // the sets are concurrent, so a write to a large one copies nothing
+            ids.compute(value, (key, values) -> {
+                final var set = values == null ? storage.newIdSet() : values;
+                set.add(id);
+                return set;
+            });
+        }
+
+        @Override
+        void remove(Object value, long id) {
+            ids.computeIfPresent(value, (key, values) -> {
+                values.remove(id);
+                return values.isEmpty() ? null : values;
+            });
+        }
+
+        /**
+         * Live view of the ids having the value.
+         */
+        Set<Long> ids(Object value) {
+            return ids.getOrDefault(value, Set.of());
+        }
+    }
+
+    abstract static sealed class SortedIndex<T extends Entity<T>> extends MemberIndex<T>
+            permits HeapSortedIndex, OffHeapSortedIndex {
+
+        SortedIndex(Member<T> member) {
+            super(member);
+        }
+
+        /**
+         * Live view of all the keys in order.
+         */
+        abstract Iterable<IndexKey> keys();
+
+        /**
+         * Live view of the keys from {@code from} to {@code to} in order, {@code to} included.
+         */
+        abstract Iterable<IndexKey> keys(IndexKey from, boolean fromInclusive, IndexKey to);
+
+        /**
+         * Live view of the keys with values from {@code from} to {@code to}, both included.
+         */
+        Iterable<IndexKey> range(Comparable<?> from, Comparable<?> to) {
+            return keys(IndexKey.lowest(from), true, IndexKey.highest(to));
+        }
+    }
+
+    static final class HeapSortedIndex<T extends Entity<T>> extends SortedIndex<T> {
+        private final NavigableSet<IndexKey> keys = new ConcurrentSkipListSet<>();
+
+        HeapSortedIndex(Member<T> member) {
+            super(member);
+        }
+
+        @Override
+        void add(Object value, long id) {
+            keys.add(new IndexKey((Comparable<?>) value, id));
+        }
+
+        @Override
+        void remove(Object value, long id) {
+            keys.remove(new IndexKey((Comparable<?>) value, id));
+        }
+
+        @Override
+        Iterable<IndexKey> keys() {
+            return keys;
+        }
+
+        @Override
+        Iterable<IndexKey> keys(IndexKey from, boolean fromInclusive, IndexKey to) {
+            return from.compareTo(to) > 0 ? List.of() : keys.subSet(from, fromInclusive, to, true);
+        }
+    }
+
+    /**
+     * Sorted index keeping the ids of each value in an {@link OffHeapIdList}, so the heap holds an
+     * object per distinct value only. Lists emptied by writes are kept, since a skip list map does
+     * not apply a compute atomically.
+     */
+    static final class OffHeapSortedIndex<T extends Entity<T>> extends SortedIndex<T> {
+        private final ConcurrentNavigableMap<Object, OffHeapIdList> ids = new ConcurrentSkipListMap<>();
+
+        OffHeapSortedIndex(Member<T> member) {
+            super(member);
+        }
+
+        @Override
+        void add(Object value, long id) {
+            ids.computeIfAbsent(value, key -> new OffHeapIdList()).add(id);
+        }
+
+        @Override
+        void remove(Object value, long id) {
+            final var list = ids.get(value);
+            if (list != null) {
+                list.remove(id);
+            }
+        }
+
+        @Override
+        Iterable<IndexKey> keys() {
+            return () -> new KeyIterator(ids, Long.MIN_VALUE, null);
+        }
+
+        @Override
+        Iterable<IndexKey> keys(IndexKey from, boolean fromInclusive, IndexKey to) {
+            if (from.compareTo(to) > 0) {
+                return List.of();
+            }
+            // ids are positive, so the lowest key of a value has no id before it
+            final var after = fromInclusive && from.getId() != Long.MIN_VALUE ? from.getId() - 1 : from.getId();
+            return () -> new KeyIterator(ids.subMap(from.getValue(), true, to.getValue(), true), after, to);
+        }
+
+        /**
+         * Reads the ids of one value at a time, after {@code after} for the first value and up to
+         * the id of {@code to} for its value.
+         */
+        private static final class KeyIterator implements Iterator<IndexKey> {
+            private final Iterator<Map.Entry<Object, OffHeapIdList>> values;
+            private final IndexKey to;
+            private long after;
+            private Comparable<?> value;
+            private long[] batch = new long[0];
+            private int next;
+
+            KeyIterator(NavigableMap<Object, OffHeapIdList> ids, long after, IndexKey to) {
+                this.values = ids.entrySet().iterator();
+                this.after = after;
+                this.to = to;
+            }
+
+            @Override
+            public boolean hasNext() {
+                while (next == batch.length && values.hasNext()) {
+                    final var entry = values.next();
+                    value = (Comparable<?>) entry.getKey();
+                    final var upper = to != null && to.matches(value) ? to.getId() : Long.MAX_VALUE;
+                    batch = Arrays.stream(entry.getValue().toArray(after, Integer.MAX_VALUE))
+                            .filter(id -> id <= upper)
+                            .toArray();
+                    next = 0;
+                    after = Long.MIN_VALUE;
+                }
+                return next < batch.length;
+            }
+
+            @Override
+            public IndexKey next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return new IndexKey(value, batch[next++]);
+            }
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package clear.solutions.test.assignment.dao;
+
+/**
+ * Observes the writes of a dao. Called atomically with the write, while other writes of the
+ * same id wait, so implementations must be quick and must not call back into the dao.
+ */
+public interface EntityListener<T> {
+
+    /**
+     * @param previous entity stored before this save, or null for a new entity
+     * @param current  entity being stored
+     */
+    void onSave(T previous, T current);
+
+    /**
+     * @param previous entity being removed
+     */
+    void onDelete(T previous);
+}
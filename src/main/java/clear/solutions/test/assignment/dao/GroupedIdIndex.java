@@ -0,0 +1,59 @@
+package clear.solutions.test.assignment.dao;
+
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Index keeping a set of ids per key, for keys that are few or shared by many ids. The sets are
+ * concurrent and changed under the key's bin lock, so a write to a large one copies nothing; a set
+ * is dropped once its last id is removed.
+ */
+final class GroupedIdIndex<K> implements IdIndex<K> {
+    private final ConcurrentMap<K, Set<Long>> ids = new ConcurrentHashMap<>();
+    private final Supplier<Set<Long>> newIdSet;
+
+    GroupedIdIndex(Supplier<Set<Long>> newIdSet) {
+        this.newIdSet = newIdSet;
+    }
+
+    @Override
+    public boolean add(K key, long id, boolean unique) {
+        final var added = new boolean[1];
+        ids.compute(key, (ignored, values) -> {
+            if (unique && values != null && !values.contains(id)) {
+                return values;
+            }
+            final var set = values == null ? newIdSet.get() : values;
+            set.add(id);
+            added[0] = true;
+            return set;
+        });
+        return added[0];
+    }
+
+    @Override
+    public void remove(K key, long id) {
+        ids.computeIfPresent(key, (ignored, values) -> {
+            values.remove(id);
+            return values.isEmpty() ? null : values;
+        });
+    }
+
+    @Override
+    public long[] ids(K key, long after, int limit) {
+        final var values = ids.get(key);
+        if (values == null) {
+            return new long[0];
+        }
+        if (values instanceof OffHeapIdList list) {
+            return list.toArray(after, limit);
+        }
+        if (values instanceof NavigableSet<Long> sorted) {
+            return sorted.tailSet(after, false).stream().limit(limit).mapToLong(Long::longValue).toArray();
+        }
+        return values.stream().mapToLong(Long::longValue).filter(id -> id > after).sorted().limit(limit).toArray();
+    }
+}
@@ -0,0 +1,20 @@
+package clear.solutions.test.assignment.dao;
+
+/**
+ * Ids of the entities by a key, the storage of a secondary index of a dao.
+ */
+interface IdIndex<K> {
+
+    /**
+     * @param unique whether to refuse the id if another one has the key
+     * @return false, leaving the index unchanged, if the key is unique and another id has it
+     */
+    boolean add(K key, long id, boolean unique);
+
+    void remove(K key, long id);
+
+    /**
+     * @return ids of the key greater than {@code after} in ascending order, at most {@code limit}
+     */
+    long[] ids(K key, long after, int limit);
+}
@@ -0,0 +1,64 @@
+package clear.solutions.test.assignment.dao;
+
+import java.util.Objects;
+
+/**
+ * Entry of a sorted index, ordered by the value and then by the id of the entity.
+ */
+public final class IndexKey implements Comparable<IndexKey> {
+    private final Comparable<Object> value;
+    private final long id;
+
+    @SuppressWarnings("unchecked")
+    public IndexKey(Comparable<?> value, long id) {
+        this.value = (Comparable<Object>) Objects.requireNonNull(value, "value must be not null");
+        this.id = id;
+    }
+
+    public static IndexKey lowest(Comparable<?> value) {
+        return new IndexKey(value, Long.MIN_VALUE);
+    }
+
+    public static IndexKey highest(Comparable<?> value) {
+        return new IndexKey(value, Long.MAX_VALUE);
+    }
+
+    public Comparable<?> getValue() {
+        return value;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public boolean matches(Object value) {
+        return this.value.equals(value);
+    }
+
+    @Override
+    public int compareTo(IndexKey other) {
+        final var byValue = value.compareTo(other.value);
+        return byValue != 0 ? byValue : Long.compare(id, other.id);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        IndexKey that = (IndexKey) o;
+        return id == that.id && value.equals(that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(value, id);
+    }
+
+    @Override
+    public String toString() {
+        return "IndexKey{" +
+                "value=" + value +
+                ", id=" + id +
+                '}';
+    }
+}
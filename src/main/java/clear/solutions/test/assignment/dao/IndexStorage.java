@@ -0,0 +1,52 @@
+package clear.solutions.test.assignment.dao;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.ToLongFunction;
+
+/**
+ * Where the secondary indexes of a dao keep the ids of the entities.
+ */
+enum IndexStorage {
+    /**
+     * Concurrent collections of boxed ids.
+     */
+    HEAP,
+    /**
+     * Primitive ids in direct buffers; the heap holds an object per distinct value of a member with
+     * few values, such as a birth date, and none per entity.
+     */
+    OFF_HEAP;
+
+    /**
+     * @return empty concurrent set of ids
+     */
+    Set<Long> newIdSet() {
+        return this == HEAP ? ConcurrentHashMap.newKeySet() : new OffHeapIdList();
+    }
+
+    /**
+     * @return empty concurrent set of ids iterated in ascending order
+     */
+    Set<Long> newSortedIdSet() {
+        return this == HEAP ? new ConcurrentSkipListSet<>() : new OffHeapIdList();
+    }
+
+    /**
+     * Index of a key that most ids have a value of their own for, such as an email.
+     *
+     * @param hash 64-bit hash of a key, keys with the same hash share their ids off the heap
+     */
+    <K> IdIndex<K> newIdIndex(ToLongFunction<K> hash) {
+        return this == HEAP ? new GroupedIdIndex<>(this::newIdSet) : new OffHeapIdTable<>(hash);
+    }
+
+    /**
+     * Index of a key with few values, each shared by many ids, that reads the ids after a given one
+     * without sorting them.
+     */
+    <K> IdIndex<K> newGroupedIdIndex() {
+        return new GroupedIdIndex<>(this::newSortedIdSet);
+    }
+}
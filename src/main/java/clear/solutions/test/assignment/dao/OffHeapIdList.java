@@ -0,0 +1,120 @@
+package clear.solutions.test.assignment.dao;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+
+/**
+ * Set of ids kept sorted in a direct buffer, for the index entries of a value many entities share.
+ * <p>
+ * Ids are inserted and removed by shifting the ones after them, which costs nothing for the new
+ * ids of an entry since ids grow. The buffer doubles when full and halves when a quarter of it is
+ * used. The methods are synchronized; iterating reads a copy of the ids.
+ */
+final class OffHeapIdList extends AbstractSet<Long> {
+    private static final int MIN_CAPACITY = 4;
+
+    private LongBuffer ids = allocate(MIN_CAPACITY);
+    private int size;
+
+    synchronized boolean add(long id) {
+        final var index = search(id);
+        if (index >= 0) {
+            return false;
+        }
+        final var insertion = -index - 1;
+        if (size == ids.capacity()) {
+            resize(size * 2);
+        }
+        for (int i = size; i > insertion; i--) {
+            ids.put(i, ids.get(i - 1));
+        }
+        ids.put(insertion, id);
+        size++;
+        return true;
+    }
+
+    synchronized boolean remove(long id) {
+        final var index = search(id);
+        if (index < 0) {
+            return false;
+        }
+        size--;
+        for (int i = index; i < size; i++) {
+            ids.put(i, ids.get(i + 1));
+        }
+        if (ids.capacity() > MIN_CAPACITY && size < ids.capacity() / 4) {
+            resize(ids.capacity() / 2);
+        }
+        return true;
+    }
+
+    synchronized boolean contains(long id) {
+        return search(id) >= 0;
+    }
+
+    /**
+     * @return ids greater than {@code after} in ascending order, at most {@code limit}
+     */
+    synchronized long[] toArray(long after, int limit) {
+        var from = search(after);
+        from = from >= 0 ? from + 1 : -from - 1;
+        final var copy = new long[Math.min(size - from, limit)];
+        ids.get(from, copy);
+        return copy;
+    }
+
+    @Override
+    public synchronized int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Long id) {
+        return add(id.longValue());
+    }
+
+    @Override
+    public boolean remove(Object id) {
+        return id instanceof Long value && remove(value.longValue());
+    }
+
+    @Override
+    public boolean contains(Object id) {
+        return id instanceof Long value && contains(value.longValue());
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        return Arrays.stream(toArray(Long.MIN_VALUE, Integer.MAX_VALUE)).iterator();
+    }
+
+    private int search(long id) {
+        var low = 0;
+        var high = size - 1;
+        while (low <= high) {
+            final var middle = (low + high) >>> 1;
+            final var value = ids.get(middle);
+            if (value < id) {
+                low = middle + 1;
+            } else if (value > id) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    private void resize(int capacity) {
+        final var resized = allocate(capacity);
+        resized.put(0, ids, 0, size);
+        ids = resized;
+    }
+
+    private static LongBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+    }
+}
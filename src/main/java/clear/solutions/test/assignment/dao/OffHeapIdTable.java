@@ -0,0 +1,159 @@
+package clear.solutions.test.assignment.dao;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.util.Arrays;
+import java.util.function.ToLongFunction;
+
+/**
+ * Index of the ids by the 64-bit hash of their key, kept in open addressing tables of
+ * {@code (hash, id)} pairs in direct buffers, for keys that most ids have a value of their own for.
+ * <p>
+ * Keys with the same hash share their ids, so readers must check the entity of an id they read,
+ * and two such keys count as one for uniqueness. The pairs are split into segments by the hash,
+ * each one with its own lock and table; a table is rebuilt without its removed pairs, twice as
+ * large as the live ones need, once live and removed pairs fill three quarters of it.
+ */
+final class OffHeapIdTable<K> implements IdIndex<K> {
+    private static final int SEGMENT_BITS = 6;
+
+    private final ToLongFunction<K> hash;
+    private final Segment[] segments = new Segment[1 << SEGMENT_BITS];
+
+    OffHeapIdTable(ToLongFunction<K> hash) {
+        this.hash = hash;
+        Arrays.setAll(segments, segment -> new Segment());
+    }
+
+    @Override
+    public boolean add(K key, long id, boolean unique) {
+        final var mixed = mix(hash.applyAsLong(key));
+        return segment(mixed).add(mixed, id, unique);
+    }
+
+    @Override
+    public void remove(K key, long id) {
+        final var mixed = mix(hash.applyAsLong(key));
+        segment(mixed).remove(mixed, id);
+    }
+
+    @Override
+    public long[] ids(K key, long after, int limit) {
+        final var mixed = mix(hash.applyAsLong(key));
+        return segment(mixed).ids(mixed, after, limit);
+    }
+
+    private Segment segment(long mixed) {
+        return segments[(int) (mixed >>> (Long.SIZE - SEGMENT_BITS))];
+    }
+
+    private static long mix(long hash) {
+        final var mixed = hash * 0x9E3779B97F4A7C15L;
+        return mixed ^ mixed >>> 29;
+    }
+
+    private static final class Segment {
+        // ids are positive, so the id of a slot also tells whether it is empty or removed
+        private static final long EMPTY = 0L;
+        private static final long REMOVED = -1L;
+        private static final int MIN_CAPACITY = 16;
+
+        private LongBuffer keys;
+        private LongBuffer ids;
+        private int mask;
+        private int size;
+        private int removed;
+
+        Segment() {
+            allocate(MIN_CAPACITY);
+        }
+
+        synchronized boolean add(long key, long id, boolean unique) {
+            var free = -1;
+            for (int slot = (int) key & mask; ; slot = (slot + 1) & mask) {
+                final var slotId = ids.get(slot);
+                if (slotId == EMPTY) {
+                    free = free < 0 ? slot : free;
+                    break;
+                }
+                if (slotId == REMOVED) {
+                    free = free < 0 ? slot : free;
+                } else if (keys.get(slot) == key) {
+                    if (slotId == id) {
+                        return true;
+                    }
+                    if (unique) {
+                        return false;
+                    }
+                }
+            }
+            if (ids.get(free) == REMOVED) {
+                removed--;
+            }
+            keys.put(free, key);
+            ids.put(free, id);
+            size++;
+            if ((size + removed) * 4L > (mask + 1) * 3L) {
+                rebuild();
+            }
+            return true;
+        }
+
+        synchronized void remove(long key, long id) {
+            for (int slot = (int) key & mask; ids.get(slot) != EMPTY; slot = (slot + 1) & mask) {
+                if (ids.get(slot) == id && keys.get(slot) == key) {
+                    ids.put(slot, REMOVED);
+                    size--;
+                    removed++;
+                    return;
+                }
+            }
+        }
+
+        synchronized long[] ids(long key, long after, int limit) {
+            var found = new long[1];
+            var count = 0;
+            for (int slot = (int) key & mask; ids.get(slot) != EMPTY; slot = (slot + 1) & mask) {
+                final var slotId = ids.get(slot);
+                if (slotId > after && keys.get(slot) == key) {
+                    if (count == found.length) {
+                        found = Arrays.copyOf(found, count * 2);
+                    }
+                    found[count++] = slotId;
+                }
+            }
+            Arrays.sort(found, 0, count);
+            return Arrays.copyOf(found, Math.min(count, limit));
+        }
+
+        private void rebuild() {
+            final var previousKeys = keys;
+            final var previousIds = ids;
+            var capacity = MIN_CAPACITY;
+            while (capacity < size * 2L) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+            for (int slot = 0; slot < previousIds.capacity(); slot++) {
+                final var id = previousIds.get(slot);
+                if (id != EMPTY && id != REMOVED) {
+                    var target = (int) previousKeys.get(slot) & mask;
+                    while (ids.get(target) != EMPTY) {
+                        target = (target + 1) & mask;
+                    }
+                    keys.put(target, previousKeys.get(slot));
+                    ids.put(target, id);
+                    size++;
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+            ids = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+            mask = capacity - 1;
+            size = 0;
+            removed = 0;
+        }
+    }
+}
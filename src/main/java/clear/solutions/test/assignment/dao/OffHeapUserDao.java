@@ -0,0 +1,33 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * User dao keeping users in {@link OffHeapUserStore} columns instead of heap objects,
+ * enabled with {@code user.storage=off-heap}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user", name = "storage", havingValue = "off-heap")
+public class OffHeapUserDao extends UserDaoImpl {
+
+    @Autowired
+    public OffHeapUserDao(UserConfigurationProperties properties, DaoMetrics metrics) {
+        this(properties.getOffHeapExpectedSize(), properties.getUniqueEmail(), metrics);
+    }
+
+    public OffHeapUserDao(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    public OffHeapUserDao(int expectedSize, boolean uniqueEmail) {
+        this(expectedSize, uniqueEmail, DaoMetrics.DISABLED);
+    }
+
+    public OffHeapUserDao(int expectedSize, boolean uniqueEmail, DaoMetrics metrics) {
+        super(new OffHeapUserStore(expectedSize, metrics), IndexStorage.OFF_HEAP,
+                IndexStorage.OFF_HEAP.newIdIndex(UserDaoImpl::hash), uniqueEmail, metrics);
+    }
+}
@@ -0,0 +1,596 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.User;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Columnar user storage kept outside of the java heap.
+ * <p>
+ * Every user occupies one row: the id, the version, the birth date (as epoch day) and the address of a record
+ * in a byte arena are stored in separate direct buffer columns, the record holds the row and the UTF-8
+ * encoded string properties. {@link User} objects are only materialized when a row is read, so the
+ * heap holds no per-user objects.
+ * <p>
+ * Writes of an id are serialized by one of a fixed set of striped locks, held while the function of a
+ * compute runs, so the indexes, listeners and log work of the dao's writes to different ids run in
+ * parallel. Reads share a read lock and the write lock is only held while a row or an arena is
+ * changed. Each stripe appends the records of its ids to an arena of its own. Rewritten and removed
+ * records leave garbage in the arena, which is reclaimed once it exceeds half of the arena by copying
+ * the live records to a new one under the stripe lock alone; the write lock is only taken to point
+ * the rows at the copies.
+ */
+final class OffHeapUserStore extends AbstractMap<Long, User> implements ConcurrentMap<Long, User> {
+
+    private static final int CHUNK_ROWS = 1 << 16;
+    private static final int MIN_ARENA_CHUNK_BYTES = 1 << 14;
+    private static final int MAX_ARENA_CHUNK_BYTES = 1 << 20;
+    private static final long COMPACTION_THRESHOLD_BYTES = 1L << 17;
+    private static final long FREE_ROW = 0L;
+    private static final int DEAD_RECORD = -1;
+    private static final int NULL_LENGTH = -1;
+    private static final int STRING_FIELDS = 5;
+    private static final int WRITE_STRIPES = 64;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock[] writeStripes = new Lock[WRITE_STRIPES];
+    private final List<LongBuffer> idColumn = new ArrayList<>();
+    private final List<LongBuffer> versionColumn = new ArrayList<>();
+    private final List<IntBuffer> birthDayColumn = new ArrayList<>();
+    private final List<LongBuffer> recordColumn = new ArrayList<>();
+    private final Arena[] arenas = new Arena[WRITE_STRIPES];
+    private final RowIndex rowIndex;
+    private final DaoMetrics metrics;
+    private int rowCount;
+    private int[] freeRows = new int[64];
+    private int freeCount;
+
+    OffHeapUserStore(int expectedSize, DaoMetrics metrics) {
+        this.rowIndex = new RowIndex(expectedSize);
+        this.metrics = metrics;
+        Arrays.setAll(writeStripes, stripe -> new ReentrantLock());
+        Arrays.setAll(arenas, stripe -> new Arena());
+    }
+
+    @Override
+    public User get(Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+        lock.readLock().lock();
+        try {
+            final var row = rowIndex.get(id);
+            return row < 0 ? null : readRow(row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (!(key instanceof Long id)) {
+            return false;
+        }
+        lock.readLock().lock();
+        try {
+            return rowIndex.get(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return rowCount - freeCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public User put(Long key, User value) {
+        return compute(key, (id, previous) -> value, true);
+    }
+
+    @Override
+    public User putIfAbsent(Long key, User value) {
+        return compute(key, (id, previous) -> previous == null ? value : previous, true);
+    }
+
+    @Override
+    public User remove(Object key) {
+        if (!(key instanceof Long id)) {
+            return null;
+        }
+        return compute(id, (k, previous) -> null, true);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (!(key instanceof Long id) || value == null) {
+            return false;
+        }
+        final var removed = new boolean[1];
+        compute(id, (k, previous) -> {
+            removed[0] = value.equals(previous);
+            return removed[0] ? null : previous;
+        });
+        return removed[0];
+    }
+
+    @Override
+    public boolean replace(Long key, User oldValue, User newValue) {
+        final var replaced = new boolean[1];
+        computeIfPresent(key, (k, previous) -> {
+            replaced[0] = previous.equals(oldValue);
+            return replaced[0] ? newValue : previous;
+        });
+        return replaced[0];
+    }
+
+    @Override
+    public User replace(Long key, User value) {
+        return compute(key, (id, previous) -> previous == null ? null : value, true);
+    }
+
+    @Override
+    public User compute(Long key, BiFunction<? super Long, ? super User, ? extends User> remappingFunction) {
+        return compute(key, remappingFunction, false);
+    }
+
+    @Override
+    public User computeIfPresent(Long key, BiFunction<? super Long, ? super User, ? extends User> remappingFunction) {
+        return compute(key, (id, previous) -> previous == null ? null : remappingFunction.apply(id, previous), false);
+    }
+
+    @Override
+    public User computeIfAbsent(Long key, Function<? super Long, ? extends User> mappingFunction) {
+        return compute(key, (id, previous) -> previous == null ? mappingFunction.apply(id) : previous, false);
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (int row = 0; row < rowCount; row++) {
+                if (id(row) != FREE_ROW) {
+                    freeRow(row);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Set<Entry<Long, User>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Long, User>> iterator() {
+                return new RowIterator();
+            }
+
+            @Override
+            public int size() {
+                return OffHeapUserStore.this.size();
+            }
+        };
+    }
+
+    /**
+     * Applies the function atomically for the id under its stripe lock, taking the write lock only
+     * to store the result.
+     *
+     * @return the previous value when {@code returnPrevious} is set, otherwise the new value
+     */
+    private User compute(Long key,
+                         BiFunction<? super Long, ? super User, ? extends User> remappingFunction,
+                         boolean returnPrevious) {
+        Assert.notNull(key, "id must be not null");
+        Assert.isTrue(key > 0, "id must be positive");
+        final var stripe = writeStripes[stripe(key)];
+        stripe.lock();
+        try {
+            final var previous = get(key);
+            final var current = remappingFunction.apply(key, previous);
+            if (current == previous || current == null && previous == null) {
+                return returnPrevious ? previous : current;
+            }
+            if (current != null) {
+                Assert.isTrue(key.equals(current.getId()), "entity id must match the key");
+            }
+            lock.writeLock().lock();
+            try {
+                // only writers of the id, serialized by the stripe, or a clear change its row
+                final var row = rowIndex.get(key);
+                if (current == null) {
+                    if (row >= 0) {
+                        freeRow(row);
+                    }
+                } else {
+                    writeRow(row < 0 ? allocateRow(key) : row, current);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            if (current != null) {
+                compactIfNeeded(stripe(key));
+            }
+            return returnPrevious ? previous : current;
+        } finally {
+            stripe.unlock();
+        }
+    }
+
+    private User readRow(int row) {
+        final var id = id(row);
+        final var address = record(row);
+        final var chunk = arenas[stripe(id)].chunk(address);
+        final var position = new int[]{(int) address + Integer.BYTES};
+        metrics.countReadCopy();
+        return new User(
+                id,
+                readString(chunk, position),
+                readString(chunk, position),
+                readString(chunk, position),
+                LocalDate.ofEpochDay(birthDayColumn.get(row / CHUNK_ROWS).get(row % CHUNK_ROWS)),
+                readString(chunk, position),
+                readString(chunk, position),
+                versionColumn.get(row / CHUNK_ROWS).get(row % CHUNK_ROWS));
+    }
+
+    private void writeRow(int row, User user) {
+        if (id(row) == user.getId()) {
+            releaseRecord(row);
+        }
+        idColumn.get(row / CHUNK_ROWS).put(row % CHUNK_ROWS, user.getId());
+        versionColumn.get(row / CHUNK_ROWS).put(row % CHUNK_ROWS, user.getVersion());
+        birthDayColumn.get(row / CHUNK_ROWS).put(row % CHUNK_ROWS, Math.toIntExact(user.getBirthDate().toEpochDay()));
+        recordColumn.get(row / CHUNK_ROWS).put(row % CHUNK_ROWS, arenas[stripe(user.getId())].append(row,
+                user.getEmail(), user.getFirstName(), user.getLastName(), user.getAddress(), user.getPhone()));
+    }
+
+    private int allocateRow(long id) {
+        final int row;
+        if (freeCount > 0) {
+            row = freeRows[--freeCount];
+        } else {
+            row = rowCount++;
+            if (row / CHUNK_ROWS == idColumn.size()) {
+                idColumn.add(ByteBuffer.allocateDirect(CHUNK_ROWS * Long.BYTES).asLongBuffer());
+                versionColumn.add(ByteBuffer.allocateDirect(CHUNK_ROWS * Long.BYTES).asLongBuffer());
+                birthDayColumn.add(ByteBuffer.allocateDirect(CHUNK_ROWS * Integer.BYTES).asIntBuffer());
+                recordColumn.add(ByteBuffer.allocateDirect(CHUNK_ROWS * Long.BYTES).asLongBuffer());
+            }
+        }
+        rowIndex.put(id, row);
+        return row;
+    }
+
+    private void freeRow(int row) {
+        rowIndex.remove(id(row));
+        releaseRecord(row);
+        idColumn.get(row / CHUNK_ROWS).put(row % CHUNK_ROWS, FREE_ROW);
+        if (freeCount == freeRows.length) {
+            freeRows = Arrays.copyOf(freeRows, freeRows.length * 2);
+        }
+        freeRows[freeCount++] = row;
+    }
+
+    private long id(int row) {
+        return idColumn.get(row / CHUNK_ROWS).get(row % CHUNK_ROWS);
+    }
+
+    private long record(int row) {
+        return recordColumn.get(row / CHUNK_ROWS).get(row % CHUNK_ROWS);
+    }
+
+    private void releaseRecord(int row) {
+        arenas[stripe(id(row))].release(record(row));
+    }
+
+    /**
+     * Runs under the stripe lock, which keeps the other writers of the arena out, so the live records
+     * are copied without the write lock. A clear may still release some of them meanwhile, their rows
+     * are left alone once the copies are in.
+     */
+    private void compactIfNeeded(int stripe) {
+        final var arena = arenas[stripe];
+        lock.readLock().lock();
+        try {
+            if (arena.bytes < COMPACTION_THRESHOLD_BYTES || arena.liveBytes * 2 > arena.bytes) {
+                return;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        final var compacted = new Arena();
+        var moved = new long[64];
+        var count = 0;
+        for (int index = 0; index < arena.chunks.size(); index++) {
+            final var chunk = arena.chunks.get(index);
+            final var end = index == arena.chunks.size() - 1 ? arena.position : chunk.limit();
+            for (int offset = 0; offset < end; offset += recordSize(chunk, offset)) {
+                if (chunk.getInt(offset) != DEAD_RECORD) {
+                    if (count == moved.length) {
+                        moved = Arrays.copyOf(moved, count * 2);
+                    }
+                    moved[count++] = (long) index << 32 | offset;
+                    moved[count++] = compacted.copy(chunk, offset, recordSize(chunk, offset));
+                }
+            }
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < count; i += 2) {
+                final var chunk = arena.chunk(moved[i]);
+                final var row = chunk.getInt((int) moved[i]);
+                if (row == DEAD_RECORD) {
+                    compacted.release(moved[i + 1]);
+                } else {
+                    recordColumn.get(row / CHUNK_ROWS).put(row % CHUNK_ROWS, moved[i + 1]);
+                }
+            }
+            arenas[stripe] = compacted;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static int stripe(long id) {
+        return Long.hashCode(id * 0x9E3779B97F4A7C15L) & (WRITE_STRIPES - 1);
+    }
+
+    private static int recordSize(ByteBuffer chunk, int offset) {
+        var position = offset + Integer.BYTES;
+        for (int i = 0; i < STRING_FIELDS; i++) {
+            final var length = chunk.getInt(position);
+            position += Integer.BYTES + Math.max(length, 0);
+        }
+        return position - offset;
+    }
+
+    private static String readString(ByteBuffer chunk, int[] position) {
+        final var length = chunk.getInt(position[0]);
+        position[0] += Integer.BYTES;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final var bytes = new byte[length];
+        chunk.get(position[0], bytes);
+        position[0] += length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Records of the ids of one stripe, appended to direct buffer chunks that double in size up to
+     * a limit. A record is {@code [row:int]} and then {@code [length:int][UTF-8 bytes]} per string,
+     * its row is set to {@link #DEAD_RECORD} once released. A full chunk's limit marks the end of
+     * its records.
+     */
+    private static final class Arena {
+        private final List<ByteBuffer> chunks = new ArrayList<>();
+        // end of the records in the last chunk
+        private int position;
+        private long bytes;
+        private long liveBytes;
+
+        ByteBuffer chunk(long address) {
+            return chunks.get((int) (address >>> 32));
+        }
+
+        long append(int row, String... fields) {
+            final var encoded = new byte[STRING_FIELDS][];
+            var size = Integer.BYTES + STRING_FIELDS * Integer.BYTES;
+            for (int i = 0; i < STRING_FIELDS; i++) {
+                encoded[i] = fields[i] == null ? null : fields[i].getBytes(StandardCharsets.UTF_8);
+                size += encoded[i] == null ? 0 : encoded[i].length;
+            }
+            final var address = reserve(size);
+            final var chunk = chunks.get(chunks.size() - 1);
+            var offset = (int) address;
+            chunk.putInt(offset, row);
+            offset += Integer.BYTES;
+            for (byte[] field : encoded) {
+                chunk.putInt(offset, field == null ? NULL_LENGTH : field.length);
+                offset += Integer.BYTES;
+                if (field != null) {
+                    chunk.put(offset, field);
+                    offset += field.length;
+                }
+            }
+            return address;
+        }
+
+        long copy(ByteBuffer source, int offset, int size) {
+            final var address = reserve(size);
+            chunks.get(chunks.size() - 1).put((int) address, source, offset, size);
+            return address;
+        }
+
+        void release(long address) {
+            final var chunk = chunk(address);
+            liveBytes -= recordSize(chunk, (int) address);
+            chunk.putInt((int) address, DEAD_RECORD);
+        }
+
+        private long reserve(int size) {
+            final var last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+            if (last == null || position + size > last.capacity()) {
+                if (last != null) {
+                    last.limit(position);
+                }
+                final var capacity = last == null ? MIN_ARENA_CHUNK_BYTES : Math.min(MAX_ARENA_CHUNK_BYTES, last.capacity() * 2);
+                chunks.add(ByteBuffer.allocateDirect(Math.max(capacity, size)));
+                position = 0;
+            }
+            final var address = (long) (chunks.size() - 1) << 32 | position;
+            position += size;
+            bytes += size;
+            liveBytes += size;
+            return address;
+        }
+    }
+
+    private final class RowIterator implements Iterator<Entry<Long, User>> {
+        private int row;
+        private Entry<Long, User> next;
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            lock.readLock().lock();
+            try {
+                while (row < rowCount && next == null) {
+                    if (id(row) != FREE_ROW) {
+                        final var user = readRow(row);
+                        next = new SimpleImmutableEntry<>(user.getId(), user);
+                    }
+                    row++;
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            return next != null;
+        }
+
+        @Override
+        public Entry<Long, User> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final var entry = next;
+            next = null;
+            return entry;
+        }
+    }
+
+    /**
+     * Open addressing id to row hash table with linear probing, kept in direct buffers.
+     */
+    private static final class RowIndex {
+        private static final long EMPTY = 0L;
+
+        private LongBuffer keys;
+        private IntBuffer rows;
+        private int mask;
+        private int size;
+
+        RowIndex(int expectedSize) {
+            var capacity = 16;
+            while (capacity * 2L < expectedSize * 3L) {
+                capacity <<= 1;
+            }
+            allocate(capacity);
+        }
+
+        int get(long id) {
+            if (id == EMPTY) {
+                return -1;
+            }
+            for (int slot = slot(id); ; slot = (slot + 1) & mask) {
+                final var key = keys.get(slot);
+                if (key == id) {
+                    return rows.get(slot);
+                }
+                if (key == EMPTY) {
+                    return -1;
+                }
+            }
+        }
+
+        void put(long id, int row) {
+            if ((size + 1) * 3L > (mask + 1) * 2L) {
+                resize();
+            }
+            var slot = slot(id);
+            while (keys.get(slot) != EMPTY && keys.get(slot) != id) {
+                slot = (slot + 1) & mask;
+            }
+            if (keys.get(slot) == EMPTY) {
+                size++;
+            }
+            keys.put(slot, id);
+            rows.put(slot, row);
+        }
+
+        void remove(long id) {
+            var slot = slot(id);
+            while (keys.get(slot) != id) {
+                if (keys.get(slot) == EMPTY) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            // backward shift deletion keeps probe sequences intact without tombstones
+            var next = slot;
+            while (true) {
+                next = (next + 1) & mask;
+                final var key = keys.get(next);
+                if (key == EMPTY) {
+                    break;
+                }
+                final var ideal = slot(key);
+                final var movable = slot <= next
+                        ? ideal <= slot || ideal > next
+                        : ideal <= slot && ideal > next;
+                if (movable) {
+                    keys.put(slot, key);
+                    rows.put(slot, rows.get(next));
+                    slot = next;
+                }
+            }
+            keys.put(slot, EMPTY);
+            size--;
+        }
+
+        private void resize() {
+            final var previousKeys = keys;
+            final var previousRows = rows;
+            allocate((mask + 1) * 2);
+            for (int slot = 0; slot < previousKeys.capacity(); slot++) {
+                final var key = previousKeys.get(slot);
+                if (key != EMPTY) {
+                    put(key, previousRows.get(slot));
+                }
+            }
+        }
+
+        private void allocate(int capacity) {
+            keys = ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer();
+            rows = ByteBuffer.allocateDirect(capacity * Integer.BYTES).asIntBuffer();
+            mask = capacity - 1;
+            size = 0;
+        }
+
+        private int slot(long id) {
+            var hash = id * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 32;
+            return (int) hash & mask;
+        }
+    }
+}
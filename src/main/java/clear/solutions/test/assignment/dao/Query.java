@@ -0,0 +1,112 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.Entity;
+import org.springframework.util.Assert;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * Conditions on the members of an entity, all of which a result must match, and the max number of
+ * results. Members are named by a field of the entity or by one of its methods without parameters;
+ * conditions on members declared {@link clear.solutions.test.assignment.model.Indexed} may be
+ * answered by their index, the others are checked on the entities.
+ * <p>
+ * Immutable, every method returns a new query with one more condition.
+ */
+public final class Query<T extends Entity<T>> {
+    private final List<Condition<T>> conditions;
+    private final int limit;
+
+    private Query(List<Condition<T>> conditions, int limit) {
+        this.conditions = conditions;
+        this.limit = limit;
+    }
+
+    /**
+     * Query of all the entities, narrowed by the conditions added to it.
+     */
+    public static <T extends Entity<T>> Query<T> all() {
+        return new Query<>(List.of(), Integer.MAX_VALUE);
+    }
+
+    public Query<T> equal(String member, Object value) {
+        Assert.hasText(member, "member must be not blank");
+        Assert.notNull(value, "value must be not null");
+        return with(new Equal<>(member, value));
+    }
+
+    /**
+     * Values from {@code from} to {@code to}, both included.
+     */
+    public Query<T> between(String member, Comparable<?> from, Comparable<?> to) {
+        Assert.hasText(member, "member must be not blank");
+        Assert.notNull(from, "from must be not null");
+        Assert.notNull(to, "to must be not null");
+        return with(new Between<>(member, from, to));
+    }
+
+    /**
+     * Condition that no index answers, always checked on the entities.
+     *
+     * @param description names the condition in the plans logged
+     */
+    public Query<T> filter(String description, Predicate<? super T> predicate) {
+        Assert.hasText(description, "description must be not blank");
+        Assert.notNull(predicate, "predicate must be not null");
+        return with(new Filter<>(description, predicate));
+    }
+
+    public Query<T> limit(int limit) {
+        Assert.isTrue(limit > 0, "limit must be positive");
+        return new Query<>(conditions, limit);
+    }
+
+    List<Condition<T>> getConditions() {
+        return conditions;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    private Query<T> with(Condition<T> condition) {
+        final var extended = new ArrayList<>(conditions);
+        extended.add(condition);
+        return new Query<>(List.copyOf(extended), limit);
+    }
+
+    @Override
+    public String toString() {
+        final var text = new StringBuilder(conditions.isEmpty() ? "all" : "");
+        for (var condition : conditions) {
+            text.append(text.isEmpty() ? "" : " and ").append(condition);
+        }
+        return limit == Integer.MAX_VALUE ? text.toString() : text.append(" limit ").append(limit).toString();
+    }
+
+    sealed interface Condition<T> {
+    }
+
+    record Equal<T>(String member, Object value) implements Condition<T> {
+        @Override
+        public String toString() {
+            return member + " = " + value;
+        }
+    }
+
+    record Between<T>(String member, Comparable<?> from, Comparable<?> to) implements Condition<T> {
+        @Override
+        public String toString() {
+            return member + " between " + from + " and " + to;
+        }
+    }
+
+    record Filter<T>(String description, Predicate<? super T> predicate) implements Condition<T> {
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+}
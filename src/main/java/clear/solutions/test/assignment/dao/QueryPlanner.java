@@ -0,0 +1,266 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.dao.EntityIndexes.HashIndex;
+import clear.solutions.test.assignment.dao.EntityIndexes.SortedIndex;
+import clear.solutions.test.assignment.dao.Query.Between;
+import clear.solutions.test.assignment.dao.Query.Condition;
+import clear.solutions.test.assignment.dao.Query.Equal;
+import clear.solutions.test.assignment.dao.Query.Filter;
+import clear.solutions.test.assignment.model.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.StreamSupport;
+
+/**
+ * Answers the queries of a dao from the indexes of the entity type.
+ * <p>
+ * Every condition on an indexed member that its index can answer is a candidate access path:
+ * one value of a hash index, or one value or a range of a sorted index. The planner reads the
+ * size of the hash index entries, counts the keys of the sorted index ranges up to the smallest
+ * size found so far, and walks the ids of the smallest one. The ids are intersected with the other
+ * hash index entries by lookups, then the entities of the ids left are read and checked against
+ * every condition, which also covers the other ranges and the conditions without an index. Only a
+ * query without any indexed condition scans the entities, in parallel on the common fork-join pool.
+ * <p>
+ * Results are in order of id. The plan of every query is logged at debug level.
+ */
+final class QueryPlanner<T extends Entity<T>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryPlanner.class);
+    // access of a condition that no entity matches
+    private static final Access EMPTY = new Access() {
+        @Override
+        public long estimate(long bound) {
+            return 0L;
+        }
+
+        @Override
+        public Iterable<Long> ids() {
+            return List.of();
+        }
+
+        @Override
+        public String toString() {
+            return "no match";
+        }
+    };
+
+    private final EntityIndexes<T> indexes;
+    private final Map<Long, T> entities;
+
+    QueryPlanner(EntityIndexes<T> indexes, Map<Long, T> entities) {
+        this.indexes = indexes;
+        this.entities = entities;
+    }
+
+    List<T> find(Query<T> query) {
+        final var plan = plan(query);
+        LOGGER.debug("Query {} planned as {}", query, plan);
+        return plan.access() == null ? scan(plan) : lookup(plan);
+    }
+
+    Plan<T> plan(Query<T> query) {
+        final var checks = new ArrayList<Predicate<T>>(query.getConditions().size());
+        final var accesses = new ArrayList<Access>();
+        var empty = false;
+        for (var condition : query.getConditions()) {
+            checks.add(check(condition));
+            final var access = access(condition);
+            if (access == EMPTY) {
+                empty = true;
+            } else if (access != null) {
+                accesses.add(access);
+            }
+        }
+        final Predicate<T> matches = entity -> {
+            for (var check : checks) {
+                if (!check.test(entity)) {
+                    return false;
+                }
+            }
+            return true;
+        };
+        if (empty) {
+            return new Plan<>(EMPTY, List.of(), matches, query.getLimit(), checks.size(), 0L);
+        }
+        if (accesses.isEmpty()) {
+            return new Plan<>(null, List.of(), matches, query.getLimit(), checks.size(), -1L);
+        }
+        // hash entries know their size, their sizes bound the counting of the ranges
+        accesses.sort(Comparator.comparing(access -> !(access instanceof HashAccess)));
+        Access best = accesses.get(0);
+        var bound = accesses.size() == 1 ? -1L : best.estimate(Long.MAX_VALUE);
+        for (int i = 1; i < accesses.size(); i++) {
+            final var estimate = accesses.get(i).estimate(bound);
+            if (estimate < bound) {
+                best = accesses.get(i);
+                bound = estimate;
+            }
+        }
+        final var probes = new ArrayList<HashAccess>();
+        for (var access : accesses) {
+            if (access != best && access instanceof HashAccess hash) {
+                probes.add(hash);
+            }
+        }
+        return new Plan<>(best, probes, matches, query.getLimit(), checks.size(), bound);
+    }
+
+    private List<T> lookup(Plan<T> plan) {
+        final var ids = new ArrayList<Long>();
+        for (var id : plan.access().ids()) {
+            if (plan.probes().stream().allMatch(probe -> probe.contains(id))) {
+                ids.add(id);
+            }
+        }
+        ids.sort(null);
+        final var results = new ArrayList<T>();
+        for (int i = 0; i < ids.size() && results.size() < plan.limit(); i++) {
+            final var entity = entities.get(ids.get(i));
+            // the index may briefly lag behind a concurrent save of the same entity
+            if (entity != null && plan.matches().test(entity)) {
+                results.add(entity);
+            }
+        }
+        return results;
+    }
+
+    private List<T> scan(Plan<T> plan) {
+        return entities.values().parallelStream()
+                .filter(plan.matches())
+                .sorted(Comparator.comparing(T::getId))
+                .limit(plan.limit())
+                .toList();
+    }
+
+    private Predicate<T> check(Condition<T> condition) {
+        return switch (condition) {
+            case Equal<T> equal -> {
+                final var member = indexes.member(equal.member());
+                member.checkValue(equal.value());
+                yield entity -> equal.value().equals(member.reader().apply(entity));
+            }
+            case Between<T> between -> {
+                final var member = indexes.member(between.member());
+                member.checkValue(between.from());
+                member.checkValue(between.to());
+                yield entity -> {
+                    final var value = member.reader().apply(entity);
+                    return value != null && compare(between.from(), value) <= 0 && compare(value, between.to()) <= 0;
+                };
+            }
+            case Filter<T> filter -> entity -> filter.predicate().test(entity);
+        };
+    }
+
+    /**
+     * @return access path of the condition, {@link #EMPTY} if it matches nothing, or null if no
+     * index answers it
+     */
+    private Access access(Condition<T> condition) {
+        if (condition instanceof Equal<T> equal) {
+            return switch (indexes.index(equal.member())) {
+                case HashIndex<T> index -> new HashAccess(equal, index.ids(equal.value()));
+                case SortedIndex<T> index -> new SortedAccess(equal, index.range((Comparable<?>) equal.value(),
+                        (Comparable<?>) equal.value()));
+                case null -> null;
+            };
+        }
+        if (condition instanceof Between<T> between && indexes.index(between.member()) instanceof SortedIndex<T> index) {
+            return compare(between.from(), between.to()) > 0 ? EMPTY : new SortedAccess(between, index.range(between.from(), between.to()));
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object value, Object other) {
+        return ((Comparable<Object>) value).compareTo(other);
+    }
+
+    /**
+     * Ids an index holds for a condition.
+     */
+    interface Access {
+        /**
+         * @return number of ids, or the bound if there are as many or more
+         */
+        long estimate(long bound);
+
+        Iterable<Long> ids();
+    }
+
+    record HashAccess(Condition<?> condition, Set<Long> values) implements Access {
+        @Override
+        public long estimate(long bound) {
+            return Math.min(values.size(), bound);
+        }
+
+        @Override
+        public Iterable<Long> ids() {
+            return values;
+        }
+
+        boolean contains(long id) {
+            return values.contains(id);
+        }
+
+        @Override
+        public String toString() {
+            return "hash index " + condition;
+        }
+    }
+
+    private record SortedAccess(Condition<?> condition, Iterable<IndexKey> keys) implements Access {
+        /**
+         * Counts the keys of the range, stopping at the bound.
+         */
+        @Override
+        public long estimate(long bound) {
+            var count = 0L;
+            for (var iterator = keys.iterator(); count < bound && iterator.hasNext(); iterator.next()) {
+                count++;
+            }
+            return count;
+        }
+
+        @Override
+        public Iterable<Long> ids() {
+            return () -> StreamSupport.stream(keys.spliterator(), false).map(IndexKey::getId).iterator();
+        }
+
+        @Override
+        public String toString() {
+            return "sorted index " + condition;
+        }
+    }
+
+    /**
+     * @param access     index whose ids are read, or null to scan all the entities
+     * @param probes     hash index entries the ids must also be in
+     * @param matches    all the conditions, checked on the entities
+     * @param conditions number of the conditions
+     * @param estimate   ids of the access, or -1 if they were not counted
+     */
+    record Plan<T>(Access access, List<HashAccess> probes, Predicate<T> matches, int limit, int conditions,
+                   long estimate) {
+
+        @Override
+        public String toString() {
+            final var text = new StringBuilder(access == null ? "parallel scan" : access.toString());
+            if (access != null && estimate >= 0) {
+                text.append(" (").append(estimate).append(" ids)");
+            }
+            for (var probe : probes) {
+                text.append(", probe ").append(probe);
+            }
+            return text.append(", check ").append(conditions).append(conditions == 1 ? " condition" : " conditions")
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,430 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.DaoMetrics.Operation;
+import clear.solutions.test.assignment.model.User;
+import clear.solutions.test.assignment.persistence.Recoverable;
+import clear.solutions.test.assignment.persistence.WriteAheadLog;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * User dao split into independent {@link UserDaoImpl} shards, each with its own map and birth date
+ * index, enabled with {@code user.storage=sharded}. Only the email index is shared, so unique
+ * emails hold across the shards.
+ * <p>
+ * Ids are handed out in blocks of {@code blockSize} taken from a global block sequence, so writers
+ * touch the global sequence once per block. Block {@code b} holds the ids
+ * {@code b * blockSize + 1 .. (b + 1) * blockSize} and belongs to shard {@code b % shards}, which
+ * routes an id to its shard without a lookup. A new user takes its id from the current block of a
+ * random allocator, there are as many allocators as shards.
+ * <p>
+ * Range, birthday and {@link Query} queries scan the shards in parallel on the common fork-join pool and merge
+ * their results in the order of the query.
+ */
+@Component
+@ConditionalOnProperty(prefix = "user", name = "storage", havingValue = "sharded")
+public class ShardedUserDao implements UserDao, Recoverable<User> {
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    private static final Comparator<User> BIRTH_DATE_ORDER = Comparator.comparing(User::getBirthDate)
+            .thenComparing(User::getId);
+
+    private static final Comparator<User> ID_ORDER = Comparator.comparing(User::getId);
+
+    private final UserDaoImpl[] shards;
+    private final IdBlock[] allocators;
+    private final int blockSize;
+    private final DaoMetrics metrics;
+    // number of blocks handed out, ids up to blocks * blockSize may be taken
+    private final AtomicLong blocks = new AtomicLong();
+
+    @Autowired
+    public ShardedUserDao(UserConfigurationProperties properties, DaoMetrics metrics) {
+        this(properties.getShards(), DEFAULT_BLOCK_SIZE, properties.getUniqueEmail(), metrics);
+    }
+
+    public ShardedUserDao(int shards) {
+        this(shards, DEFAULT_BLOCK_SIZE, false);
+    }
+
+    public ShardedUserDao(int shards, int blockSize, boolean uniqueEmail) {
+        this(shards, blockSize, uniqueEmail, DaoMetrics.DISABLED);
+    }
+
+    /**
+     * @param metrics timed here, the shards only count their copies
+     */
+    public ShardedUserDao(int shards, int blockSize, boolean uniqueEmail, DaoMetrics metrics) {
+        Assert.isTrue(shards > 0, "shards must be positive");
+        Assert.isTrue(blockSize > 0, "blockSize must be positive");
+        this.blockSize = blockSize;
+        this.metrics = metrics;
+        this.shards = new UserDaoImpl[shards];
+        this.allocators = new IdBlock[shards];
+        final IdIndex<String> emailIndex = IndexStorage.HEAP.newIdIndex(UserDaoImpl::hash);
+        for (int i = 0; i < shards; i++) {
+            this.shards[i] = new UserDaoImpl(new ConcurrentHashMap<>(), IndexStorage.HEAP, emailIndex, uniqueEmail,
+                    metrics.copiesOnly());
+            this.allocators[i] = new IdBlock();
+        }
+    }
+
+    @Override
+    public User save(User entity) {
+        final var started = metrics.start(Operation.SAVE);
+        final var identified = entity.getId() == null ? entity.withId(nextId()) : entity;
+        final var stored = shard(identified.getId()).save(identified);
+        metrics.stop(Operation.SAVE, started);
+        return stored;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        Assert.notNull(id, "id must be not null");
+        final var started = metrics.start(Operation.FIND_BY_ID);
+        final var user = shard(id).findById(id);
+        metrics.stop(Operation.FIND_BY_ID, started);
+        return user;
+    }
+
+    @Override
+    public Optional<User> update(Long id, UnaryOperator<User> mutator) {
+        return update(id, null, mutator);
+    }
+
+    @Override
+    public Optional<User> update(Long id, Long expectedVersion, UnaryOperator<User> mutator) {
+        Assert.notNull(id, "id must be not null");
+        final var started = metrics.start(Operation.UPDATE);
+        final var updated = shard(id).update(id, expectedVersion, mutator);
+        metrics.stop(Operation.UPDATE, started);
+        return updated;
+    }
+
+    @Override
+    public Optional<User> removeIfPresent(Long id) {
+        return removeIfPresent(id, null);
+    }
+
+    @Override
+    public Optional<User> removeIfPresent(Long id, Long expectedVersion) {
+        Assert.notNull(id, "id must be not null");
+        final var started = metrics.start(Operation.REMOVE);
+        final var removed = shard(id).removeIfPresent(id, expectedVersion);
+        metrics.stop(Operation.REMOVE, started);
+        return removed;
+    }
+
+    @Override
+    public boolean undelete(User entity) {
+        Assert.notNull(entity.getId(), "id must be not null");
+        final var started = metrics.start(Operation.SAVE);
+        final var undeleted = shard(entity.getId()).undelete(entity);
+        metrics.stop(Operation.SAVE, started);
+        return undeleted;
+    }
+
+    @Override
+    public void addListener(EntityListener<User> listener) {
+        for (var shard : shards) {
+            shard.addListener(listener);
+        }
+    }
+
+    @Override
+    public void deleteAll() {
+        for (var shard : shards) {
+            shard.deleteAll();
+        }
+    }
+
+    @Override
+    public void deleteById(Long userId) {
+        Assert.notNull(userId, "id must be not null");
+        final var started = metrics.start(Operation.REMOVE);
+        shard(userId).deleteById(userId);
+        metrics.stop(Operation.REMOVE, started);
+    }
+
+    @Override
+    public long countAll() {
+        var count = 0L;
+        for (var shard : shards) {
+            count += shard.countAll();
+        }
+        return count;
+    }
+
+    @Override
+    public List<User> findByBirthDateRange(final LocalDate from, final LocalDate to) {
+        final var started = metrics.start(Operation.FIND_BY_BIRTH_DATE_RANGE);
+        final var users = merge(scan(shard -> shard.findByBirthDateRange(from, to)), Integer.MAX_VALUE, BIRTH_DATE_ORDER);
+        metrics.stop(Operation.FIND_BY_BIRTH_DATE_RANGE, started);
+        metrics.recordRangeSize(users.size());
+        return users;
+    }
+
+    /**
+     * Merges the shards lazily, without scanning them in parallel, so the stream keeps reading
+     * only as far as it is consumed.
+     */
+    @Override
+    public Stream<User> streamByBirthDateRange(final LocalDate from, final LocalDate to) {
+        final var iterators = new ArrayList<Iterator<User>>(shards.length);
+        for (var shard : shards) {
+            iterators.add(shard.streamByBirthDateRange(from, to).iterator());
+        }
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(new MergingIterator(iterators, BIRTH_DATE_ORDER),
+                Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    /**
+     * Takes the page of every shard and merges them, keeping the first {@code limit} users.
+     */
+    @Override
+    public List<User> findByBirthDateRange(final LocalDate from, final LocalDate to, final BirthDateKey after, final int limit) {
+        final var started = metrics.start(Operation.FIND_BY_BIRTH_DATE_RANGE);
+        final var users = merge(scan(shard -> shard.findByBirthDateRange(from, to, after, limit)), limit, BIRTH_DATE_ORDER);
+        metrics.stop(Operation.FIND_BY_BIRTH_DATE_RANGE, started);
+        metrics.recordRangeSize(users.size());
+        return users;
+    }
+
+    @Override
+    public long deleteByBirthDateRange(final LocalDate from, final LocalDate to) {
+        final var started = metrics.start(Operation.DELETE_BY_BIRTH_DATE_RANGE);
+        final var deleted = scan(shard -> shard.deleteByBirthDateRange(from, to)).stream()
+                .mapToLong(Long::longValue)
+                .sum();
+        metrics.stop(Operation.DELETE_BY_BIRTH_DATE_RANGE, started);
+        return deleted;
+    }
+
+    @Override
+    public List<User> findByBirthday(final LocalDate from, final int days, final Long afterId, final int limit) {
+        final var started = metrics.start(Operation.FIND_BY_BIRTHDAY);
+        final var users = merge(scan(shard -> shard.findByBirthday(from, days, afterId, limit)), limit,
+                Comparator.comparing((User user) -> user.nextBirthday(from)).thenComparing(User::getId));
+        metrics.stop(Operation.FIND_BY_BIRTHDAY, started);
+        return users;
+    }
+
+    @Override
+    public List<User> findByEmail(final String email) {
+        final var started = metrics.start(Operation.FIND_BY_EMAIL);
+        final var users = new ArrayList<User>();
+        for (var shard : shards) {
+            users.addAll(shard.findByEmail(email));
+        }
+        users.sort(ID_ORDER);
+        metrics.stop(Operation.FIND_BY_EMAIL, started);
+        return users;
+    }
+
+    @Override
+    public List<User> findByPhone(final String phone) {
+        final var started = metrics.start(Operation.FIND_BY_PHONE);
+        final var users = new ArrayList<User>();
+        for (var shard : shards) {
+            users.addAll(shard.findByPhone(phone));
+        }
+        users.sort(ID_ORDER);
+        metrics.stop(Operation.FIND_BY_PHONE, started);
+        return users;
+    }
+
+    /**
+     * Plans and runs the query on every shard in parallel, each from its own indexes.
+     */
+    @Override
+    public List<User> find(final Query<User> query) {
+        Assert.notNull(query, "query must be not null");
+        final var started = metrics.start(Operation.FIND_BY_QUERY);
+        final var users = merge(scan(shard -> shard.find(query)), query.getLimit(), ID_ORDER);
+        metrics.stop(Operation.FIND_BY_QUERY, started);
+        return users;
+    }
+
+    @Override
+    public void restore(User entity) {
+        Assert.notNull(entity.getId(), "id must be not null");
+        reserveBlocks(blockOf(entity.getId()) + 1);
+        shard(entity.getId()).restore(entity);
+    }
+
+    @Override
+    public void restoreDeletion(Long id) {
+        shard(id).restoreDeletion(id);
+    }
+
+    @Override
+    public void restoreSequence(long sequence) {
+        reserveBlocks(Math.ceilDiv(sequence, blockSize));
+    }
+
+    /**
+     * Pauses the writes of every shard, taking their checkpoint locks in shard order while a
+     * write holds the lock of a single shard.
+     *
+     * @return the end of the last block handed out, no id above it is taken
+     */
+    @Override
+    public long checkpoint(Runnable action) {
+        final var sequence = new long[1];
+        checkpoint(0, () -> {
+            action.run();
+            sequence[0] = blocks.get() * blockSize;
+        });
+        return sequence[0];
+    }
+
+    /**
+     * Walks the users of every shard merged in birth date order.
+     */
+    @Override
+    public Iterator<User> snapshotIterator() {
+        final var iterators = new ArrayList<Iterator<User>>(shards.length);
+        for (var shard : shards) {
+            iterators.add(shard.snapshotIterator());
+        }
+        return new MergingIterator(iterators, BIRTH_DATE_ORDER);
+    }
+
+    @Override
+    public void setWriteAheadLog(WriteAheadLog<User> writeAheadLog) {
+        for (var shard : shards) {
+            shard.setWriteAheadLog(writeAheadLog);
+        }
+    }
+
+    private void checkpoint(int shard, Runnable action) {
+        if (shard == shards.length) {
+            action.run();
+            return;
+        }
+        shards[shard].checkpoint(() -> checkpoint(shard + 1, action));
+    }
+
+    private UserDaoImpl shard(long id) {
+        // ids below 1 are never handed out, any shard answers that they are absent
+        return shards[(int) Math.floorMod(blockOf(id), (long) shards.length)];
+    }
+
+    private long blockOf(long id) {
+        return Math.floorDiv(id - 1, (long) blockSize);
+    }
+
+    private long nextId() {
+        final var allocator = allocators[ThreadLocalRandom.current().nextInt(allocators.length)];
+        allocator.lock.lock();
+        try {
+            if (allocator.next == allocator.end) {
+                final var block = blocks.getAndIncrement();
+                allocator.next = block * blockSize + 1;
+                allocator.end = allocator.next + blockSize;
+            }
+            return allocator.next++;
+        } finally {
+            allocator.lock.unlock();
+        }
+    }
+
+    private void reserveBlocks(long count) {
+        // read first, restores mostly land in blocks already reserved
+        if (blocks.get() < count) {
+            blocks.accumulateAndGet(count, Math::max);
+        }
+    }
+
+    /**
+     * Results of every shard, computed in parallel and listed in shard order.
+     */
+    private <R> List<R> scan(Function<UserDaoImpl, R> scan) {
+        return Arrays.stream(shards).parallel().map(scan).toList();
+    }
+
+    private static List<User> merge(List<List<User>> sorted, int limit, Comparator<User> order) {
+        final var iterators = new ArrayList<Iterator<User>>(sorted.size());
+        var size = 0;
+        for (var users : sorted) {
+            iterators.add(users.iterator());
+            size += users.size();
+        }
+        final var merged = new ArrayList<User>(Math.min(size, limit));
+        final var iterator = new MergingIterator(iterators, order);
+        while (merged.size() < limit && iterator.hasNext()) {
+            merged.add(iterator.next());
+        }
+        return merged;
+    }
+
+    /**
+     * Current block of an allocator, empty until its first id.
+     */
+    private static final class IdBlock {
+        private final Lock lock = new ReentrantLock();
+        private long next;
+        private long end;
+    }
+
+    /**
+     * Merges iterators sorted in the order into one in the same order.
+     */
+    private static final class MergingIterator implements Iterator<User> {
+        private final PriorityQueue<Head> heads;
+
+        MergingIterator(List<Iterator<User>> iterators, Comparator<User> order) {
+            this.heads = new PriorityQueue<>(Math.max(1, iterators.size()),
+                    Comparator.comparing(Head::user, order));
+            for (var iterator : iterators) {
+                if (iterator.hasNext()) {
+                    heads.add(new Head(iterator.next(), iterator));
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return !heads.isEmpty();
+        }
+
+        @Override
+        public User next() {
+            final var head = heads.poll();
+            if (head == null) {
+                throw new NoSuchElementException();
+            }
+            if (head.rest().hasNext()) {
+                heads.add(new Head(head.rest().next(), head.rest()));
+            }
+            return head.user();
+        }
+
+        private record Head(User user, Iterator<User> rest) {
+        }
+    }
+}
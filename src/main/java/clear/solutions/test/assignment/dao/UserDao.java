@@ -4,7 +4,46 @@ import clear.solutions.test.assignment.model.User;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserDao extends Dao<User> {
     List<User> findByBirthDateRange(final LocalDate from, final LocalDate to);
+
+    Stream<User> streamByBirthDateRange(final LocalDate from, final LocalDate to);
+
+    /**
+     * Keyset page of a birth date range ordered by birth date and id.
+     *
+     * @param after key of the last user of the previous page, or null for the first page
+     * @param limit max number of users to return
+     */
+    List<User> findByBirthDateRange(final LocalDate from, final LocalDate to, final BirthDateKey after, final int limit);
+
+    /**
+     * Deletes the users of a birth date range one by one, without locking the range. Users saved
+     * into the range while it runs may or may not be deleted.
+     *
+     * @return number of deleted users
+     */
+    long deleteByBirthDateRange(final LocalDate from, final LocalDate to);
+
+    /**
+     * Users with a birthday on one of {@code days} consecutive dates starting at {@code from},
+     * whatever their birth year, ordered by the date of the birthday and id. The dates span at most
+     * a year. See {@link User#nextBirthday} for the birthdays of users born on February 29.
+     *
+     * @param afterId only users with a greater id are returned for the first date, null for all of them
+     * @param limit   max number of users to return
+     */
+    List<User> findByBirthday(final LocalDate from, final int days, final Long afterId, final int limit);
+
+    /**
+     * Users with the email, compared case-insensitively.
+     */
+    List<User> findByEmail(final String email);
+
+    /**
+     * Users with the phone, compared by its digits only, see {@link User#phoneKey}.
+     */
+    List<User> findByPhone(final String phone);
 }
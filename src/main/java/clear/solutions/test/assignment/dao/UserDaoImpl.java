@@ -1,23 +1,322 @@
 package clear.solutions.test.assignment.dao;
 
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.DaoMetrics.Operation;
 import clear.solutions.test.assignment.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
 import java.time.LocalDate;
+import java.time.Month;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 @Component
+@ConditionalOnProperty(prefix = "user", name = "storage", havingValue = "heap", matchIfMissing = true)
 public class UserDaoImpl extends AbstractDao<User> implements UserDao {
+    // the birthday index keys the days of a leap year, so February 29 has its own
+    private static final int FEBRUARY_29 = dayOfLeapYear(LocalDate.of(2000, Month.FEBRUARY, 29));
+
+    // the sorted index of the birth dates declared on the user, kept by the abstract dao
+    private final EntityIndexes.SortedIndex<User> birthDateIndex;
+    // ids by the zero based day of the month and day of the birth date in a leap year, a query reads
+    // only the days of its dates
+    private final IdIndex<Integer> birthdayIndex;
+    // normalized email to ids
+    private final IdIndex<String> emailIndex;
+    // digits of the phone to ids
+    private final IdIndex<String> phoneIndex;
+    private final boolean uniqueEmail;
+
+    public UserDaoImpl() {
+        this(new ConcurrentHashMap<>(), false);
+    }
+
+    @Autowired
+    public UserDaoImpl(UserConfigurationProperties properties, DaoMetrics metrics) {
+        this(new ConcurrentHashMap<>(), properties.getUniqueEmail(), metrics);
+    }
+
+    protected UserDaoImpl(Map<Long, User> entities, boolean uniqueEmail) {
+        this(entities, uniqueEmail, DaoMetrics.DISABLED);
+    }
+
+    protected UserDaoImpl(Map<Long, User> entities, boolean uniqueEmail, DaoMetrics metrics) {
+        this(entities, IndexStorage.HEAP, IndexStorage.HEAP.newIdIndex(UserDaoImpl::hash), uniqueEmail, metrics);
+    }
+
+    /**
+     * @param indexStorage where the secondary indexes keep their ids
+     * @param emailIndex   index of the emails, may be shared with other daos to keep emails unique
+     *                     across all of them; {@link #findByEmail} returns only the users of this one
+     */
+    UserDaoImpl(Map<Long, User> entities, IndexStorage indexStorage, IdIndex<String> emailIndex, boolean uniqueEmail,
+                DaoMetrics metrics) {
+        this(entities, EntityIndexes.of(User.class, indexStorage), indexStorage, emailIndex, uniqueEmail, metrics);
+    }
+
+    private UserDaoImpl(Map<Long, User> entities, EntityIndexes<User> indexes, IndexStorage indexStorage,
+                        IdIndex<String> emailIndex, boolean uniqueEmail, DaoMetrics metrics) {
+        super(entities, metrics, indexes);
+        this.birthDateIndex = indexes.sortedIndex("birthDate");
+        this.birthdayIndex = indexStorage.newGroupedIdIndex();
+        this.emailIndex = emailIndex;
+        this.phoneIndex = indexStorage.newIdIndex(UserDaoImpl::hash);
+        this.uniqueEmail = uniqueEmail;
+    }
+
+    /**
+     * 64-bit FNV-1a hash of the characters of an index key, for the indexes keeping ids off the heap.
+     */
+    static long hash(String key) {
+        var hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash = (hash ^ key.charAt(i)) * 0x100000001B3L;
+        }
+        return hash;
+    }
 
     @Override
     public List<User> findByBirthDateRange(final LocalDate from, final LocalDate to) {
+        final var started = metrics.start(Operation.FIND_BY_BIRTH_DATE_RANGE);
+        final var users = this.streamByBirthDateRange(from, to).toList();
+        metrics.stop(Operation.FIND_BY_BIRTH_DATE_RANGE, started);
+        metrics.recordRangeSize(users.size());
+        return users;
+    }
+
+    @Override
+    public Stream<User> streamByBirthDateRange(final LocalDate from, final LocalDate to) {
+        Assert.notNull(from, "from must be not null");
+        Assert.notNull(to, "to must be not null");
+        return resolve(this.birthDateIndex.range(from, to));
+    }
+
+    @Override
+    public List<User> findByBirthDateRange(final LocalDate from, final LocalDate to, final BirthDateKey after, final int limit) {
+        Assert.notNull(from, "from must be not null");
+        Assert.notNull(to, "to must be not null");
+        Assert.isTrue(limit > 0, "limit must be positive");
+        final var started = metrics.start(Operation.FIND_BY_BIRTH_DATE_RANGE);
+        final var lowest = IndexKey.lowest(from);
+        final var highest = IndexKey.highest(to);
+        final var afterKey = after == null ? null : new IndexKey(after.getBirthDate(), after.getId());
+        final List<User> users;
+        if (afterKey != null && afterKey.compareTo(highest) >= 0) {
+            users = List.of();
+        } else {
+            final var keys = afterKey == null || afterKey.compareTo(lowest) < 0
+                    ? this.birthDateIndex.keys(lowest, true, highest)
+                    : this.birthDateIndex.keys(afterKey, false, highest);
+            users = resolve(keys).limit(limit).toList();
+        }
+        metrics.stop(Operation.FIND_BY_BIRTH_DATE_RANGE, started);
+        metrics.recordRangeSize(users.size());
+        return users;
+    }
+
+    @Override
+    public long deleteByBirthDateRange(final LocalDate from, final LocalDate to) {
         Assert.notNull(from, "from must be not null");
         Assert.notNull(to, "to must be not null");
-        return this.entities.values().stream()
-                .filter(user -> user.getBirthDate().isAfter(from) || user.getBirthDate().equals(from))
-                .filter(user -> user.getBirthDate().isBefore(to) || user.getBirthDate().equals(to))
-                .collect(Collectors.toList());
+        final var started = metrics.start(Operation.DELETE_BY_BIRTH_DATE_RANGE);
+        try {
+            var deleted = 0L;
+            for (var key : this.birthDateIndex.range(from, to)) {
+                // the user may have moved out of the range since the key was read
+                if (deleteIf(key.getId(), user -> key.matches(user.getBirthDate()))) {
+                    deleted++;
+                }
+            }
+            return deleted;
+        } finally {
+            metrics.stop(Operation.DELETE_BY_BIRTH_DATE_RANGE, started);
+        }
+    }
+
+    /**
+     * Walks the dates one by one and reads the ids of each in order, a page at a time.
+     */
+    @Override
+    public List<User> findByBirthday(final LocalDate from, final int days, final Long afterId, final int limit) {
+        Assert.notNull(from, "from must be not null");
+        Assert.isTrue(days > 0, "days must be positive");
+        Assert.isTrue(limit > 0, "limit must be positive");
+        final var started = metrics.start(Operation.FIND_BY_BIRTHDAY);
+        // a year at most, so no birthday is returned twice
+        final var until = from.plusDays(days);
+        final var end = until.isAfter(from.plusYears(1)) ? from.plusYears(1) : until;
+        final var users = new ArrayList<User>();
+        for (var date = from; date.isBefore(end) && users.size() < limit; date = date.plusDays(1)) {
+            var after = date.equals(from) && afterId != null ? afterId : 0L;
+            long[] ids;
+            do {
+                ids = birthdayIds(date, after, limit);
+                for (int i = 0; i < ids.length && users.size() < limit; i++) {
+                    after = ids[i];
+                    final var user = this.entities.get(ids[i]);
+                    // the index may briefly lag behind a concurrent save of the same user
+                    if (user != null && date.equals(user.nextBirthday(date))) {
+                        users.add(user);
+                    }
+                }
+            } while (ids.length == limit && users.size() < limit);
+        }
+        metrics.stop(Operation.FIND_BY_BIRTHDAY, started);
+        return users;
+    }
+
+    @Override
+    public List<User> findByEmail(final String email) {
+        Assert.notNull(email, "email must be not null");
+        final var started = metrics.start(Operation.FIND_BY_EMAIL);
+        final var normalized = normalize(email);
+        final var users = Arrays.stream(this.emailIndex.ids(normalized, 0L, Integer.MAX_VALUE))
+                .mapToObj(this.entities::get)
+                // the index may briefly lag behind a concurrent save of the same user
+                .filter(user -> user != null && normalized.equals(normalize(user.getEmail())))
+                .toList();
+        metrics.stop(Operation.FIND_BY_EMAIL, started);
+        return users;
+    }
+
+    @Override
+    public List<User> findByPhone(final String phone) {
+        Assert.notNull(phone, "phone must be not null");
+        final var started = metrics.start(Operation.FIND_BY_PHONE);
+        final var key = User.phoneKey(phone);
+        final var users = key == null
+                ? List.<User>of()
+                : Arrays.stream(this.phoneIndex.ids(key, 0L, Integer.MAX_VALUE))
+                .mapToObj(this.entities::get)
+                // the index may briefly lag behind a concurrent save of the same user
+                .filter(user -> user != null && key.equals(User.phoneKey(user.getPhone())))
+                .toList();
+        metrics.stop(Operation.FIND_BY_PHONE, started);
+        return users;
+    }
+
+    /**
+     * Walks the users in birth date order, so a restore inserts into the index in ascending
+     * order instead of at random positions.
+     */
+    @Override
+    public Iterator<User> snapshotIterator() {
+        return resolve(this.birthDateIndex.keys()).iterator();
+    }
+
+    private Stream<User> resolve(final Iterable<IndexKey> keys) {
+        return StreamSupport.stream(keys.spliterator(), false)
+                .map(key -> {
+                    final var user = this.entities.get(key.getId());
+                    // the index may briefly lag behind a concurrent save of the same user
+                    return user != null && key.matches(user.getBirthDate()) ? user : null;
+                })
+                .filter(Objects::nonNull);
+    }
+
+    /**
+     * Ids of the day of the date, merged with the ones of February 29 on February 28 of a year that
+     * is not a leap year.
+     */
+    private long[] birthdayIds(final LocalDate date, final long after, final int limit) {
+        final var ids = this.birthdayIndex.ids(dayOfLeapYear(date), after, limit);
+        if (date.isLeapYear() || dayOfLeapYear(date) != FEBRUARY_29 - 1) {
+            return ids;
+        }
+        return LongStream.concat(Arrays.stream(ids), Arrays.stream(this.birthdayIndex.ids(FEBRUARY_29, after, limit)))
+                .sorted()
+                .limit(limit)
+                .toArray();
+    }
+
+    /**
+     * Zero based day of the month and day of the date in a leap year.
+     */
+    private static int dayOfLeapYear(final LocalDate date) {
+        return date.getMonth().firstDayOfYear(true) + date.getDayOfMonth() - 2;
+    }
+
+    @Override
+    protected void onSave(User previous, User current) {
+        // claimed first, a duplicate leaves both the entity and the indexes unchanged
+        indexEmail(previous, current, uniqueEmail);
+        indexBirthday(previous, current);
+        indexPhone(previous, current);
+    }
+
+    @Override
+    protected void onRestore(User previous, User current) {
+        indexEmail(previous, current, false);
+        indexBirthday(previous, current);
+        indexPhone(previous, current);
+    }
+
+    @Override
+    protected void onDelete(User previous) {
+        birthdayIndex.remove(dayOfLeapYear(previous.getBirthDate()), previous.getId());
+        emailIndex.remove(normalize(previous.getEmail()), previous.getId());
+        final var phone = User.phoneKey(previous.getPhone());
+        if (phone != null) {
+            phoneIndex.remove(phone, previous.getId());
+        }
+    }
+
+    private void indexBirthday(User previous, User current) {
+        final var day = dayOfLeapYear(current.getBirthDate());
+        if (previous != null) {
+            final var previousDay = dayOfLeapYear(previous.getBirthDate());
+            if (previousDay != day) {
+                birthdayIndex.remove(previousDay, previous.getId());
+            }
+        }
+        birthdayIndex.add(day, current.getId(), false);
+    }
+
+    /**
+     * Runs under the lock of the user's id and then takes the lock of the email in the index, never
+     * the other way round, so concurrent registrations of one email serialize on the email alone.
+     */
+    private void indexEmail(User previous, User current, boolean unique) {
+        final var email = normalize(current.getEmail());
+        final var id = current.getId();
+        if (!this.emailIndex.add(email, id, unique)) {
+            throw new DuplicateEmailException(current.getEmail());
+        }
+        if (previous != null) {
+            final var previousEmail = normalize(previous.getEmail());
+            if (!previousEmail.equals(email)) {
+                emailIndex.remove(previousEmail, id);
+            }
+        }
+    }
+
+    private void indexPhone(User previous, User current) {
+        final var phone = User.phoneKey(current.getPhone());
+        final var previousPhone = previous == null ? null : User.phoneKey(previous.getPhone());
+        if (Objects.equals(phone, previousPhone)) {
+            return;
+        }
+        if (phone != null) {
+            this.phoneIndex.add(phone, current.getId(), false);
+        }
+        if (previousPhone != null) {
+            phoneIndex.remove(previousPhone, current.getId());
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.toLowerCase(Locale.ROOT);
     }
 }
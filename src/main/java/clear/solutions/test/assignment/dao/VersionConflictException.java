@@ -0,0 +1,15 @@
+package clear.solutions.test.assignment.dao;
+
+import java.io.Serial;
+
+/**
+ * Thrown by a conditional write when the stored entity has another version than the expected one.
+ */
+public class VersionConflictException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    public VersionConflictException(Long id, long expectedVersion, long version) {
+        super("Entity %d has version %d, expected %d".formatted(id, version, expectedVersion));
+    }
+}
@@ -0,0 +1,57 @@
+package clear.solutions.test.assignment.dto;
+
+import clear.solutions.test.assignment.model.BatchOperation;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+public class BatchOperationDto {
+    @NotNull(message = "Operation type must be present")
+    private BatchOperation.Type type;
+    private Long userId;
+    @Valid
+    private CreateUserDto user;
+    @Valid
+    private UserContactsDto contacts;
+
+    public BatchOperation.Type getType() {
+        return type;
+    }
+
+    public void setType(BatchOperation.Type type) {
+        this.type = type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public void setUserId(Long userId) {
+        this.userId = userId;
+    }
+
+    public CreateUserDto getUser() {
+        return user;
+    }
+
+    public void setUser(CreateUserDto user) {
+        this.user = user;
+    }
+
+    public UserContactsDto getContacts() {
+        return contacts;
+    }
+
+    public void setContacts(UserContactsDto contacts) {
+        this.contacts = contacts;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOperationDto{" +
+                "type=" + type +
+                ", userId=" + userId +
+                ", user=" + user +
+                ", contacts=" + contacts +
+                '}';
+    }
+}
@@ -1,7 +1,6 @@
 package clear.solutions.test.assignment.dto;
 
-import clear.solutions.test.assignment.constants.ApiConstants;
-import jakarta.validation.constraints.Email;
+import clear.solutions.test.assignment.validation.ValidEmail;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 
@@ -9,7 +8,7 @@ import java.time.LocalDate;
 
 public class CreateUserDto {
     @NotNull(message = "Email must be present")
-    @Email(regexp = ApiConstants.EMAIL_REGEX, message = "Invalid email format")
+    @ValidEmail
     private String email;
     @NotBlank(message = "First name must be present and contains at least 1 symbol")
     private String firstName;
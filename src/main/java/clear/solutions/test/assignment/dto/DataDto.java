@@ -1,5 +1,6 @@
 package clear.solutions.test.assignment.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotNull;
 
@@ -7,6 +8,8 @@ public class DataDto<T> {
     @NotNull(message = "Data must be present")
     @Valid
     private T data;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String nextCursor;
 
     public static <T> DataDto<T> of(T data) {
         final var dataDto = new DataDto<T>();
@@ -14,6 +17,12 @@ public class DataDto<T> {
         return dataDto;
     }
 
+    public static <T> DataDto<T> of(T data, String nextCursor) {
+        final var dataDto = DataDto.of(data);
+        dataDto.setNextCursor(nextCursor);
+        return dataDto;
+    }
+
     public T getData() {
         return data;
     }
@@ -21,4 +30,12 @@ public class DataDto<T> {
     public void setData(T data) {
         this.data = data;
     }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
 }
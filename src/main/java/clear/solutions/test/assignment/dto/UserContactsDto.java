@@ -1,10 +1,9 @@
 package clear.solutions.test.assignment.dto;
 
-import clear.solutions.test.assignment.constants.ApiConstants;
-import jakarta.validation.constraints.Email;
+import clear.solutions.test.assignment.validation.ValidEmail;
 
 public class UserContactsDto {
-    @Email(regexp = ApiConstants.EMAIL_REGEX, message = "Invalid email format")
+    @ValidEmail
     private String email;
     private String address;
     private String phone;
@@ -1,10 +1,13 @@
 package clear.solutions.test.assignment.exception;
 
+import java.io.Serial;
 import java.util.Map;
 
 public class ApiException extends RuntimeException {
+    @Serial
+    private static final long serialVersionUID = 1L;
     private final Error error;
-    private final Map<String, String> errorDetails;
+    private final transient Map<String, String> errorDetails;
 
     public ApiException(Error error) {
         this.error = error;
@@ -5,7 +5,11 @@ import org.springframework.http.HttpStatus;
 public enum Error {
     BAD_REQUEST(HttpStatus.BAD_REQUEST, "Bad request, missing or invalid request arguments"),
     INVALID_AGE(HttpStatus.UNPROCESSABLE_ENTITY, "Age is below the minimum"),
-    USER_NOT_FOUND(HttpStatus.NOT_FOUND, "User not found");
+    USER_NOT_FOUND(HttpStatus.NOT_FOUND, "User not found"),
+    EMAIL_ALREADY_EXISTS(HttpStatus.CONFLICT, "User with this email already exists"),
+    VERSION_MISMATCH(HttpStatus.PRECONDITION_FAILED, "User was modified, If-Match does not match its current version"),
+    BATCH_ROLLED_BACK(HttpStatus.FAILED_DEPENDENCY, "Not applied, another operation of the atomic batch failed"),
+    ROLLBACK_CONFLICT(HttpStatus.CONFLICT, "Applied and not rolled back, the user was changed by another request since");
 
     private final HttpStatus httpStatus;
     private final String reason;
@@ -0,0 +1,31 @@
+package clear.solutions.test.assignment.exception;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Counts of the errors returned to clients, by {@link Error}. Operations of a batch count when they
+ * fail on their own, not when they are rolled back because of another one.
+ */
+@Component
+public class ErrorMetrics {
+    private final Map<Error, Counter> counters = new EnumMap<>(Error.class);
+
+    public ErrorMetrics(MeterRegistry registry) {
+        for (var error : Error.values()) {
+            counters.put(error, Counter.builder("user.api.errors")
+                    .description("Errors returned to clients")
+                    .tag("error", error.name())
+                    .tag("status", String.valueOf(error.getHttpStatus().value()))
+                    .register(registry));
+        }
+    }
+
+    public void count(Error error) {
+        counters.get(error).increment();
+    }
+}
@@ -3,6 +3,7 @@ package clear.solutions.test.assignment.exception;
 import clear.solutions.test.assignment.dto.ErrorResponse;
 import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindException;
@@ -20,6 +21,12 @@ import java.util.stream.Collectors;
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
+    private final ErrorMetrics errorMetrics;
+
+    public GlobalExceptionHandler(ErrorMetrics errorMetrics) {
+        this.errorMetrics = errorMetrics;
+    }
+
     @ExceptionHandler(BindException.class)
     public ResponseEntity<?> handleBindException(BindException exception,
                                                  HttpServletRequest request) {
@@ -27,13 +34,14 @@ public class GlobalExceptionHandler {
                 .collect(Collectors.toUnmodifiableMap(
                         objectError -> ((FieldError) objectError).getField(),
                         DefaultMessageSourceResolvable::getDefaultMessage));
+        errorMetrics.count(Error.BAD_REQUEST);
         final var errorResponse = new ErrorResponse();
         errorResponse.setTimestamp(LocalDateTime.now());
         errorResponse.setStatus(Error.BAD_REQUEST.getHttpStatus().value());
         errorResponse.setReason(Error.BAD_REQUEST.getReason());
         errorResponse.setDetails(details);
         errorResponse.setPath(getPath(request));
-        return ResponseEntity.status(400).body(errorResponse);
+        return ResponseEntity.status(400).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 
     @ExceptionHandler(MissingServletRequestParameterException.class)
@@ -43,26 +51,28 @@ public class GlobalExceptionHandler {
                 .map(MissingServletRequestParameterException::getBody)
                 .map(ProblemDetail::getDetail)
                 .orElse("Missing required param");
+        errorMetrics.count(Error.BAD_REQUEST);
         final var errorResponse = new ErrorResponse();
         errorResponse.setTimestamp(LocalDateTime.now());
         errorResponse.setStatus(Error.BAD_REQUEST.getHttpStatus().value());
         errorResponse.setReason(Error.BAD_REQUEST.getReason());
         errorResponse.setDetails(Map.of(exception.getParameterName(), detail));
         errorResponse.setPath(getPath(request));
-        return ResponseEntity.status(400).body(errorResponse);
+        return ResponseEntity.status(400).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 
     @ExceptionHandler(ApiException.class)
     public ResponseEntity<?> handleApiException(ApiException exception,
                                                 HttpServletRequest request) {
         final var error = exception.getError();
+        errorMetrics.count(error);
         final var errorResponse = new ErrorResponse();
         errorResponse.setTimestamp(LocalDateTime.now());
         errorResponse.setStatus(error.getHttpStatus().value());
         errorResponse.setReason(error.getReason());
         errorResponse.setPath(getPath(request));
         errorResponse.setDetails(exception.getErrorDetails());
-        return ResponseEntity.status(error.getHttpStatus().value()).body(errorResponse);
+        return ResponseEntity.status(error.getHttpStatus().value()).contentType(MediaType.APPLICATION_JSON).body(errorResponse);
     }
 
     private String getPath(final HttpServletRequest request) {
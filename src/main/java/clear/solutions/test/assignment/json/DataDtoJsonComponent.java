@@ -0,0 +1,111 @@
+package clear.solutions.test.assignment.json;
+
+import clear.solutions.test.assignment.dto.DataDto;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.List;
+
+/**
+ * Streaming codecs of the {@link DataDto} envelope. A list of data is written with the serializer
+ * of its element class looked up once per run of elements of that class, rather than per element.
+ * The data of a request body is read by the deserializer of the declared type argument.
+ */
+@JsonComponent
+public class DataDtoJsonComponent {
+    private static final SerializedString DATA = new SerializedString("data");
+    private static final SerializedString NEXT_CURSOR = new SerializedString("nextCursor");
+
+    public static class Serializer extends StdSerializer<DataDto<?>> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() {
+            super(DataDto.class, false);
+        }
+
+        @Override
+        public void serialize(DataDto<?> dataDto, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(dataDto);
+            generator.writeFieldName(DATA);
+            if (dataDto.getData() instanceof List<?> list) {
+                writeList(list, generator, provider);
+            } else {
+                provider.defaultSerializeValue(dataDto.getData(), generator);
+            }
+            if (dataDto.getNextCursor() != null) {
+                generator.writeFieldName(NEXT_CURSOR);
+                generator.writeString(dataDto.getNextCursor());
+            }
+            generator.writeEndObject();
+        }
+
+        private static void writeList(List<?> list, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartArray(list, list.size());
+            Class<?> type = null;
+            JsonSerializer<Object> serializer = null;
+            for (var element : list) {
+                if (element == null) {
+                    provider.defaultSerializeNull(generator);
+                    continue;
+                }
+                if (element.getClass() != type) {
+                    type = element.getClass();
+                    serializer = provider.findTypedValueSerializer(type, true, null);
+                }
+                serializer.serialize(element, generator, provider);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    public static class Deserializer extends ObjectDeserializer<DataDto<Object>> implements ContextualDeserializer {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final transient JsonDeserializer<Object> dataDeserializer;
+
+        public Deserializer() {
+            this(null);
+        }
+
+        private Deserializer(JsonDeserializer<Object> dataDeserializer) {
+            super(DataDto.class);
+            this.dataDeserializer = dataDeserializer;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) throws JsonMappingException {
+            final var dataType = context.getContextualType().containedTypeOrUnknown(0);
+            return new Deserializer(context.findContextualValueDeserializer(dataType, property));
+        }
+
+        @Override
+        protected DataDto<Object> create() {
+            return new DataDto<>();
+        }
+
+        @Override
+        protected void readField(DataDto<Object> target, String field, JsonParser parser, DeserializationContext context) throws IOException {
+            switch (field) {
+                case "data" -> target.setData(parser.hasToken(JsonToken.VALUE_NULL)
+                        ? dataDeserializer.getNullValue(context)
+                        : dataDeserializer.deserialize(parser, context));
+                case "nextCursor" -> target.setNextCursor(readString(parser, context));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+}
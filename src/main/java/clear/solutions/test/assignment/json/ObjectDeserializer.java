@@ -0,0 +1,62 @@
+package clear.solutions.test.assignment.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.io.Serial;
+
+/**
+ * Reads a JSON object field by field into a new instance of {@code T}. Input other than an object
+ * is reported the way the bean deserializer reports it.
+ */
+abstract class ObjectDeserializer<T> extends StdDeserializer<T> {
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    protected ObjectDeserializer(Class<?> type) {
+        super(type);
+    }
+
+    protected abstract T create();
+
+    /**
+     * Reads the value the parser is positioned at, skipping the children of an unknown field.
+     */
+    protected abstract void readField(T target, String field, JsonParser parser, DeserializationContext context) throws IOException;
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        String field;
+        if (parser.isExpectedStartObjectToken()) {
+            field = parser.nextFieldName();
+        } else if (parser.hasToken(JsonToken.FIELD_NAME)) {
+            field = parser.currentName();
+        } else if (parser.hasToken(JsonToken.END_OBJECT)) {
+            field = null;
+        } else {
+            return (T) context.handleUnexpectedToken(handledType(), parser);
+        }
+        final var target = create();
+        for (; field != null; field = parser.nextFieldName()) {
+            parser.nextToken();
+            readField(target, field, parser, context);
+        }
+        return target;
+    }
+
+    /**
+     * Plain strings are read in place, other scalars are coerced by the string deserializer of the
+     * context, which also rejects objects and arrays.
+     */
+    protected static String readString(JsonParser parser, DeserializationContext context) throws IOException {
+        return switch (parser.currentToken()) {
+            case VALUE_STRING -> parser.getText();
+            case VALUE_NULL -> null;
+            default -> context.readValue(parser, String.class);
+        };
+    }
+}
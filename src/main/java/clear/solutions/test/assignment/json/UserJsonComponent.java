@@ -0,0 +1,144 @@
+package clear.solutions.test.assignment.json;
+
+import clear.solutions.test.assignment.dto.CreateUserDto;
+import clear.solutions.test.assignment.dto.UserContactsDto;
+import clear.solutions.test.assignment.model.User;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.BeanProperty;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.ContextualDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import org.springframework.boot.jackson.JsonComponent;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.time.LocalDate;
+
+/**
+ * Streaming codecs of the user payloads. Users are written straight from {@link User}, with the
+ * fields in the order of the constants below and without the null ones, so responses need no copy
+ * of the user. Request bodies are read field by field; values other than plain strings are left to the
+ * deserializers of the object mapper, so the accepted input and its errors stay the same.
+ */
+@JsonComponent
+public class UserJsonComponent {
+    private static final SerializedString ID = new SerializedString("id");
+    private static final SerializedString EMAIL = new SerializedString("email");
+    private static final SerializedString FIRST_NAME = new SerializedString("firstName");
+    private static final SerializedString LAST_NAME = new SerializedString("lastName");
+    private static final SerializedString BIRTH_DATE = new SerializedString("birthDate");
+    private static final SerializedString ADDRESS = new SerializedString("address");
+    private static final SerializedString PHONE = new SerializedString("phone");
+
+    public static class Serializer extends StdSerializer<User> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public Serializer() {
+            super(User.class);
+        }
+
+        @Override
+        public void serialize(User user, JsonGenerator generator, SerializerProvider provider) throws IOException {
+            generator.writeStartObject(user);
+            if (user.getId() != null) {
+                generator.writeFieldName(ID);
+                generator.writeNumber(user.getId());
+            }
+            writeString(generator, EMAIL, user.getEmail());
+            writeString(generator, FIRST_NAME, user.getFirstName());
+            writeString(generator, LAST_NAME, user.getLastName());
+            if (user.getBirthDate() != null) {
+                generator.writeFieldName(BIRTH_DATE);
+                if (provider.isEnabled(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)) {
+                    provider.defaultSerializeValue(user.getBirthDate(), generator);
+                } else {
+                    generator.writeString(user.getBirthDate().toString());
+                }
+            }
+            writeString(generator, ADDRESS, user.getAddress());
+            writeString(generator, PHONE, user.getPhone());
+            generator.writeEndObject();
+        }
+
+        private static void writeString(JsonGenerator generator, SerializableString field, String value) throws IOException {
+            if (value != null) {
+                generator.writeFieldName(field);
+                generator.writeString(value);
+            }
+        }
+    }
+
+    public static class CreateUserDtoDeserializer extends ObjectDeserializer<CreateUserDto> implements ContextualDeserializer {
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final transient JsonDeserializer<Object> birthDateDeserializer;
+
+        public CreateUserDtoDeserializer() {
+            this(null);
+        }
+
+        private CreateUserDtoDeserializer(JsonDeserializer<Object> birthDateDeserializer) {
+            super(CreateUserDto.class);
+            this.birthDateDeserializer = birthDateDeserializer;
+        }
+
+        @Override
+        public JsonDeserializer<?> createContextual(DeserializationContext context, BeanProperty property) throws JsonMappingException {
+            return new CreateUserDtoDeserializer(context.findContextualValueDeserializer(
+                    context.constructType(LocalDate.class), property));
+        }
+
+        @Override
+        protected CreateUserDto create() {
+            return new CreateUserDto();
+        }
+
+        @Override
+        protected void readField(CreateUserDto target, String field, JsonParser parser, DeserializationContext context) throws IOException {
+            switch (field) {
+                case "email" -> target.setEmail(readString(parser, context));
+                case "firstName" -> target.setFirstName(readString(parser, context));
+                case "lastName" -> target.setLastName(readString(parser, context));
+                case "birthDate" -> target.setBirthDate(parser.hasToken(JsonToken.VALUE_NULL)
+                        ? null
+                        : (LocalDate) birthDateDeserializer.deserialize(parser, context));
+                case "address" -> target.setAddress(readString(parser, context));
+                case "phone" -> target.setPhone(readString(parser, context));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    public static class UserContactsDtoDeserializer extends ObjectDeserializer<UserContactsDto> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        public UserContactsDtoDeserializer() {
+            super(UserContactsDto.class);
+        }
+
+        @Override
+        protected UserContactsDto create() {
+            return new UserContactsDto();
+        }
+
+        @Override
+        protected void readField(UserContactsDto target, String field, JsonParser parser, DeserializationContext context) throws IOException {
+            switch (field) {
+                case "email" -> target.setEmail(readString(parser, context));
+                case "address" -> target.setAddress(readString(parser, context));
+                case "phone" -> target.setPhone(readString(parser, context));
+                default -> parser.skipChildren();
+            }
+        }
+    }
+}
@@ -1,16 +1,21 @@
 package clear.solutions.test.assignment.mapper;
 
+import clear.solutions.test.assignment.dto.BatchOperationDto;
+import clear.solutions.test.assignment.dto.BatchResultDto;
 import clear.solutions.test.assignment.dto.CreateUserDto;
 import clear.solutions.test.assignment.dto.UserContactsDto;
-import clear.solutions.test.assignment.dto.UserDto;
+import clear.solutions.test.assignment.model.BatchOperation;
+import clear.solutions.test.assignment.model.BatchResult;
 import clear.solutions.test.assignment.model.User;
 
 public interface UserMapper {
     User toUser(CreateUserDto request);
 
-    void updateUser(User target, CreateUserDto request);
+    User updateUser(User target, CreateUserDto request);
 
-    void patchUser(User target, UserContactsDto userContactsDto);
+    User patchUser(User target, UserContactsDto userContactsDto);
 
-    UserDto toUserDto(User user);
+    BatchOperation toBatchOperation(BatchOperationDto request);
+
+    BatchResultDto toBatchResultDto(BatchOperation operation, BatchResult result);
 }
@@ -1,9 +1,13 @@
 package clear.solutions.test.assignment.mapper;
 
+import clear.solutions.test.assignment.dto.BatchOperationDto;
+import clear.solutions.test.assignment.dto.BatchResultDto;
 import clear.solutions.test.assignment.dto.CreateUserDto;
 import clear.solutions.test.assignment.dto.UserContactsDto;
-import clear.solutions.test.assignment.dto.UserDto;
+import clear.solutions.test.assignment.model.BatchOperation;
+import clear.solutions.test.assignment.model.BatchResult;
 import clear.solutions.test.assignment.model.User;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
 import java.util.Objects;
@@ -13,49 +17,67 @@ public class UserMapperImpl implements UserMapper {
 
     @Override
     public User toUser(final CreateUserDto request) {
-        final var user = new User();
-        user.setEmail(request.getEmail());
-        user.setFirstName(request.getFirstName());
-        user.setLastName(request.getLastName());
-        user.setBirthDate(request.getBirthDate());
-        user.setAddress(request.getAddress());
-        user.setPhone(request.getPhone());
-        return user;
+        return new User(
+                null,
+                request.getEmail(),
+                request.getFirstName(),
+                request.getLastName(),
+                request.getBirthDate(),
+                request.getAddress(),
+                request.getPhone());
     }
 
     @Override
-    public void updateUser(final User target, final CreateUserDto request) {
-        target.setEmail(request.getEmail());
-        target.setFirstName(request.getFirstName());
-        target.setLastName(request.getLastName());
-        target.setBirthDate(request.getBirthDate());
-        target.setAddress(request.getAddress());
-        target.setPhone(request.getPhone());
+    public User updateUser(final User target, final CreateUserDto request) {
+        return new User(
+                target.getId(),
+                request.getEmail(),
+                request.getFirstName(),
+                request.getLastName(),
+                request.getBirthDate(),
+                request.getAddress(),
+                request.getPhone());
     }
 
     @Override
-    public void patchUser(final User target, final UserContactsDto request) {
+    public User patchUser(final User target, final UserContactsDto request) {
+        var patched = target;
         if (Objects.nonNull(request.getEmail())) {
-            target.setEmail(request.getEmail());
+            patched = patched.withEmail(request.getEmail());
         }
         if (Objects.nonNull(request.getAddress())) {
-            target.setAddress(request.getAddress());
+            patched = patched.withAddress(request.getAddress());
         }
         if (Objects.nonNull(request.getPhone())) {
-            target.setPhone(request.getPhone());
+            patched = patched.withPhone(request.getPhone());
         }
+        return patched;
     }
 
     @Override
-    public UserDto toUserDto(final User user) {
-        final var response = new UserDto();
-        response.setId(user.getId());
-        response.setEmail(user.getEmail());
-        response.setFirstName(user.getFirstName());
-        response.setLastName(user.getLastName());
-        response.setBirthDate(user.getBirthDate());
-        response.setAddress(user.getAddress());
-        response.setPhone(user.getPhone());
+    public BatchOperation toBatchOperation(final BatchOperationDto request) {
+        return switch (request.getType()) {
+            case CREATE -> BatchOperation.create(Objects.isNull(request.getUser()) ? null : toUser(request.getUser()));
+            case UPDATE -> BatchOperation.update(request.getUserId(), Objects.isNull(request.getUser()) ? null : toUser(request.getUser()));
+            case PATCH -> BatchOperation.patch(request.getUserId(), Objects.isNull(request.getContacts())
+                    ? null
+                    : target -> patchUser(target, request.getContacts()));
+            case DELETE -> BatchOperation.delete(request.getUserId());
+        };
+    }
+
+    @Override
+    public BatchResultDto toBatchResultDto(final BatchOperation operation, final BatchResult result) {
+        final var response = new BatchResultDto();
+        if (result.isApplied()) {
+            response.setStatus(operation.getType() == BatchOperation.Type.CREATE
+                    ? HttpStatus.CREATED.value()
+                    : HttpStatus.OK.value());
+            response.setData(result.getUser());
+        } else {
+            response.setStatus(result.getError().getHttpStatus().value());
+            response.setReason(result.getError().getReason());
+        }
         return response;
     }
 }
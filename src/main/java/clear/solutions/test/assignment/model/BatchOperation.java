@@ -0,0 +1,71 @@
+package clear.solutions.test.assignment.model;
+
+import java.util.function.UnaryOperator;
+
+/**
+ * Single operation of a user batch.
+ */
+public final class BatchOperation {
+    private final Type type;
+    private final Long userId;
+    private final User user;
+    private final UnaryOperator<User> patch;
+
+    private BatchOperation(Type type, Long userId, User user, UnaryOperator<User> patch) {
+        this.type = type;
+        this.userId = userId;
+        this.user = user;
+        this.patch = patch;
+    }
+
+    public static BatchOperation create(User user) {
+        return new BatchOperation(Type.CREATE, null, user, null);
+    }
+
+    /**
+     * @param user replacement of the user, its id is ignored
+     */
+    public static BatchOperation update(Long userId, User user) {
+        return new BatchOperation(Type.UPDATE, userId, user, null);
+    }
+
+    public static BatchOperation patch(Long userId, UnaryOperator<User> patch) {
+        return new BatchOperation(Type.PATCH, userId, null, patch);
+    }
+
+    public static BatchOperation delete(Long userId) {
+        return new BatchOperation(Type.DELETE, userId, null, null);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public UnaryOperator<User> getPatch() {
+        return patch;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchOperation{" +
+                "type=" + type +
+                ", userId=" + userId +
+                ", user=" + user +
+                '}';
+    }
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        PATCH,
+        DELETE
+    }
+}
@@ -0,0 +1,44 @@
+package clear.solutions.test.assignment.model;
+
+import clear.solutions.test.assignment.exception.Error;
+
+/**
+ * Outcome of a single batch operation, either the stored user (null for a delete) or the error.
+ */
+public final class BatchResult {
+    private final User user;
+    private final Error error;
+
+    private BatchResult(User user, Error error) {
+        this.user = user;
+        this.error = error;
+    }
+
+    public static BatchResult applied(User user) {
+        return new BatchResult(user, null);
+    }
+
+    public static BatchResult failed(Error error) {
+        return new BatchResult(null, error);
+    }
+
+    public boolean isApplied() {
+        return error == null;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public Error getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "BatchResult{" +
+                "user=" + user +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -1,10 +1,18 @@
 package clear.solutions.test.assignment.model;
 
-public interface Entity {
+/**
+ * @param <T> the entity type itself, returned by the copies
+ */
+public interface Entity<T extends Entity<T>> {
 
     Long getId();
 
-    void setId(Long id);
+    T withId(Long id);
 
-    Entity clone();
+    /**
+     * Version of the stored entity, incremented by every write, 0 for an entity that was never stored.
+     */
+    long getVersion();
+
+    T withVersion(long version);
 }
@@ -0,0 +1,32 @@
+package clear.solutions.test.assignment.model;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares a field of an entity, or a value derived by one of its methods without parameters, as
+ * indexed by the daos storing the entity. The member is named by the field or the method in the
+ * conditions of a {@code Query}. Null values are not indexed.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface Indexed {
+
+    Type value() default Type.HASH;
+
+    enum Type {
+        /**
+         * Ids by value, for conditions on one value.
+         */
+        HASH,
+        /**
+         * Values in order with their ids, for conditions on one value or a range. The values must
+         * be {@link Comparable}.
+         */
+        SORTED
+    }
+}
@@ -0,0 +1,47 @@
+package clear.solutions.test.assignment.model;
+
+import java.util.List;
+
+public final class Page<T> {
+    private final List<T> content;
+    private final String nextCursor;
+    private final long lastModified;
+
+    private Page(List<T> content, String nextCursor, long lastModified) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.lastModified = lastModified;
+    }
+
+    public static <T> Page<T> of(List<T> content, String nextCursor) {
+        return new Page<>(List.copyOf(content), nextCursor, -1L);
+    }
+
+    public Page<T> withLastModified(long lastModified) {
+        return new Page<>(content, nextCursor, lastModified);
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Epoch millis of the last change that may have affected the page, or -1 if unknown.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public String toString() {
+        return "Page{" +
+                "content=" + content +
+                ", nextCursor='" + nextCursor + '\'' +
+                ", lastModified=" + lastModified +
+                '}';
+    }
+}
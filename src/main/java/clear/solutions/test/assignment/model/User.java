@@ -1,18 +1,57 @@
 package clear.solutions.test.assignment.model;
 
-import org.springframework.beans.BeanUtils;
-
 import java.time.LocalDate;
+import java.time.MonthDay;
+import java.util.Locale;
 import java.util.Objects;
 
-public class User implements Entity {
-    private Long id;
-    private String email;
-    private String firstName;
-    private String lastName;
-    private LocalDate birthDate;
-    private String address;
-    private String phone;
+/**
+ * Immutable user snapshot. Stored instances are shared with readers as is,
+ * changes are made by creating a new snapshot with one of the {@code with*} methods.
+ */
+public final class User implements Entity<User> {
+    private final Long id;
+    private final String email;
+    private final String firstName;
+    private final String lastName;
+    @Indexed(Indexed.Type.SORTED)
+    private final LocalDate birthDate;
+    private final String address;
+    private final String phone;
+    private final long version;
+
+    public User(Long id,
+                String email,
+                String firstName,
+                String lastName,
+                LocalDate birthDate,
+                String address,
+                String phone) {
+        this(id, email, firstName, lastName, birthDate, address, phone, 0L);
+    }
+
+    /**
+     * @param id      null for a user that was never stored
+     * @param address optional
+     * @param phone   optional
+     */
+    public User(Long id,
+                String email,
+                String firstName,
+                String lastName,
+                LocalDate birthDate,
+                String address,
+                String phone,
+                long version) {
+        this.id = id;
+        this.email = Objects.requireNonNull(email, "email must be not null");
+        this.firstName = Objects.requireNonNull(firstName, "firstName must be not null");
+        this.lastName = Objects.requireNonNull(lastName, "lastName must be not null");
+        this.birthDate = Objects.requireNonNull(birthDate, "birthDate must be not null");
+        this.address = address;
+        this.phone = phone;
+        this.version = version;
+    }
 
     @Override
     public Long getId() {
@@ -20,56 +59,101 @@ public class User implements Entity {
     }
 
     @Override
-    public void setId(Long id) {
-        this.id = Objects.requireNonNull(id, "id must be not null");
+    public User withId(Long id) {
+        return new User(Objects.requireNonNull(id, "id must be not null"), email, firstName, lastName, birthDate, address, phone, version);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public User withVersion(long version) {
+        return new User(id, email, firstName, lastName, birthDate, address, phone, version);
     }
 
     public String getEmail() {
         return email;
     }
 
-    public void setEmail(String email) {
-        this.email = Objects.requireNonNull(email, "email must be not null");
+    public User withEmail(String email) {
+        return new User(id, Objects.requireNonNull(email, "email must be not null"), firstName, lastName, birthDate, address, phone, version);
     }
 
     public String getFirstName() {
         return firstName;
     }
 
-    public void setFirstName(String firstName) {
-        this.firstName = Objects.requireNonNull(firstName, "firstName must be not null");
+    public User withFirstName(String firstName) {
+        return new User(id, email, Objects.requireNonNull(firstName, "firstName must be not null"), lastName, birthDate, address, phone, version);
     }
 
     public String getLastName() {
         return lastName;
     }
 
-    public void setLastName(String lastName) {
-        this.lastName = Objects.requireNonNull(lastName, "lastName must be not null");
+    public User withLastName(String lastName) {
+        return new User(id, email, firstName, Objects.requireNonNull(lastName, "lastName must be not null"), birthDate, address, phone, version);
     }
 
     public LocalDate getBirthDate() {
         return birthDate;
     }
 
-    public void setBirthDate(LocalDate birthDate) {
-        this.birthDate = Objects.requireNonNull(birthDate, "birthDate must be not null");
+    public User withBirthDate(LocalDate birthDate) {
+        return new User(id, email, firstName, lastName, Objects.requireNonNull(birthDate, "birthDate must be not null"), address, phone, version);
+    }
+
+    /**
+     * First birthday on or after the date. A user born on February 29 has the birthday on
+     * February 28 in the years that are not leap years.
+     */
+    public LocalDate nextBirthday(LocalDate date) {
+        final var monthDay = MonthDay.from(birthDate);
+        final var birthday = monthDay.atYear(date.getYear());
+        return birthday.isBefore(date) ? monthDay.atYear(date.getYear() + 1) : birthday;
+    }
+
+    /**
+     * Part of the email after its last {@code @}, in lower case as emails are compared.
+     */
+    @Indexed
+    public String emailDomain() {
+        return email == null ? null : email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
     }
 
     public String getAddress() {
         return address;
     }
 
-    public void setAddress(String address) {
-        this.address = address;
+    public User withAddress(String address) {
+        return new User(id, email, firstName, lastName, birthDate, address, phone, version);
     }
 
     public String getPhone() {
         return phone;
     }
 
-    public void setPhone(String phone) {
-        this.phone = phone;
+    public User withPhone(String phone) {
+        return new User(id, email, firstName, lastName, birthDate, address, phone, version);
+    }
+
+    /**
+     * Digits of the phone, the same whatever its formatting, or null if it has none.
+     */
+    public static String phoneKey(String phone) {
+        if (phone == null) {
+            return null;
+        }
+        final var digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            final var digit = Character.digit(phone.charAt(i), 10);
+            if (digit >= 0) {
+                digits.append((char) ('0' + digit));
+            }
+        }
+        return digits.isEmpty() ? null : digits.toString();
     }
 
     @Override
@@ -77,7 +161,7 @@ public class User implements Entity {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         User user = (User) o;
-        return email.equals(user.email) && firstName.equals(user.firstName) && lastName.equals(user.lastName) && birthDate.equals(user.birthDate) && Objects.equals(address, user.address) && Objects.equals(phone, user.phone);
+        return Objects.equals(email, user.email) && Objects.equals(firstName, user.firstName) && Objects.equals(lastName, user.lastName) && Objects.equals(birthDate, user.birthDate) && Objects.equals(address, user.address) && Objects.equals(phone, user.phone);
     }
 
     @Override
@@ -85,13 +169,6 @@ public class User implements Entity {
         return Objects.hash(email, firstName, lastName, birthDate, address, phone);
     }
 
-    @Override
-    public User clone() {
-        final var clone = new User();
-        BeanUtils.copyProperties(this, clone);
-        return clone;
-    }
-
     @Override
     public String toString() {
         return "User{" +
@@ -102,6 +179,7 @@ public class User implements Entity {
                 ", birthDate=" + birthDate +
                 ", address='" + address + '\'' +
                 ", phone='" + phone + '\'' +
+                ", version=" + version +
                 '}';
     }
 }
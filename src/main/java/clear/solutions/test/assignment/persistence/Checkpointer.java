@@ -0,0 +1,111 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.model.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recovers a storage from its latest snapshot and write-ahead log, then keeps taking
+ * snapshots in the background so the log to replay on the next start stays short.
+ * <p>
+ * A checkpoint pauses writes only to roll the log, so every write in the older segments is
+ * visible in the storage; the entities are then copied without blocking writers. Writes that
+ * land during the copy are in the new segment, which is replayed on top of the snapshot.
+ */
+public class Checkpointer<T extends Entity<T>> implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(Checkpointer.class);
+
+    private final Recoverable<T> storage;
+    private final WriteAheadLog<T> writeAheadLog;
+    private final SnapshotStore<T> snapshotStore;
+    private final Duration interval;
+    private final ThreadFactory threadFactory;
+    private final Object checkpointMonitor = new Object();
+
+    private ScheduledExecutorService scheduler;
+
+    public Checkpointer(Recoverable<T> storage, WriteAheadLog<T> writeAheadLog, SnapshotStore<T> snapshotStore,
+                        Duration interval, ThreadFactory threadFactory) {
+        this.storage = storage;
+        this.writeAheadLog = writeAheadLog;
+        this.snapshotStore = snapshotStore;
+        this.interval = interval;
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Loads the latest snapshot, replays the log written after it and attaches the log to the
+     * storage. Snapshots are scheduled from then on, unless the interval is zero.
+     */
+    public void recover() {
+        final var started = System.nanoTime();
+        final var snapshot = snapshotStore.load(storage::restore);
+        final var loaded = System.nanoTime();
+        snapshot.ifPresent(it -> storage.restoreSequence(it.sequence()));
+        final var fromSegment = snapshot.map(SnapshotStore.Snapshot::walSegment).orElse(0L);
+        final var replayed = writeAheadLog.replay(fromSegment, storage::restore, storage::restoreDeletion);
+        final var finished = System.nanoTime();
+        storage.setWriteAheadLog(writeAheadLog);
+        LOGGER.info("Recovered storage in {} ms: {} entities from snapshot in {} ms, {} log records in {} ms",
+                TimeUnit.NANOSECONDS.toMillis(finished - started),
+                snapshot.map(SnapshotStore.Snapshot::count).orElse(0L),
+                TimeUnit.NANOSECONDS.toMillis(loaded - started),
+                replayed,
+                TimeUnit.NANOSECONDS.toMillis(finished - loaded));
+        if (!interval.isZero()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(threadFactory);
+            scheduler.scheduleWithFixedDelay(this::checkpointQuietly,
+                    interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the storage and deletes the log segments it covers.
+     *
+     * @return number of entities in the snapshot
+     */
+    public long checkpoint() {
+        synchronized (checkpointMonitor) {
+            final var started = System.nanoTime();
+            final var segment = new long[1];
+            final var sequence = storage.checkpoint(() -> segment[0] = writeAheadLog.roll());
+            final var count = snapshotStore.write(segment[0], sequence, storage.snapshotIterator());
+            writeAheadLog.deleteSegmentsBefore(segment[0]);
+            LOGGER.info("Snapshot of {} entities taken in {} ms", count,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return count;
+        }
+    }
+
+    /**
+     * Stops the scheduled snapshots and takes a final one, so the next start has no log to
+     * replay.
+     */
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        checkpointQuietly();
+    }
+
+    private void checkpointQuietly() {
+        try {
+            checkpoint();
+        } catch (RuntimeException e) {
+            LOGGER.error("Cannot take snapshot", e);
+        }
+    }
+}
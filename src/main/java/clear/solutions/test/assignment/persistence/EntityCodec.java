@@ -0,0 +1,17 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.model.Entity;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Binary encoding of an entity used by the write-ahead log and snapshots.
+ */
+public interface EntityCodec<T extends Entity<T>> {
+
+    int size(T entity);
+
+    void write(T entity, ByteBuffer buffer);
+
+    T read(ByteBuffer buffer);
+}
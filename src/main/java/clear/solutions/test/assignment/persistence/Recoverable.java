@@ -0,0 +1,46 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.model.Entity;
+
+import java.util.Iterator;
+
+/**
+ * Storage that can be rebuilt from a write-ahead log and record its further changes to it.
+ */
+public interface Recoverable<T extends Entity<T>> {
+
+    /**
+     * Stores the entity as is, without logging it, and moves the id sequence past its id.
+     */
+    void restore(T entity);
+
+    /**
+     * Removes the entity, without logging the removal.
+     */
+    void restoreDeletion(Long id);
+
+    /**
+     * Moves the id sequence to at least {@code sequence}, so ids of deleted entities are not
+     * reused after a restart.
+     */
+    void restoreSequence(long sequence);
+
+    /**
+     * Runs the action while no save or delete is in progress, so every write logged before it
+     * is visible in the storage.
+     *
+     * @return id sequence at that moment
+     */
+    long checkpoint(Runnable action);
+
+    /**
+     * @return weakly consistent iterator over the stored entities, does not block writers
+     */
+    Iterator<T> snapshotIterator();
+
+    /**
+     * Starts recording every following save and delete to the log. Writes return only
+     * once their record is durable.
+     */
+    void setWriteAheadLog(WriteAheadLog<T> writeAheadLog);
+}
@@ -0,0 +1,234 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.model.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Point-in-time copies of the stored entities in a compact binary format.
+ * <p>
+ * A snapshot is named after the first write-ahead log segment that is not covered by it and
+ * consists of a header {@code [magic:int][version:int][sequence:long][count:long]} followed by
+ * blocks {@code [length:int][records:int][crc32c:int][records]}. Blocks are independent, so
+ * loading maps and decodes them in parallel.
+ */
+public class SnapshotStore<T extends Entity<T>> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SnapshotStore.class);
+
+    static final String SNAPSHOT_SUFFIX = ".snapshot";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final int MAGIC = 0x55534E50;
+    // 2: entities carry their version
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES + Long.BYTES + Long.BYTES;
+    private static final int BLOCK_HEADER_BYTES = Integer.BYTES + Integer.BYTES + Integer.BYTES;
+
+    private final Path directory;
+    private final EntityCodec<T> codec;
+    private final int blockSize;
+
+    public SnapshotStore(Path directory, EntityCodec<T> codec, int blockSize) {
+        if (blockSize <= 0) {
+            throw new IllegalArgumentException("blockSize must be positive");
+        }
+        this.directory = directory;
+        this.codec = codec;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Writes the entities to a new snapshot and deletes the older ones. The snapshot only
+     * becomes visible once it is complete and durable.
+     *
+     * @return number of written entities
+     */
+    public long write(long walSegment, long sequence, Iterator<T> entities) {
+        final var target = snapshotPath(walSegment);
+        final var temporary = target.resolveSibling(target.getFileName() + TEMPORARY_SUFFIX);
+        var count = 0L;
+        try {
+            Files.createDirectories(directory);
+            try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                channel.position(HEADER_BYTES);
+                var block = ByteBuffer.allocate(blockSize);
+                var records = 0;
+                while (entities.hasNext()) {
+                    final var entity = entities.next();
+                    final var size = codec.size(entity);
+                    if (block.remaining() < size && records > 0) {
+                        writeBlock(channel, block, records);
+                        records = 0;
+                    }
+                    if (block.capacity() < size) {
+                        block = ByteBuffer.allocate(size);
+                    }
+                    codec.write(entity, block);
+                    records++;
+                    count++;
+                }
+                if (records > 0) {
+                    writeBlock(channel, block, records);
+                }
+                final var header = ByteBuffer.allocate(HEADER_BYTES)
+                        .putInt(MAGIC).putInt(VERSION).putLong(sequence).putLong(count)
+                        .flip();
+                while (header.hasRemaining()) {
+                    channel.write(header, header.position());
+                }
+                channel.force(true);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            deleteSnapshotsBefore(walSegment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write snapshot " + target, e);
+        }
+        return count;
+    }
+
+    /**
+     * Decodes the latest snapshot, calling {@code onEntity} from several threads at once.
+     *
+     * @return description of the loaded snapshot, empty if there is none
+     */
+    public Optional<Snapshot> load(Consumer<T> onEntity) {
+        final Optional<Path> latest;
+        try {
+            if (!Files.isDirectory(directory)) {
+                return Optional.empty();
+            }
+            try (var snapshots = snapshots()) {
+                latest = snapshots.reduce((first, second) -> second);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list snapshots in " + directory, e);
+        }
+        return latest.map(file -> load(file, onEntity));
+    }
+
+    private Snapshot load(Path file, Consumer<T> onEntity) {
+        try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            final var header = read(channel, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IllegalStateException("Unsupported snapshot format of " + file);
+            }
+            final var sequence = header.getLong();
+            final var count = header.getLong();
+            final var blocks = new ArrayList<Block>();
+            var position = (long) HEADER_BYTES;
+            while (position < channel.size()) {
+                final var blockHeader = read(channel, position, BLOCK_HEADER_BYTES);
+                final var block = new Block(position + BLOCK_HEADER_BYTES,
+                        blockHeader.getInt(), blockHeader.getInt(), blockHeader.getInt());
+                if (block.offset() + block.length() > channel.size()) {
+                    throw new IllegalStateException("Truncated snapshot block at offset " + position + " of " + file);
+                }
+                blocks.add(block);
+                position = block.offset() + block.length();
+            }
+            final var loaded = new LongAdder();
+            blocks.parallelStream().forEach(block -> {
+                decode(channel, block, onEntity);
+                loaded.add(block.records());
+            });
+            if (loaded.sum() != count) {
+                throw new IllegalStateException("Snapshot " + file + " holds " + loaded.sum()
+                        + " entities, expected " + count);
+            }
+            return new Snapshot(segmentNumber(file), sequence, count);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot load snapshot " + file, e);
+        }
+    }
+
+    private void decode(FileChannel channel, Block block, Consumer<T> onEntity) {
+        final ByteBuffer buffer;
+        try {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, block.offset(), block.length());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final var checksum = new CRC32C();
+        checksum.update(buffer.duplicate());
+        if ((int) checksum.getValue() != block.checksum()) {
+            throw new IllegalStateException("Corrupted snapshot block at offset " + block.offset());
+        }
+        for (int i = 0; i < block.records(); i++) {
+            onEntity.accept(codec.read(buffer));
+        }
+    }
+
+    private static void writeBlock(FileChannel channel, ByteBuffer block, int records) throws IOException {
+        block.flip();
+        final var checksum = new CRC32C();
+        checksum.update(block.duplicate());
+        final var header = ByteBuffer.allocate(BLOCK_HEADER_BYTES)
+                .putInt(block.remaining()).putInt(records).putInt((int) checksum.getValue())
+                .flip();
+        final var buffers = new ByteBuffer[]{header, block};
+        while (block.hasRemaining()) {
+            channel.write(buffers);
+        }
+        block.clear();
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        final var buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of snapshot at offset " + (position + buffer.position()));
+            }
+        }
+        return buffer.flip();
+    }
+
+    private void deleteSnapshotsBefore(long walSegment) throws IOException {
+        try (var snapshots = snapshots()) {
+            for (var file : snapshots.filter(file -> segmentNumber(file) < walSegment).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Stream<Path> snapshots() throws IOException {
+        return Files.list(directory)
+                .filter(file -> file.getFileName().toString().endsWith(SNAPSHOT_SUFFIX))
+                .sorted();
+    }
+
+    private Path snapshotPath(long walSegment) {
+        return directory.resolve(String.format("%020d%s", walSegment, SNAPSHOT_SUFFIX));
+    }
+
+    private static long segmentNumber(Path file) {
+        final var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SNAPSHOT_SUFFIX.length()));
+    }
+
+    /**
+     * @param walSegment first write-ahead log segment to replay on top of the snapshot
+     * @param sequence   id sequence at the moment the snapshot was taken
+     * @param count      number of entities in the snapshot
+     */
+    public record Snapshot(long walSegment, long sequence, long count) {
+    }
+
+    private record Block(long offset, int length, int records, int checksum) {
+    }
+}
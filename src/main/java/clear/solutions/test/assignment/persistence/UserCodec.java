@@ -0,0 +1,88 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.model.User;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+public class UserCodec implements EntityCodec<User> {
+    private static final int NULL_LENGTH = -1;
+
+    @Override
+    public int size(User user) {
+        return Long.BYTES + Long.BYTES + Long.BYTES
+                + stringSize(user.getEmail())
+                + stringSize(user.getFirstName())
+                + stringSize(user.getLastName())
+                + stringSize(user.getAddress())
+                + stringSize(user.getPhone());
+    }
+
+    @Override
+    public void write(User user, ByteBuffer buffer) {
+        buffer.putLong(user.getId());
+        buffer.putLong(user.getVersion());
+        buffer.putLong(user.getBirthDate().toEpochDay());
+        writeString(user.getEmail(), buffer);
+        writeString(user.getFirstName(), buffer);
+        writeString(user.getLastName(), buffer);
+        writeString(user.getAddress(), buffer);
+        writeString(user.getPhone(), buffer);
+    }
+
+    @Override
+    public User read(ByteBuffer buffer) {
+        final var id = buffer.getLong();
+        final var version = buffer.getLong();
+        final var birthDate = LocalDate.ofEpochDay(buffer.getLong());
+        final var email = readString(buffer);
+        final var firstName = readString(buffer);
+        final var lastName = readString(buffer);
+        final var address = readString(buffer);
+        final var phone = readString(buffer);
+        return new User(id, email, firstName, lastName, birthDate, address, phone, version);
+    }
+
+    private static int stringSize(String value) {
+        return Integer.BYTES + (value == null ? 0 : utf8Length(value));
+    }
+
+    private static void writeString(String value, ByteBuffer buffer) {
+        if (value == null) {
+            buffer.putInt(NULL_LENGTH);
+            return;
+        }
+        final var bytes = value.getBytes(StandardCharsets.UTF_8);
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        final var length = buffer.getInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        final var bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int utf8Length(String value) {
+        var length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            final var c = value.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length() && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
@@ -0,0 +1,471 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.model.Entity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongConsumer;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of saves and deletes with group commit.
+ * <p>
+ * Writers only encode their record and enqueue it; a single flusher thread writes everything
+ * queued so far with one {@link FileChannel#write} and one {@link FileChannel#force} and then
+ * completes the futures of the whole batch. A batch is closed when it reaches
+ * {@code batchSize} records or when {@code batchWindow} has passed since its first record,
+ * whichever comes first; a zero window flushes whatever is queued without waiting.
+ * <p>
+ * The log is split into numbered segment files; {@link #roll()} starts a new one so that the
+ * segments covered by a snapshot can be deleted. Each record is
+ * {@code [length:int][crc32c:int][type:byte][payload]}, the checksum covering type and payload,
+ * so a torn write at the tail of the last segment is detected and cut off on replay; a corrupt
+ * record in an older segment fails the replay instead of dropping the writes after it.
+ * <p>
+ * A batch that fails to be written is cut off the segment right away, so the batches after it
+ * are not appended behind bytes that replay would stop at. If it cannot be cut off, the log
+ * fails every later record instead.
+ */
+public class WriteAheadLog<T extends Entity<T>> implements Closeable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    static final String SEGMENT_SUFFIX = ".wal";
+    private static final int HEADER_BYTES = Integer.BYTES + Integer.BYTES;
+    private static final byte SAVE = 1;
+    private static final byte DELETE = 2;
+    private static final Record POISON = new Record(null, null);
+    private static final Record ROLL = new Record(null, null);
+
+    private final Path directory;
+    private final EntityCodec<T> codec;
+    private final int batchSize;
+    private final long batchWindowNanos;
+    private final BlockingQueue<Record> queue = new LinkedBlockingQueue<>();
+    private final BlockingQueue<CompletableFuture<Long>> rolls = new LinkedBlockingQueue<>();
+    private final Thread flusher;
+    private final Object lifecycle = new Object();
+    private final SegmentOpener opener;
+
+    private FileChannel channel;
+    private volatile long segment;
+    private volatile boolean closed;
+    // set when a failed batch could not be cut off the segment, no record is written after it
+    private volatile IOException failure;
+
+    public WriteAheadLog(Path directory, EntityCodec<T> codec, int batchSize, Duration batchWindow,
+                         ThreadFactory threadFactory) {
+        this(directory, codec, batchSize, batchWindow, threadFactory, WriteAheadLog::openSegmentFile);
+    }
+
+    WriteAheadLog(Path directory, EntityCodec<T> codec, int batchSize, Duration batchWindow,
+                  ThreadFactory threadFactory, SegmentOpener opener) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive");
+        }
+        this.directory = directory;
+        this.codec = codec;
+        this.batchSize = batchSize;
+        this.batchWindowNanos = batchWindow.toNanos();
+        this.opener = opener;
+        try {
+            Files.createDirectories(directory);
+            this.segment = lastSegment() + 1;
+            this.channel = openSegment(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open write-ahead log in " + directory, e);
+        }
+        this.flusher = threadFactory.newThread(this::flushLoop);
+        this.flusher.start();
+    }
+
+    /**
+     * Replays every complete record of the existing segments in order. Appends made through
+     * this instance go to a new segment and are not replayed.
+     *
+     * @return number of replayed records
+     * @throws UncheckedIOException if a record is corrupt anywhere but at the tail of the last
+     *                              segment, where only a torn write can leave one
+     */
+    public long replay(Consumer<T> onSave, LongConsumer onDelete) {
+        return replay(0L, onSave, onDelete);
+    }
+
+    /**
+     * Same as {@link #replay(Consumer, LongConsumer)}, skipping the segments numbered below
+     * {@code fromSegment}.
+     */
+    public long replay(long fromSegment, Consumer<T> onSave, LongConsumer onDelete) {
+        final var current = this.segment;
+        var count = 0L;
+        try (var segments = segments()) {
+            final var files = segments
+                    .filter(file -> segmentNumber(file) >= fromSegment && segmentNumber(file) < current)
+                    .toList();
+            for (int i = 0; i < files.size(); i++) {
+                count += replay(files.get(i), i == files.size() - 1, onSave, onDelete);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot replay write-ahead log in " + directory, e);
+        }
+        return count;
+    }
+
+    /**
+     * @return future completed once the record is durable
+     * @throws IllegalStateException if the log is closed
+     */
+    public CompletableFuture<Void> appendSave(T entity) {
+        return append(prepareSave(entity));
+    }
+
+    /**
+     * @return future completed once the record is durable
+     * @throws IllegalStateException if the log is closed
+     */
+    public CompletableFuture<Void> appendDelete(long id) {
+        return append(prepareDelete(id));
+    }
+
+    /**
+     * Encodes a save to {@link #append} once the caller has applied it, so an entity that cannot
+     * be encoded or a closed log fails the write before anything is changed.
+     *
+     * @throws IllegalStateException if the log is closed
+     */
+    public PendingRecord prepareSave(T entity) {
+        final var size = codec.size(entity);
+        final var buffer = ByteBuffer.allocate(HEADER_BYTES + 1 + size);
+        buffer.position(HEADER_BYTES).put(SAVE);
+        codec.write(entity, buffer);
+        return prepare(buffer);
+    }
+
+    /**
+     * Same as {@link #prepareSave} for a delete.
+     *
+     * @throws IllegalStateException if the log is closed
+     */
+    public PendingRecord prepareDelete(long id) {
+        final var buffer = ByteBuffer.allocate(HEADER_BYTES + 1 + Long.BYTES);
+        buffer.position(HEADER_BYTES).put(DELETE).putLong(id);
+        return prepare(buffer);
+    }
+
+    /**
+     * Queues a prepared record, never throws.
+     *
+     * @return future completed once the record is durable, or failed if the log was closed or
+     * failed since the record was prepared
+     */
+    public CompletableFuture<Void> append(PendingRecord pending) {
+        if (failure != null) {
+            return CompletableFuture.failedFuture(new IOException("Write-ahead log failed", failure));
+        }
+        final var record = new Record(pending.buffer, new CompletableFuture<>());
+        synchronized (lifecycle) {
+            if (closed) {
+                return CompletableFuture.failedFuture(new IllegalStateException("Write-ahead log is closed"));
+            }
+            queue.add(record);
+        }
+        return record.committed;
+    }
+
+    /**
+     * Makes every record appended so far durable and starts a new segment for the following
+     * ones.
+     *
+     * @return number of the new segment
+     */
+    public long roll() {
+        final var rolled = new CompletableFuture<Long>();
+        synchronized (lifecycle) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            rolls.add(rolled);
+            queue.add(ROLL);
+        }
+        try {
+            return rolled.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw new UncheckedIOException("Cannot roll write-ahead log segment", cause);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Deletes the segments numbered below {@code segment}, once their records are covered by
+     * a snapshot.
+     */
+    public void deleteSegmentsBefore(long segment) {
+        try (var segments = segments()) {
+            for (var file : segments.filter(file -> segmentNumber(file) < segment).toList()) {
+                Files.deleteIfExists(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete write-ahead log segments in " + directory, e);
+        }
+    }
+
+    /**
+     * Stops accepting records, waits for the queued ones to become durable and closes the
+     * current segment.
+     */
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            queue.add(POISON);
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOGGER.warn("Cannot close write-ahead log segment {}", segment, e);
+        }
+    }
+
+    private PendingRecord prepare(ByteBuffer buffer) {
+        final var checksum = new CRC32C();
+        checksum.update(buffer.array(), HEADER_BYTES, buffer.capacity() - HEADER_BYTES);
+        buffer.putInt(0, buffer.capacity() - HEADER_BYTES);
+        buffer.putInt(Integer.BYTES, (int) checksum.getValue());
+        buffer.rewind();
+        if (closed) {
+            throw new IllegalStateException("Write-ahead log is closed");
+        }
+        return new PendingRecord(buffer);
+    }
+
+    private void flushLoop() {
+        final var batch = new ArrayList<Record>(batchSize);
+        Record control = null;
+        while (control != POISON) {
+            try {
+                control = collect(batch);
+            } catch (InterruptedException e) {
+                // keep draining, close() relies on the poison record to stop the loop
+                continue;
+            }
+            if (!batch.isEmpty()) {
+                commit(batch);
+                batch.clear();
+            }
+            if (control == ROLL) {
+                rollSegment(rolls.remove());
+            }
+        }
+    }
+
+    /**
+     * @return the control record that ended the batch, or null if it ended by size or time
+     */
+    private Record collect(List<Record> batch) throws InterruptedException {
+        var record = queue.take();
+        final var deadline = System.nanoTime() + batchWindowNanos;
+        while (record != POISON && record != ROLL) {
+            batch.add(record);
+            if (batch.size() == batchSize) {
+                return null;
+            }
+            record = queue.poll();
+            if (record == null) {
+                final var remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                record = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (record == null) {
+                    return null;
+                }
+            }
+        }
+        return record;
+    }
+
+    private void rollSegment(CompletableFuture<Long> rolled) {
+        if (failure != null) {
+            rolled.completeExceptionally(new IOException("Write-ahead log failed", failure));
+            return;
+        }
+        try {
+            final var next = openSegment(segment + 1);
+            channel.close();
+            channel = next;
+            segment = segment + 1;
+            rolled.complete(segment);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Cannot roll write-ahead log segment {}", segment, e);
+            rolled.completeExceptionally(e);
+        }
+    }
+
+    private void commit(List<Record> batch) {
+        if (failure != null) {
+            final var failed = new IOException("Write-ahead log failed", failure);
+            batch.forEach(record -> record.committed.completeExceptionally(failed));
+            return;
+        }
+        var start = -1L;
+        try {
+            start = channel.size();
+            final var buffers = batch.stream().map(Record::buffer).toArray(ByteBuffer[]::new);
+            var remaining = 0L;
+            for (var buffer : buffers) {
+                remaining += buffer.remaining();
+            }
+            while (remaining > 0) {
+                remaining -= channel.write(buffers);
+            }
+            channel.force(false);
+            batch.forEach(record -> record.committed.complete(null));
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Cannot write {} records to write-ahead log segment {}", batch.size(), segment, e);
+            cutOff(start, e);
+            batch.forEach(record -> record.committed.completeExceptionally(e));
+        }
+    }
+
+    /**
+     * Truncates the segment back to its size before the failed batch, or fails the log if it
+     * cannot.
+     */
+    private void cutOff(long start, Exception cause) {
+        try {
+            if (start < 0) {
+                throw new IOException("Size of write-ahead log segment " + segment + " is unknown", cause);
+            }
+            channel.truncate(start);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Cannot cut off failed batch of write-ahead log segment {}, failing the log", segment, e);
+            failure = e instanceof IOException io ? io : new IOException(e);
+        }
+    }
+
+    /**
+     * @param last whether the segment is the last one written, the only one that may end with a
+     *             torn record
+     */
+    private long replay(Path file, boolean last, Consumer<T> onSave, LongConsumer onDelete) throws IOException {
+        var count = 0L;
+        try (var segmentChannel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final var buffer = segmentChannel.map(FileChannel.MapMode.READ_ONLY, 0, segmentChannel.size());
+            while (buffer.remaining() >= HEADER_BYTES) {
+                final var start = buffer.position();
+                final var length = buffer.getInt();
+                final var expected = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                final var payload = buffer.slice(buffer.position(), length);
+                final var checksum = new CRC32C();
+                checksum.update(payload.duplicate());
+                if ((int) checksum.getValue() != expected) {
+                    buffer.position(start);
+                    break;
+                }
+                final var type = payload.get();
+                if (type == SAVE) {
+                    onSave.accept(codec.read(payload));
+                } else if (type == DELETE) {
+                    onDelete.accept(payload.getLong());
+                } else {
+                    throw new IOException("Unknown record type " + type + " in " + file);
+                }
+                buffer.position(buffer.position() + length);
+                count++;
+            }
+            if (buffer.position() < segmentChannel.size()) {
+                if (!last) {
+                    throw new IOException("Corrupt record in " + file + " at offset " + buffer.position());
+                }
+                LOGGER.warn("Truncating incomplete tail of {} at offset {}", file, buffer.position());
+                segmentChannel.truncate(buffer.position());
+                segmentChannel.force(true);
+            }
+        }
+        return count;
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return opener.open(segmentPath(number));
+    }
+
+    private static FileChannel openSegmentFile(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return directory.resolve(String.format("%020d%s", number, SEGMENT_SUFFIX));
+    }
+
+    private long lastSegment() throws IOException {
+        try (var segments = segments()) {
+            return segments.mapToLong(WriteAheadLog::segmentNumber).max().orElse(0L);
+        }
+    }
+
+    private Stream<Path> segments() throws IOException {
+        return Files.list(directory)
+                .filter(file -> file.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                .sorted();
+    }
+
+    private static long segmentNumber(Path file) {
+        final var name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * Opens a new segment file for appends.
+     */
+    @FunctionalInterface
+    interface SegmentOpener {
+        FileChannel open(Path file) throws IOException;
+    }
+
+    /**
+     * Record encoded with its checksum, not queued yet.
+     */
+    public static final class PendingRecord {
+        private final ByteBuffer buffer;
+
+        private PendingRecord(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    private record Record(ByteBuffer buffer, CompletableFuture<Void> committed) {
+    }
+}
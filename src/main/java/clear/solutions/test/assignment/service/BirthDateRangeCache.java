@@ -0,0 +1,333 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.EntityListener;
+import clear.solutions.test.assignment.model.Page;
+import clear.solutions.test.assignment.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * LRU cache of birth date range pages, bounded by an estimate of their heap size.
+ * <p>
+ * Registered as a listener of the user dao, a write evicts only the pages whose range holds the
+ * previous or the new birth date of the user. The cached pages are indexed by the years their
+ * range covers, so a write visits the pages of its year only. The recency of the entries is kept
+ * in an access ordered map under a lock, held briefly by a hit, by caching or removing an entry and
+ * by the eviction, which removes the least recently used entries from its head.
+ * <p>
+ * Every birth date written has a generation bumped by each write. A page is cached only if the
+ * sum of the generations of its range is the same after it is cached as before it was loaded,
+ * so a write to another range never keeps a page from being cached, and a page that may miss a
+ * write of its range is dropped.
+ * <p>
+ * Independent of what is cached, the time of the last write is kept per birth date, which gives
+ * every page its {@link Page#getLastModified()}.
+ */
+@Component
+public class BirthDateRangeCache implements EntityListener<User> {
+    private static final long ENTRY_BYTES = 128L;
+    private static final long USER_BYTES = 96L;
+    private static final long STRING_BYTES = 40L;
+    // ranges over more years are checked by every write rather than indexed per year
+    private static final int MAX_INDEXED_YEARS = 256;
+
+    private final long maxWeight;
+    private final Clock clock;
+    private final long createdAt;
+    private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    // year to the entries whose range covers part of it
+    private final ConcurrentMap<Integer, Set<Entry>> years = new ConcurrentHashMap<>();
+    private final Set<Entry> wide = ConcurrentHashMap.newKeySet();
+    // epoch day to its generation and the epoch millis of its last write
+    private final NavigableMap<Long, Day> days = new ConcurrentSkipListMap<>();
+    private final AtomicLong weight = new AtomicLong();
+    // the cached entries from the least to the most recently used, changed together with entries
+    private final Map<Entry, Entry> recency = new LinkedHashMap<>(16, 0.75f, true);
+    private final Lock recencyLock = new ReentrantLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    @Autowired
+    public BirthDateRangeCache(UserConfigurationProperties properties) {
+        this(properties.getRangeCache().getMaxWeight().toBytes(), Clock.systemUTC());
+    }
+
+    /**
+     * @param maxWeight estimated heap size of the cached pages in bytes, 0 disables caching
+     */
+    public BirthDateRangeCache(long maxWeight, Clock clock) {
+        Assert.isTrue(maxWeight >= 0, "maxWeight must be not negative");
+        this.maxWeight = maxWeight;
+        this.clock = clock;
+        this.createdAt = clock.millis();
+    }
+
+    /**
+     * Cached page of the key, loaded and cached on a miss.
+     *
+     * @return the page with its last modification
+     */
+    public Page<User> get(Key key, Supplier<Page<User>> loader) {
+        final var entry = maxWeight > 0 ? entries.get(key) : null;
+        if (entry != null) {
+            recencyLock.lock();
+            try {
+                recency.get(entry);
+            } finally {
+                recencyLock.unlock();
+            }
+            hits.increment();
+            return entry.page.withLastModified(validator(entry.lastModified));
+        }
+        misses.increment();
+        // read before the page, so a concurrent write can only make it older than the page
+        final var before = stamp(key.from(), key.to());
+        final var page = loader.get();
+        if (maxWeight > 0) {
+            put(new Entry(key, page, before.lastModified(), weigh(page)), before.generation());
+        }
+        return page.withLastModified(validator(before.lastModified()));
+    }
+
+    @Override
+    public void onSave(User previous, User current) {
+        if (previous != null && !Objects.equals(previous.getBirthDate(), current.getBirthDate())) {
+            invalidate(previous.getBirthDate());
+        }
+        invalidate(current.getBirthDate());
+    }
+
+    @Override
+    public void onDelete(User previous) {
+        invalidate(previous.getBirthDate());
+    }
+
+    public Stats getStats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum(), invalidations.sum(), entries.size(), weight.get(), maxWeight);
+    }
+
+    /**
+     * Caches the entry, then checks that no write of its range ran since the page was loaded. A
+     * write after the check finds the entry in its year, as it is indexed before the check.
+     */
+    private void put(Entry entry, long generation) {
+        if (entry.weight > maxWeight) {
+            return;
+        }
+        recencyLock.lock();
+        try {
+            if (entries.putIfAbsent(entry.key, entry) != null) {
+                // loaded by another reader at the same time
+                return;
+            }
+            recency.put(entry, entry);
+        } finally {
+            recencyLock.unlock();
+        }
+        weight.addAndGet(entry.weight);
+        index(entry);
+        if (entries.get(entry.key) != entry) {
+            // evicted before it was indexed
+            unindex(entry);
+            return;
+        }
+        if (stamp(entry.key.from(), entry.key.to()).generation() != generation) {
+            remove(entry);
+            return;
+        }
+        if (weight.get() > maxWeight) {
+            evict();
+        }
+    }
+
+    /**
+     * Removes the least recently used entries until the cache is within its max weight.
+     */
+    private void evict() {
+        recencyLock.lock();
+        try {
+            final var eldest = recency.keySet().iterator();
+            while (weight.get() > maxWeight && eldest.hasNext()) {
+                final var entry = eldest.next();
+                eldest.remove();
+                entries.remove(entry.key, entry);
+                release(entry);
+                evictions.increment();
+            }
+        } finally {
+            recencyLock.unlock();
+        }
+    }
+
+    private void invalidate(LocalDate birthDate) {
+        if (birthDate == null) {
+            return;
+        }
+        final var now = clock.millis();
+        // bumped before the entries are visited, see put
+        days.merge(birthDate.toEpochDay(), new Day(1L, now),
+                (day, write) -> new Day(day.generation() + 1L, Math.max(day.lastModified(), now)));
+        invalidate(years.getOrDefault(birthDate.getYear(), Set.of()), birthDate);
+        invalidate(wide, birthDate);
+    }
+
+    private void invalidate(Set<Entry> candidates, LocalDate birthDate) {
+        for (var entry : candidates) {
+            if (entry.key.contains(birthDate) && remove(entry)) {
+                invalidations.increment();
+            }
+        }
+    }
+
+    /**
+     * @return true if the entry was still cached
+     */
+    private boolean remove(Entry entry) {
+        recencyLock.lock();
+        try {
+            if (!entries.remove(entry.key, entry)) {
+                return false;
+            }
+            recency.remove(entry);
+        } finally {
+            recencyLock.unlock();
+        }
+        release(entry);
+        return true;
+    }
+
+    private void release(Entry entry) {
+        unindex(entry);
+        weight.addAndGet(-entry.weight);
+    }
+
+    private void index(Entry entry) {
+        final var from = entry.key.from().getYear();
+        final var to = entry.key.to().getYear();
+        if (to - from >= MAX_INDEXED_YEARS) {
+            wide.add(entry);
+            return;
+        }
+        for (int year = from; year <= to; year++) {
+            years.computeIfAbsent(year, ignored -> ConcurrentHashMap.newKeySet()).add(entry);
+        }
+    }
+
+    private void unindex(Entry entry) {
+        final var from = entry.key.from().getYear();
+        final var to = entry.key.to().getYear();
+        if (to - from >= MAX_INDEXED_YEARS) {
+            wide.remove(entry);
+            return;
+        }
+        for (int year = from; year <= to; year++) {
+            final var indexed = years.get(year);
+            if (indexed != null) {
+                indexed.remove(entry);
+            }
+        }
+    }
+
+    /**
+     * Sum of the generations of the birth dates of the range and their last write.
+     */
+    private Stamp stamp(LocalDate from, LocalDate to) {
+        var generation = 0L;
+        var lastModified = createdAt;
+        if (!from.isAfter(to)) {
+            for (var day : days.subMap(from.toEpochDay(), true, to.toEpochDay(), true).values()) {
+                generation += day.generation();
+                lastModified = Math.max(lastModified, day.lastModified());
+            }
+        }
+        return new Stamp(generation, lastModified);
+    }
+
+    /**
+     * HTTP dates have a resolution of seconds, so a modification of the current second is no
+     * validator yet: another write of the same second would go unnoticed.
+     */
+    private long validator(long lastModified) {
+        return lastModified / 1000 < clock.millis() / 1000 ? lastModified : -1L;
+    }
+
+    private static long weigh(Page<User> page) {
+        var weight = ENTRY_BYTES + stringBytes(page.getNextCursor());
+        for (var user : page.getContent()) {
+            weight += USER_BYTES
+                    + stringBytes(user.getEmail())
+                    + stringBytes(user.getFirstName())
+                    + stringBytes(user.getLastName())
+                    + stringBytes(user.getAddress())
+                    + stringBytes(user.getPhone());
+        }
+        return weight;
+    }
+
+    private static long stringBytes(String value) {
+        return value == null ? 0L : STRING_BYTES + value.length();
+    }
+
+    /**
+     * @param cursor cursor of the page, or null for the first page
+     * @param limit  page size the request resolved to
+     */
+    public record Key(LocalDate from, LocalDate to, String cursor, int limit) {
+
+        boolean contains(LocalDate birthDate) {
+            return !birthDate.isBefore(from) && !birthDate.isAfter(to);
+        }
+    }
+
+    /**
+     * Cached page, equal to itself only, so removing it never removes a newer entry of its key.
+     */
+    private static final class Entry {
+        private final Key key;
+        private final Page<User> page;
+        private final long lastModified;
+        private final long weight;
+
+        Entry(Key key, Page<User> page, long lastModified, long weight) {
+            this.key = key;
+            this.page = page;
+            this.lastModified = lastModified;
+            this.weight = weight;
+        }
+    }
+
+    private record Day(long generation, long lastModified) {
+    }
+
+    private record Stamp(long generation, long lastModified) {
+    }
+
+    public record Stats(long hitCount, long missCount, long evictionCount, long invalidationCount,
+                        int size, long weight, long maxWeight) {
+
+        public double getHitRatio() {
+            final var requests = hitCount + missCount;
+            return requests == 0 ? 0.0 : (double) hitCount / requests;
+        }
+    }
+}
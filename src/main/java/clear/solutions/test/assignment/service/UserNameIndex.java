@@ -0,0 +1,430 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.EntityListener;
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Trigram index of the first and last names of the users, for searches by part of a name.
+ * <p>
+ * Names are normalized to lower case letters and digits without accents, every other character
+ * separates words. Each word is indexed by its trigrams, padded with two spaces in front and one
+ * behind, so that words of one or two letters find the names starting with them. The ids of a
+ * trigram are kept in a primitive buffer, sorted lazily, so appending the ids of new users costs
+ * no copy and restoring users in any order costs one sort. Removed ids are only appended to a
+ * second array and dropped from the first in one pass when the list is next searched. With the
+ * off-heap storage the buffers are direct, so the heap only holds an object per trigram.
+ * <p>
+ * A search intersects the posting lists of the trigrams of the query starting with the shortest
+ * one, then checks the names of the candidates, since trigrams also match words that only share
+ * them. The check makes a search cost the number of candidates, which is small for words of three
+ * letters or more but may be a large share of all users for shorter ones. Registered by the user
+ * service as a listener of the user dao, a write updates the lists of the trigrams that it adds or
+ * removes.
+ */
+@Component
+public class UserNameIndex implements EntityListener<User> {
+    private static final int EXACT = 3;
+    private static final int PREFIX = 2;
+    private static final int INFIX = 1;
+    // a map node, a boxed key, the posting object and the header of its array
+    private static final long POSTING_BYTES = 32L + 16L + 32L + 16L;
+    private static final Comparator<Match> RANK = Comparator.comparingInt(Match::score).reversed()
+            .thenComparing(match -> match.user().getId());
+
+    private final UserDao userDao;
+    private final boolean offHeap;
+    private final ConcurrentMap<Long, Posting> postings = new ConcurrentHashMap<>();
+    private final LongAdder users = new LongAdder();
+
+    @Autowired
+    public UserNameIndex(UserDao userDao, UserConfigurationProperties properties) {
+        this(userDao, properties.getStorage() == UserConfigurationProperties.Storage.OFF_HEAP);
+    }
+
+    public UserNameIndex(UserDao userDao) {
+        this(userDao, false);
+    }
+
+    /**
+     * @param userDao dao the candidates of a search are read from, which the index must listen to
+     * @param offHeap whether the posting lists are kept in direct buffers
+     */
+    public UserNameIndex(UserDao userDao, boolean offHeap) {
+        this.userDao = userDao;
+        this.offHeap = offHeap;
+    }
+
+    @Override
+    public void onSave(User previous, User current) {
+        final var trigrams = trigrams(current);
+        if (previous == null) {
+            users.increment();
+            trigrams.forEach(trigram -> posting(trigram).add(current.getId()));
+            return;
+        }
+        if (Objects.equals(previous.getFirstName(), current.getFirstName())
+                && Objects.equals(previous.getLastName(), current.getLastName())) {
+            return;
+        }
+        final var previousTrigrams = trigrams(previous);
+        for (var trigram : previousTrigrams) {
+            if (!trigrams.contains(trigram)) {
+                posting(trigram).remove(previous.getId());
+            }
+        }
+        for (var trigram : trigrams) {
+            if (!previousTrigrams.contains(trigram)) {
+                posting(trigram).add(current.getId());
+            }
+        }
+    }
+
+    @Override
+    public void onDelete(User previous) {
+        users.decrement();
+        trigrams(previous).forEach(trigram -> posting(trigram).remove(previous.getId()));
+    }
+
+    /**
+     * Users with a word of their first or last name containing every word of the query; query words
+     * of one or two letters must start a word. Users are ranked by how well the words match, whole
+     * words first, then words starting with the query word, then by id.
+     *
+     * @param limit max number of users to return
+     */
+    public List<User> search(String name, int limit) {
+        Assert.notNull(name, "name must be not null");
+        Assert.isTrue(limit > 0, "limit must be positive");
+        final var queryWords = words(name);
+        if (queryWords.isEmpty()) {
+            return List.of();
+        }
+        final var queryTrigrams = new HashSet<Long>();
+        for (var word : queryWords) {
+            queryTrigrams.addAll(queryTrigrams(word));
+        }
+        final var lists = new ArrayList<Posting>(queryTrigrams.size());
+        for (var trigram : queryTrigrams) {
+            final var posting = postings.get(trigram);
+            if (posting == null) {
+                return List.of();
+            }
+            lists.add(posting);
+        }
+        lists.sort(Comparator.comparingInt(Posting::size));
+        final var candidates = lists.get(0).toArray();
+        var count = candidates.length;
+        for (int i = 1; i < lists.size() && count > 0; i++) {
+            count = lists.get(i).retain(candidates, count);
+        }
+        // the worst of the best matches found so far on top
+        final var best = new PriorityQueue<>(RANK.reversed());
+        final var maxScore = EXACT * queryWords.size();
+        // candidates are in order of id, so none after a full page of whole word matches can rank higher
+        for (int i = 0; i < count && !(best.size() == limit && best.peek().score() == maxScore); i++) {
+            // the index may briefly lag behind a concurrent save of the same user
+            final var user = userDao.findById(candidates[i]).orElse(null);
+            final var score = user == null ? 0 : score(queryWords, words(user));
+            // a later candidate needs a greater score to rank above the worst of a full page
+            if (score > 0 && (best.size() < limit || score > best.peek().score())) {
+                best.add(new Match(user, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+        }
+        return best.stream().sorted(RANK).map(Match::user).toList();
+    }
+
+    /**
+     * Estimated heap size of the index, counting the unused capacity of the posting lists kept on
+     * the heap.
+     */
+    public Stats getStats() {
+        long ids = 0;
+        long bytes = 0;
+        for (var posting : postings.values()) {
+            ids += posting.size();
+            bytes += POSTING_BYTES + posting.capacityBytes();
+        }
+        final var indexed = users.sum();
+        return new Stats(indexed, postings.size(), ids, bytes, indexed == 0 ? 0 : bytes / indexed);
+    }
+
+    private Posting posting(long trigram) {
+        return postings.computeIfAbsent(trigram, key -> new Posting(offHeap));
+    }
+
+    /**
+     * Sum of the best match of every query word with a word of the name, or 0 if a query word
+     * matches none of them.
+     */
+    private static int score(List<String> queryWords, List<String> nameWords) {
+        var score = 0;
+        for (var queryWord : queryWords) {
+            var best = 0;
+            for (var nameWord : nameWords) {
+                if (nameWord.equals(queryWord)) {
+                    best = EXACT;
+                    break;
+                }
+                if (nameWord.startsWith(queryWord)) {
+                    best = PREFIX;
+                } else if (best == 0 && queryWord.length() >= 3 && nameWord.contains(queryWord)) {
+                    best = INFIX;
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            score += best;
+        }
+        return score;
+    }
+
+    private static Set<Long> trigrams(User user) {
+        final var trigrams = new HashSet<Long>();
+        for (var word : words(user)) {
+            final var padded = "  " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(trigram(padded, i));
+            }
+        }
+        return trigrams;
+    }
+
+    /**
+     * Trigrams inside the word, or the padded ones at its start if it is too short to have any.
+     */
+    private static List<Long> queryTrigrams(String word) {
+        final var trigrams = new ArrayList<Long>();
+        if (word.length() < 3) {
+            final var padded = "  " + word;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(trigram(padded, i));
+            }
+        } else {
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                trigrams.add(trigram(word, i));
+            }
+        }
+        return trigrams;
+    }
+
+    private static long trigram(String text, int start) {
+        return (long) text.charAt(start) << 32 | (long) text.charAt(start + 1) << 16 | text.charAt(start + 2);
+    }
+
+    private static List<String> words(User user) {
+        final var words = new ArrayList<>(words(user.getFirstName()));
+        words.addAll(words(user.getLastName()));
+        return words;
+    }
+
+    private static List<String> words(String name) {
+        if (name == null) {
+            return List.of();
+        }
+        // most names have no accent to strip, and they are normalized again for every search
+        final var text = name.chars().allMatch(c -> c < 0x80) ? name : Normalizer.normalize(name, Normalizer.Form.NFD);
+        final var words = new ArrayList<String>(2);
+        final var word = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            final var c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(Character.toLowerCase(c));
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && !word.isEmpty()) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Ids of the users having a trigram, compacted and sorted before they are searched.
+     * <p>
+     * An id removed and added again is twice in {@code ids} and once in {@code removed}, so the
+     * compaction drops one occurrence of an id for each time it was removed.
+     */
+    private static final class Posting {
+        private final boolean offHeap;
+        private LongBuffer ids;
+        private int size;
+        private boolean sorted = true;
+        // removed ids still in ids, in any order
+        private long[] removed = new long[0];
+        private int removedSize;
+
+        Posting(boolean offHeap) {
+            this.offHeap = offHeap;
+            ids = allocate(2);
+        }
+
+        synchronized void add(long id) {
+            if (size == ids.capacity()) {
+                resize(size + (size >> 1) + 1);
+            }
+            if (size > 0 && ids.get(size - 1) > id) {
+                sorted = false;
+            }
+            ids.put(size++, id);
+        }
+
+        synchronized void remove(long id) {
+            if (removedSize == removed.length) {
+                removed = Arrays.copyOf(removed, removedSize + (removedSize >> 1) + 1);
+            }
+            removed[removedSize++] = id;
+            // bounds the memory of the lists that are not searched, one compaction per size / 2 removals
+            if (removedSize > 16 && removedSize > size / 2) {
+                compact();
+            }
+        }
+
+        synchronized int size() {
+            return size - removedSize;
+        }
+
+        synchronized long capacityBytes() {
+            return (long) ((offHeap ? 0 : ids.capacity()) + removed.length) * Long.BYTES;
+        }
+
+        synchronized long[] toArray() {
+            compact();
+            final var copy = new long[size];
+            ids.get(0, copy);
+            return copy;
+        }
+
+        /**
+         * Keeps the candidates having the trigram at the start of the array. The candidates are in
+         * ascending order, so each one is searched after the position of the previous one.
+         *
+         * @return number of candidates kept
+         */
+        synchronized int retain(long[] candidates, int count) {
+            compact();
+            var kept = 0;
+            var from = 0;
+            for (int i = 0; i < count && from < size; i++) {
+                final var index = search(from, candidates[i]);
+                if (index >= 0) {
+                    candidates[kept++] = candidates[i];
+                    from = index + 1;
+                } else {
+                    from = -index - 1;
+                }
+            }
+            return kept;
+        }
+
+        /**
+         * Sorts the ids, then drops the removed ones in a single pass over both sorted arrays.
+         */
+        private void compact() {
+            if (!sorted) {
+                sort();
+                sorted = true;
+            }
+            if (removedSize == 0) {
+                return;
+            }
+            Arrays.sort(removed, 0, removedSize);
+            var kept = 0;
+            var next = 0;
+            for (int i = 0; i < size; i++) {
+                final var id = ids.get(i);
+                while (next < removedSize && removed[next] < id) {
+                    next++;
+                }
+                if (next < removedSize && removed[next] == id) {
+                    next++;
+                } else {
+                    ids.put(kept++, id);
+                }
+            }
+            size = kept;
+            removedSize = 0;
+            if (removed.length > 16) {
+                removed = new long[0];
+            }
+            if (ids.capacity() > 16 && size < ids.capacity() / 4) {
+                resize(ids.capacity() / 2);
+            }
+        }
+
+        private void sort() {
+            if (ids.hasArray()) {
+                Arrays.sort(ids.array(), 0, size);
+                return;
+            }
+            final var copy = new long[size];
+            ids.get(0, copy);
+            Arrays.sort(copy);
+            ids.put(0, copy);
+        }
+
+        /**
+         * Same contract as {@link Arrays#binarySearch(long[], int, int, long)} over {@code [from, size)}.
+         */
+        private int search(int from, long id) {
+            var low = from;
+            var high = size - 1;
+            while (low <= high) {
+                final var middle = (low + high) >>> 1;
+                final var value = ids.get(middle);
+                if (value < id) {
+                    low = middle + 1;
+                } else if (value > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private void resize(int capacity) {
+            final var resized = allocate(capacity);
+            resized.put(0, ids, 0, size);
+            ids = resized;
+        }
+
+        private LongBuffer allocate(int capacity) {
+            return offHeap ? ByteBuffer.allocateDirect(capacity * Long.BYTES).asLongBuffer() : LongBuffer.allocate(capacity);
+        }
+    }
+
+    private record Match(User user, int score) {
+    }
+
+    /**
+     * @param trigrams     distinct trigrams of the indexed names
+     * @param postings     ids in all posting lists together
+     * @param bytes        estimated heap size of the index
+     * @param bytesPerUser estimated heap size of the index per indexed user
+     */
+    public record Stats(long users, int trigrams, long postings, long bytes, long bytesPerUser) {
+    }
+}
@@ -1,16 +1,77 @@
 package clear.solutions.test.assignment.service;
 
+import clear.solutions.test.assignment.model.BatchOperation;
+import clear.solutions.test.assignment.model.BatchResult;
+import clear.solutions.test.assignment.model.Page;
 import clear.solutions.test.assignment.model.User;
 
 import java.time.LocalDate;
+import java.time.MonthDay;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 public interface UserService {
     User save(User user);
 
     User find(Long userId);
 
+    /**
+     * Applies the mutator to the stored user atomically, so concurrent updates of the user are
+     * never lost.
+     *
+     * @param expectedVersion version the user must have, or null for any version
+     */
+    User update(Long userId, Long expectedVersion, UnaryOperator<User> mutator);
+
     List<User> findByBirthDateRange(LocalDate from, LocalDate to);
 
+    Stream<User> streamByBirthDateRange(LocalDate from, LocalDate to);
+
+    Page<User> findByBirthDateRange(LocalDate from, LocalDate to, String cursor, Integer limit);
+
+    /**
+     * Users with a birthday on one of {@code days} consecutive dates, starting at the next date on
+     * or after today with the month and day of {@code from}.
+     *
+     * @param days number of dates, 1 when null
+     */
+    Page<User> findByBirthday(MonthDay from, Integer days, String cursor, Integer limit);
+
+    List<User> findByEmail(String email);
+
+    /**
+     * Users with the phone, however either of them is formatted.
+     */
+    List<User> findByPhone(String phone);
+
+    /**
+     * Users with first or last names matching the words of the name, best matches first.
+     *
+     * @param limit max number of users, the page size when null
+     */
+    List<User> searchByName(String name, Integer limit);
+
+    /**
+     * Counts of all users per birth year, age bracket and email domain, without reading the users.
+     */
+    UserStatistics.Stats getStats();
+
     void delete(Long userId);
+
+    /**
+     * @param expectedVersion version the user must have, or null for any version
+     */
+    void delete(Long userId, Long expectedVersion);
+
+    long deleteByBirthDateRange(LocalDate from, LocalDate to);
+
+    /**
+     * Validates all operations, then applies them in order.
+     *
+     * @param atomic when true, a failed operation reverts the ones applied before it and the
+     *               rest are not applied
+     * @return result of each operation, in the order of the operations
+     */
+    List<BatchResult> applyBatch(List<BatchOperation> operations, boolean atomic);
 }
@@ -1,36 +1,72 @@
 package clear.solutions.test.assignment.service;
 
 import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
-import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.dao.BirthDateKey;
+import clear.solutions.test.assignment.dao.DuplicateEmailException;
+import clear.solutions.test.assignment.dao.UserDao;
+import clear.solutions.test.assignment.dao.VersionConflictException;
 import clear.solutions.test.assignment.exception.ApiException;
 import clear.solutions.test.assignment.exception.Error;
+import clear.solutions.test.assignment.exception.ErrorMetrics;
+import clear.solutions.test.assignment.model.BatchOperation;
+import clear.solutions.test.assignment.model.BatchResult;
+import clear.solutions.test.assignment.model.Page;
 import clear.solutions.test.assignment.model.User;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.Collections;
+import java.time.MonthDay;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.function.UnaryOperator;
+import java.util.stream.Stream;
 
 @Service
 public class UserServiceImpl implements UserService {
+    private static final int MAX_BIRTHDAY_DAYS = 366;
 
     private final UserConfigurationProperties properties;
-    private final UserDaoImpl userDao;
+    private final UserDao userDao;
+    private final BirthDateRangeCache rangeCache;
+    private final UserStatistics statistics;
+    private final UserNameIndex nameIndex;
+    private final ErrorMetrics errorMetrics;
 
+    /**
+     * Registers the range cache, the statistics and the name index with the dao, before the storage
+     * is recovered if a write-ahead log is enabled.
+     */
     public UserServiceImpl(UserConfigurationProperties properties,
-                           UserDaoImpl userDao) {
+                           UserDao userDao,
+                           BirthDateRangeCache rangeCache,
+                           UserStatistics statistics,
+                           UserNameIndex nameIndex,
+                           ErrorMetrics errorMetrics) {
         this.properties = properties;
         this.userDao = userDao;
+        this.rangeCache = rangeCache;
+        this.statistics = statistics;
+        this.nameIndex = nameIndex;
+        this.errorMetrics = errorMetrics;
+        userDao.addListener(rangeCache);
+        userDao.addListener(statistics);
+        userDao.addListener(nameIndex);
     }
 
     @Override
     public User save(final User user) {
         this.checkMinAge(user);
-        return this.userDao.save(user);
+        return this.saveUnique(user);
     }
 
     @Override
@@ -39,27 +75,329 @@ public class UserServiceImpl implements UserService {
                 .orElseThrow(() -> new ApiException(Error.USER_NOT_FOUND));
     }
 
+    @Override
+    public User update(Long userId, Long expectedVersion, UnaryOperator<User> mutator) {
+        return this.updateUnique(userId, expectedVersion, previous -> {
+            final var user = mutator.apply(previous);
+            this.checkMinAge(user);
+            return user;
+        });
+    }
+
     @Override
     public List<User> findByBirthDateRange(LocalDate from, LocalDate to) {
         checkRange(from, to);
         return this.userDao.findByBirthDateRange(from, to);
     }
 
+    @Override
+    public Stream<User> streamByBirthDateRange(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return this.userDao.streamByBirthDateRange(from, to);
+    }
+
+    @Override
+    public Page<User> findByBirthDateRange(LocalDate from, LocalDate to, String cursor, Integer limit) {
+        final var errorDetails = rangeErrors(from, to);
+        putLimitError(errorDetails, limit);
+        final var after = Objects.isNull(cursor) ? null : decodeCursor(cursor);
+        if (Objects.nonNull(cursor) && Objects.isNull(after)) {
+            errorDetails.put("cursor", "Invalid cursor.");
+        }
+        if (!errorDetails.isEmpty()) {
+            throw new ApiException(Error.BAD_REQUEST, errorDetails);
+        }
+        final int pageSize = Objects.isNull(limit) ? properties.getPageSize() : limit;
+        return this.rangeCache.get(new BirthDateRangeCache.Key(from, to, cursor, pageSize), () -> {
+            final var users = this.userDao.findByBirthDateRange(from, to, after, pageSize + 1);
+            if (users.size() <= pageSize) {
+                return Page.of(users, null);
+            }
+            final var last = users.get(pageSize - 1);
+            return Page.of(users.subList(0, pageSize), encodeCursor(new BirthDateKey(last.getBirthDate(), last.getId())));
+        });
+    }
+
+    /**
+     * The cursor is the date and id of the last user of the previous page, so the next page starts
+     * at that date and skips the ids up to it.
+     */
+    @Override
+    public Page<User> findByBirthday(MonthDay from, Integer days, String cursor, Integer limit) {
+        final var errorDetails = new HashMap<String, String>();
+        if (Objects.isNull(from)) {
+            errorDetails.put("from", "Required parameter 'from' is not present.");
+        }
+        if (Objects.nonNull(days) && (days < 1 || days > MAX_BIRTHDAY_DAYS)) {
+            errorDetails.put("days", "Days must be between 1 and %d.".formatted(MAX_BIRTHDAY_DAYS));
+        }
+        putLimitError(errorDetails, limit);
+        final int windowDays = Objects.isNull(days) ? 1 : days;
+        final var start = Objects.isNull(from) ? null : nextOccurrence(from, LocalDate.now());
+        final var after = Objects.isNull(cursor) ? null : decodeCursor(cursor);
+        if (Objects.nonNull(cursor) && (Objects.isNull(after) || (Objects.nonNull(start)
+                && (after.getBirthDate().isBefore(start) || !after.getBirthDate().isBefore(start.plusDays(windowDays)))))) {
+            errorDetails.put("cursor", "Invalid cursor.");
+        }
+        if (!errorDetails.isEmpty()) {
+            throw new ApiException(Error.BAD_REQUEST, errorDetails);
+        }
+        final int pageSize = Objects.isNull(limit) ? properties.getPageSize() : limit;
+        final var first = Objects.isNull(after) ? start : after.getBirthDate();
+        final var remainingDays = windowDays - (int) ChronoUnit.DAYS.between(start, first);
+        final var users = this.userDao.findByBirthday(first, remainingDays, Objects.isNull(after) ? null : after.getId(), pageSize + 1);
+        if (users.size() <= pageSize) {
+            return Page.of(users, null);
+        }
+        final var last = users.get(pageSize - 1);
+        return Page.of(users.subList(0, pageSize), encodeCursor(new BirthDateKey(last.nextBirthday(first), last.getId())));
+    }
+
+    @Override
+    public List<User> findByEmail(String email) {
+        if (Objects.isNull(email) || email.isBlank()) {
+            throw new ApiException(Error.BAD_REQUEST, Map.of("email", "Email must be not blank."));
+        }
+        return this.userDao.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findByPhone(String phone) {
+        if (Objects.isNull(User.phoneKey(phone))) {
+            throw new ApiException(Error.BAD_REQUEST, Map.of("phone", "Phone must contain digits."));
+        }
+        return this.userDao.findByPhone(phone);
+    }
+
+    @Override
+    public List<User> searchByName(String name, Integer limit) {
+        final var errorDetails = new HashMap<String, String>();
+        if (Objects.isNull(name) || name.isBlank()) {
+            errorDetails.put("name", "Name must be not blank.");
+        }
+        putLimitError(errorDetails, limit);
+        if (!errorDetails.isEmpty()) {
+            throw new ApiException(Error.BAD_REQUEST, errorDetails);
+        }
+        return this.nameIndex.search(name, Objects.isNull(limit) ? properties.getPageSize() : limit);
+    }
+
+    @Override
+    public UserStatistics.Stats getStats() {
+        return this.statistics.getStats();
+    }
+
     @Override
     public void delete(Long userId) {
-        this.find(userId);
-        this.userDao.deleteById(userId);
+        this.delete(userId, null);
     }
 
-    private void checkMinAge(User user) {
+    @Override
+    public void delete(Long userId, Long expectedVersion) {
+        this.remove(userId, expectedVersion);
+    }
+
+    @Override
+    public long deleteByBirthDateRange(LocalDate from, LocalDate to) {
+        checkRange(from, to);
+        return this.userDao.deleteByBirthDateRange(from, to);
+    }
+
+    @Override
+    public List<BatchResult> applyBatch(List<BatchOperation> operations, boolean atomic) {
+        checkBatch(operations);
+        final var results = new BatchResult[operations.size()];
         final var lowestBirthDate = LocalDate.now().minusYears(properties.getMinAge());
-        if (user.getBirthDate() == null
-                || user.getBirthDate().isAfter(lowestBirthDate)) {
+        var rejected = false;
+        for (int i = 0; i < operations.size(); i++) {
+            final var user = operations.get(i).getUser();
+            if (Objects.nonNull(user) && !hasMinAge(user, lowestBirthDate)) {
+                results[i] = BatchResult.failed(Error.INVALID_AGE);
+                errorMetrics.count(Error.INVALID_AGE);
+                rejected = true;
+            }
+        }
+        if (atomic && rejected) {
+            return rollBack(results, new ArrayDeque<>());
+        }
+        final var undoLog = new ArrayDeque<Change>();
+        for (int i = 0; i < operations.size(); i++) {
+            if (Objects.nonNull(results[i])) {
+                continue;
+            }
+            try {
+                results[i] = BatchResult.applied(apply(i, operations.get(i), atomic ? undoLog : null));
+            } catch (ApiException exception) {
+                // returned in the results, so it never reaches the exception handler
+                errorMetrics.count(exception.getError());
+                results[i] = BatchResult.failed(exception.getError());
+                if (atomic) {
+                    return rollBack(results, undoLog);
+                }
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * @param undoLog receives every applied write when not null
+     */
+    private User apply(int index, BatchOperation operation, Deque<Change> undoLog) {
+        final var previous = new User[1];
+        final User current = switch (operation.getType()) {
+            case CREATE -> saveUnique(operation.getUser());
+            case UPDATE -> updateUnique(operation.getUserId(), null, user -> {
+                previous[0] = user;
+                return operation.getUser().withId(user.getId());
+            });
+            case PATCH -> updateUnique(operation.getUserId(), null, user -> {
+                previous[0] = user;
+                return operation.getPatch().apply(user);
+            });
+            case DELETE -> {
+                previous[0] = remove(operation.getUserId(), null);
+                yield null;
+            }
+        };
+        if (Objects.nonNull(undoLog)) {
+            undoLog.push(new Change(index, previous[0], current));
+        }
+        return current;
+    }
+
+    /**
+     * Reverts the applied writes, newest first, and marks every operation that is not failed as
+     * not applied. Batches are atomic but not isolated: concurrent readers may see the
+     * reverted writes in between, and a write that another request changed since is left as it
+     * is and reported as a conflict.
+     */
+    private List<BatchResult> rollBack(BatchResult[] results, Deque<Change> undoLog) {
+        // id to the version the undo of a newer write of the batch restored
+        final var versions = new HashMap<Long, Long>();
+        while (!undoLog.isEmpty()) {
+            final var change = undoLog.pop();
+            if (!undo(change, versions)) {
+                errorMetrics.count(Error.ROLLBACK_CONFLICT);
+                results[change.index()] = BatchResult.failed(Error.ROLLBACK_CONFLICT);
+            }
+        }
+        for (int i = 0; i < results.length; i++) {
+            if (Objects.isNull(results[i]) || results[i].isApplied()) {
+                results[i] = BatchResult.failed(Error.BATCH_ROLLED_BACK);
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Reverts a write only if the user still has the version the write stored, or the one the
+     * undo of a newer write of the batch restored.
+     *
+     * @param versions receives the version of the restored user
+     * @return false if another request changed the user since
+     */
+    private boolean undo(Change change, Map<Long, Long> versions) {
+        final var previous = change.previous();
+        final var current = change.current();
+        try {
+            if (Objects.isNull(previous)) {
+                // a create deleted since is undone already
+                this.userDao.removeIfPresent(current.getId(), versions.getOrDefault(current.getId(), current.getVersion()));
+                return true;
+            }
+            final User restored;
+            if (Objects.isNull(current)) {
+                // ids are never handed out again, nothing else can have stored the deleted one
+                if (!this.userDao.undelete(previous)) {
+                    return false;
+                }
+                restored = previous;
+            } else {
+                final var expectedVersion = versions.getOrDefault(current.getId(), current.getVersion());
+                final var reverted = this.userDao.update(current.getId(), expectedVersion, user -> previous);
+                if (reverted.isEmpty()) {
+                    return false;
+                }
+                restored = reverted.get();
+            }
+            versions.put(restored.getId(), restored.getVersion());
+            return true;
+        } catch (VersionConflictException | DuplicateEmailException exception) {
+            return false;
+        }
+    }
+
+    private User saveUnique(User user) {
+        try {
+            return this.userDao.save(user);
+        } catch (DuplicateEmailException exception) {
+            throw new ApiException(Error.EMAIL_ALREADY_EXISTS);
+        }
+    }
+
+    private User updateUnique(Long userId, Long expectedVersion, UnaryOperator<User> mutator) {
+        try {
+            return this.userDao.update(userId, expectedVersion, mutator)
+                    .orElseThrow(() -> new ApiException(Error.USER_NOT_FOUND));
+        } catch (DuplicateEmailException exception) {
+            throw new ApiException(Error.EMAIL_ALREADY_EXISTS);
+        } catch (VersionConflictException exception) {
+            throw new ApiException(Error.VERSION_MISMATCH);
+        }
+    }
+
+    private User remove(Long userId, Long expectedVersion) {
+        try {
+            return this.userDao.removeIfPresent(userId, expectedVersion)
+                    .orElseThrow(() -> new ApiException(Error.USER_NOT_FOUND));
+        } catch (VersionConflictException exception) {
+            throw new ApiException(Error.VERSION_MISMATCH);
+        }
+    }
+
+    private void checkBatch(List<BatchOperation> operations) {
+        final var errorDetails = new HashMap<String, String>();
+        final var maxBatchSize = properties.getMaxBatchSize();
+        if (operations.isEmpty() || operations.size() > maxBatchSize) {
+            errorDetails.put("data", "Batch must hold between 1 and %d operations.".formatted(maxBatchSize));
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            final var operation = operations.get(i);
+            final var type = operation.getType();
+            if (type != BatchOperation.Type.CREATE && Objects.isNull(operation.getUserId())) {
+                errorDetails.put("data[%d].userId".formatted(i), "User id must be present.");
+            }
+            if ((type == BatchOperation.Type.CREATE || type == BatchOperation.Type.UPDATE) && Objects.isNull(operation.getUser())) {
+                errorDetails.put("data[%d].user".formatted(i), "User must be present.");
+            }
+            if (type == BatchOperation.Type.PATCH && Objects.isNull(operation.getPatch())) {
+                errorDetails.put("data[%d].contacts".formatted(i), "Contacts must be present.");
+            }
+        }
+        if (!errorDetails.isEmpty()) {
+            throw new ApiException(Error.BAD_REQUEST, errorDetails);
+        }
+    }
+
+    private void checkMinAge(User user) {
+        if (!hasMinAge(user, LocalDate.now().minusYears(properties.getMinAge()))) {
             throw new ApiException(Error.INVALID_AGE);
         }
     }
 
+    private static boolean hasMinAge(User user, LocalDate lowestBirthDate) {
+        return !user.getBirthDate().isAfter(lowestBirthDate);
+    }
+
     private void checkRange(LocalDate from, LocalDate to) {
+        final var errorDetails = rangeErrors(from, to);
+        if (errorDetails.isEmpty()) {
+            return;
+        }
+        throw new ApiException(Error.BAD_REQUEST, errorDetails);
+    }
+
+    private Map<String, String> rangeErrors(LocalDate from, LocalDate to) {
         final var errorDetails = new HashMap<String, String>();
         if (Objects.isNull(from)) {
             errorDetails.put("from", "Required parameter 'from' is not present.");
@@ -70,9 +408,44 @@ public class UserServiceImpl implements UserService {
         if (Objects.nonNull(from) && Objects.nonNull(to) && from.isAfter(to)) {
             errorDetails.put("to, from", "To must be greater or equals from.");
         }
-        if (errorDetails.isEmpty()) {
-            return;
+        return errorDetails;
+    }
+
+    private void putLimitError(Map<String, String> errorDetails, Integer limit) {
+        final var maxPageSize = properties.getMaxPageSize();
+        if (Objects.nonNull(limit) && (limit < 1 || limit > maxPageSize)) {
+            errorDetails.put("limit", "Limit must be between 1 and %d.".formatted(maxPageSize));
         }
-        throw new ApiException(Error.BAD_REQUEST, errorDetails);
+    }
+
+    /**
+     * February 29 falls on February 28 in the years that are not leap years.
+     */
+    private static LocalDate nextOccurrence(MonthDay monthDay, LocalDate today) {
+        final var date = monthDay.atYear(today.getYear());
+        return date.isBefore(today) ? monthDay.atYear(today.getYear() + 1) : date;
+    }
+
+    private static String encodeCursor(BirthDateKey key) {
+        final var value = "%s:%d".formatted(key.getBirthDate(), key.getId());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static BirthDateKey decodeCursor(String cursor) {
+        try {
+            final var value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            final var separator = value.indexOf(':');
+            return new BirthDateKey(LocalDate.parse(value.substring(0, separator)), Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException exception) {
+            return null;
+        }
+    }
+
+    /**
+     * Applied batch write, {@code previous} is null for a create and {@code current} for a delete.
+     *
+     * @param index position of the operation in the batch
+     */
+    private record Change(int index, User previous, User current) {
     }
 }
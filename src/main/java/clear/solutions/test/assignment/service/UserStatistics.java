@@ -0,0 +1,145 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.EntityListener;
+import clear.solutions.test.assignment.model.User;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of the users per birth year, age bracket and email domain, kept up to date by the writes
+ * of the user dao, so reading them costs the number of buckets rather than the number of users.
+ * <p>
+ * A write moves the user between the buckets of its previous and new values. The counters are
+ * {@link LongAdder}s, so concurrent writers of one bucket do not contend; a read sums each
+ * counter separately and may see a write in one bucket but not yet in another. Ages change with
+ * time, so they are counted per birth date and grouped into brackets when read. Buckets emptied
+ * by writes are kept and left out of the reads.
+ */
+@Component
+public class UserStatistics implements EntityListener<User> {
+    private static final int BRACKET_YEARS = 10;
+
+    private final int minAge;
+    private final Clock clock;
+    private final ConcurrentMap<Integer, LongAdder> birthYears = new ConcurrentHashMap<>();
+    private final ConcurrentMap<LocalDate, LongAdder> birthDates = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, LongAdder> emailDomains = new ConcurrentHashMap<>();
+
+    @Autowired
+    public UserStatistics(UserConfigurationProperties properties) {
+        this(properties.getMinAge(), Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param minAge lower bound of the first age bracket, younger users have a bracket of their own
+     */
+    public UserStatistics(int minAge, Clock clock) {
+        Assert.isTrue(minAge >= 0, "minAge must be not negative");
+        this.minAge = minAge;
+        this.clock = clock;
+    }
+
+    @Override
+    public void onSave(User previous, User current) {
+        if (previous != null) {
+            if (!Objects.equals(previous.getBirthDate(), current.getBirthDate())) {
+                countBirthDate(previous.getBirthDate(), -1L);
+                countBirthDate(current.getBirthDate(), 1L);
+            }
+            final var previousDomain = previous.emailDomain();
+            final var domain = current.emailDomain();
+            if (!previousDomain.equals(domain)) {
+                count(emailDomains, previousDomain, -1L);
+                count(emailDomains, domain, 1L);
+            }
+            return;
+        }
+        countBirthDate(current.getBirthDate(), 1L);
+        count(emailDomains, current.emailDomain(), 1L);
+    }
+
+    @Override
+    public void onDelete(User previous) {
+        countBirthDate(previous.getBirthDate(), -1L);
+        count(emailDomains, previous.emailDomain(), -1L);
+    }
+
+    public Stats getStats() {
+        final var years = sums(birthYears, new TreeMap<>());
+        final var total = years.values().stream().mapToLong(Long::longValue).sum();
+        return new Stats(total, years, ageBrackets(), byCountDescending(sums(emailDomains, new TreeMap<>())));
+    }
+
+    /**
+     * Brackets of {@value #BRACKET_YEARS} years starting at the min age, labelled by their first and
+     * last age, in order of age. Users younger than the min age, or born after today, share the
+     * bracket below it.
+     */
+    private Map<String, Long> ageBrackets() {
+        final var today = LocalDate.now(clock);
+        final var brackets = new TreeMap<Integer, Long>();
+        birthDates.forEach((birthDate, counter) -> {
+            final var count = counter.sum();
+            if (count > 0) {
+                final var age = ChronoUnit.YEARS.between(birthDate, today);
+                final var bracket = age < minAge ? -1 : (int) ((age - minAge) / BRACKET_YEARS);
+                brackets.merge(bracket, count, Long::sum);
+            }
+        });
+        final var labelled = new LinkedHashMap<String, Long>();
+        brackets.forEach((bracket, count) -> labelled.put(bracket < 0
+                ? "0-%d".formatted(minAge - 1)
+                : "%d-%d".formatted(minAge + bracket * BRACKET_YEARS, minAge + (bracket + 1) * BRACKET_YEARS - 1), count));
+        return labelled;
+    }
+
+    private void countBirthDate(LocalDate birthDate, long delta) {
+        count(birthYears, birthDate.getYear(), delta);
+        count(birthDates, birthDate, delta);
+    }
+
+    private static <K> void count(ConcurrentMap<K, LongAdder> counters, K key, long delta) {
+        counters.computeIfAbsent(key, it -> new LongAdder()).add(delta);
+    }
+
+    private static <K, M extends Map<K, Long>> M sums(Map<K, LongAdder> counters, M target) {
+        counters.forEach((key, counter) -> {
+            final var count = counter.sum();
+            if (count > 0) {
+                target.put(key, count);
+            }
+        });
+        return target;
+    }
+
+    private static Map<String, Long> byCountDescending(Map<String, Long> counts) {
+        final var sorted = new LinkedHashMap<String, Long>();
+        counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue(Comparator.reverseOrder()))
+                .forEach(entry -> sorted.put(entry.getKey(), entry.getValue()));
+        return sorted;
+    }
+
+    /**
+     * @param birthYears   users per birth year, in order of the year
+     * @param ageBrackets  users per age bracket, in order of age
+     * @param emailDomains users per email domain, the most frequent first
+     */
+    public record Stats(long total, Map<Integer, Long> birthYears, Map<String, Long> ageBrackets,
+                        Map<String, Long> emailDomains) {
+    }
+}
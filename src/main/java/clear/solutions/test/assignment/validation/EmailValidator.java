@@ -0,0 +1,116 @@
+package clear.solutions.test.assignment.validation;
+
+import clear.solutions.test.assignment.constants.ApiConstants;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.net.IDN;
+
+/**
+ * Accepts the emails that {@code @Email(regexp = ApiConstants.EMAIL_REGEX)} accepts, in a single
+ * pass over the characters without allocating. That constraint applies Hibernate Validator's own
+ * email checks first and {@link ApiConstants#EMAIL_REGEX} after them, so the accepted language is
+ * the regex narrowed down by those checks:
+ * <ul>
+ *     <li>local part: dot separated runs of {@code [A-Za-z0-9_-]}, at most 64 characters</li>
+ *     <li>domain: at least two dot separated labels, the first one starts with any character
+ *     Hibernate Validator allows in a domain except {@code -}, the rest of the labels is made of
+ *     {@code [A-Za-z0-9-]}, the last one of at least two letters</li>
+ *     <li>labels do not start or end with {@code -} and have at most 63 characters, the domain at
+ *     most 255</li>
+ * </ul>
+ * A non-ASCII first character of the domain is left to {@link IDN#toASCII(String)}, as Hibernate
+ * Validator does.
+ */
+public class EmailValidator implements ConstraintValidator<ValidEmail, CharSequence> {
+    private static final int MAX_LOCAL_PART_LENGTH = 64;
+    private static final int MAX_LABEL_LENGTH = 63;
+    private static final int MAX_DOMAIN_LENGTH = 255;
+
+    @Override
+    public boolean isValid(CharSequence value, ConstraintValidatorContext context) {
+        return value == null || isValid(value);
+    }
+
+    public static boolean isValid(CharSequence value) {
+        final var length = value.length();
+        var i = 0;
+        var segmentLength = 0;
+        for (; i < length && i <= MAX_LOCAL_PART_LENGTH; i++) {
+            final var ch = value.charAt(i);
+            if (isLetterOrDigit(ch) || ch == '_' || ch == '-') {
+                segmentLength++;
+            } else if (ch == '.' && segmentLength > 0) {
+                segmentLength = 0;
+            } else {
+                break;
+            }
+        }
+        if (segmentLength == 0 || i > MAX_LOCAL_PART_LENGTH || i == length || value.charAt(i) != '@') {
+            return false;
+        }
+        final var domainStart = ++i;
+        // only the first character of a domain may be non-ASCII, IDN drops it at most
+        if (i == length || length - domainStart > MAX_DOMAIN_LENGTH + 1 || !isFirstDomainChar(value.charAt(i))) {
+            return false;
+        }
+        final var ascii = value.charAt(i) < 0x80;
+        var labels = 1;
+        var labelLength = 1;
+        var letters = false;
+        var last = value.charAt(i);
+        for (i++; i < length; i++) {
+            final var ch = value.charAt(i);
+            if (ch == '.') {
+                // the first label is one character and a run of at least one more
+                if (labelLength < (labels == 1 ? 2 : 1) || last == '-' || (ascii && labelLength > MAX_LABEL_LENGTH)) {
+                    return false;
+                }
+                labels++;
+                labelLength = 0;
+                letters = true;
+            } else if (isLetterOrDigit(ch) || ch == '-') {
+                if (labelLength == 0 && ch == '-') {
+                    return false;
+                }
+                labelLength++;
+                letters &= !isDigit(ch) && ch != '-';
+                last = ch;
+            } else {
+                return false;
+            }
+        }
+        if (labels < 2 || !letters || labelLength < 2 || labelLength > MAX_LABEL_LENGTH) {
+            return false;
+        }
+        return ascii
+                ? length - domainStart <= MAX_DOMAIN_LENGTH
+                : isValidInternationalDomain(value.subSequence(domainStart, length).toString());
+    }
+
+    /**
+     * Any character of a Hibernate Validator domain label except {@code -}.
+     */
+    private static boolean isFirstDomainChar(char ch) {
+        if (ch >= 0x80) {
+            return true;
+        }
+        return isLetterOrDigit(ch) || "!#$%&'*+/=?^_`{|}~".indexOf(ch) >= 0;
+    }
+
+    private static boolean isValidInternationalDomain(String domain) {
+        try {
+            return IDN.toASCII(domain).length() <= MAX_DOMAIN_LENGTH;
+        } catch (IllegalArgumentException exception) {
+            return false;
+        }
+    }
+
+    private static boolean isLetterOrDigit(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || isDigit(ch);
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+}
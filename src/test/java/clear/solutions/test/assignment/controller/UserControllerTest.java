@@ -2,16 +2,21 @@ package clear.solutions.test.assignment.controller;
 
 import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
 import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.dto.BatchOperationDto;
 import clear.solutions.test.assignment.dto.DataDto;
 import clear.solutions.test.assignment.dto.CreateUserDto;
 import clear.solutions.test.assignment.dto.UserContactsDto;
 import clear.solutions.test.assignment.dto.UserDto;
 import clear.solutions.test.assignment.exception.Error;
+import clear.solutions.test.assignment.model.BatchOperation;
 import clear.solutions.test.assignment.model.User;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.hamcrest.Matchers;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -31,8 +36,10 @@ import org.springframework.test.web.servlet.MvcResult;
 import java.io.IOException;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
 
+import static org.hamcrest.Matchers.hasItem;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
@@ -40,6 +47,7 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
@@ -49,6 +57,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @ActiveProfiles("test")
@@ -82,6 +91,8 @@ class UserControllerTest {
     private static UserContactsDto PATCH_USER_PHONE_REQUEST;
     private static UserContactsDto PATCH_USER_REQUEST_WITH_INVALID_EMAIL;
 
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final ObjectMapper objectMapper = new ObjectMapper()
             .registerModule(new JavaTimeModule());
 
@@ -91,6 +102,8 @@ class UserControllerTest {
     private UserConfigurationProperties properties;
     @SpyBean
     private UserDaoImpl userDao;
+    @Autowired
+    private MeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
@@ -98,13 +111,9 @@ class UserControllerTest {
 
         final var validBirthDate = LocalDate.now().minusYears(properties.getMinAge() + 1);
 
-        USER = new User();
-        USER.setEmail(VALID_EMAIL);
-        USER.setFirstName(FIRST_NAME);
-        USER.setLastName(LAST_NAME);
-        USER.setBirthDate(validBirthDate);
+        USER = new User(null, VALID_EMAIL, FIRST_NAME, LAST_NAME, validBirthDate, null, null);
         final var saved = userDao.save(USER);
-        assertNotSame(USER, saved, "User dao save must return a clone of saved entity");
+        assertNotSame(USER, saved, "User dao save must return a snapshot with assigned id");
         USER = saved;
         Mockito.clearInvocations(userDao);
 
@@ -156,13 +165,7 @@ class UserControllerTest {
         final var countDays = 10;
         var userBirthDate = LocalDate.now().minusDays(5L);
         for (int i = 0; i < countDays; i++) {
-            final var user = new User();
-            user.setEmail("email%d@gmail.com".formatted(i));
-            user.setFirstName("name%d".formatted(i));
-            user.setLastName("last%d".formatted(i));
-            user.setBirthDate(userBirthDate);
-            user.setAddress("address%d".formatted(i));
-            user.setPhone("phone%d".formatted(i));
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), userBirthDate, "address%d".formatted(i), "phone%d".formatted(i));
             userDao.save(user);
             userBirthDate = userBirthDate.plusDays(1L);
         }
@@ -180,6 +183,50 @@ class UserControllerTest {
                 && (user.getBirthDate().equals(toDate) || user.getBirthDate().isBefore(toDate))));
     }
 
+    @Test
+    @DisplayName("Find users by birth date range page by page - OK")
+    void findUsersByBirthDateRange_paged_ok() throws Exception {
+        userDao.deleteAll();
+        final var birthDate = LocalDate.now().minusYears(30);
+        for (int i = 0; i < 5; i++) {
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), birthDate, null, null);
+            userDao.save(user);
+        }
+        final var ids = new ArrayList<Long>();
+        String cursor = null;
+        do {
+            final var request = get("/users")
+                    .param("from", birthDate.format(DateTimeFormatter.ISO_DATE))
+                    .param("to", birthDate.format(DateTimeFormatter.ISO_DATE))
+                    .param("limit", "2");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            final var mvcResult = mockMvc.perform(request)
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andReturn();
+            final var result = readJson(mvcResult.getResponse().getContentAsByteArray(), new TypeReference<DataDto<List<UserDto>>>() {});
+            result.getData().forEach(user -> ids.add(user.getId()));
+            cursor = result.getNextCursor();
+        } while (cursor != null);
+        assertEquals(userDao.findByBirthDateRange(birthDate, birthDate).stream().map(User::getId).toList(), ids);
+    }
+
+    @Test
+    @DisplayName("Find users by birth date range with invalid limit returns 400")
+    void findUsersByBirthDateRange_withInvalidLimit_returns400() throws Exception {
+        mockMvc.perform(get("/users")
+                        .param("from", LocalDate.now().format(DateTimeFormatter.ISO_DATE))
+                        .param("to", LocalDate.now().format(DateTimeFormatter.ISO_DATE))
+                        .param("limit", "0"))
+                .andDo(print())
+                .andExpect(status().is(Error.BAD_REQUEST.getHttpStatus().value()))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.details").value(Matchers.hasEntry("limit", "Limit must be between 1 and %d.".formatted(properties.getMaxPageSize()))))
+                .andExpect(jsonPath("$.path").value("/users"));
+    }
+
     @Test
     @DisplayName("Find users by birth date range with null from param returns 400")
     void findUsersByBirthDateRange_withNullFromParam_returns400() throws Exception {
@@ -225,6 +272,60 @@ class UserControllerTest {
                 .andExpect(jsonPath("$.path").value("/users"));
     }
 
+    @Test
+    @DisplayName("Stream users by birth date range as NDJSON - OK")
+    void streamUsersByBirthDateRange_ok() throws Exception {
+        userDao.deleteAll();
+        var userBirthDate = LocalDate.now().minusDays(5L);
+        for (int i = 0; i < 10; i++) {
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), userBirthDate, null, null);
+            userDao.save(user);
+            userBirthDate = userBirthDate.plusDays(1L);
+        }
+        final var fromDate = LocalDate.now().minusDays(1);
+        final var toDate = LocalDate.now().plusDays(1);
+        final var byAcceptHeader = mockMvc.perform(get("/users")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("from", fromDate.format(DateTimeFormatter.ISO_DATE))
+                        .param("to", toDate.format(DateTimeFormatter.ISO_DATE)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final var byFlag = mockMvc.perform(get("/users")
+                        .param("stream", "true")
+                        .param("from", fromDate.format(DateTimeFormatter.ISO_DATE))
+                        .param("to", toDate.format(DateTimeFormatter.ISO_DATE)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        for (MvcResult asyncResult : List.of(byAcceptHeader, byFlag)) {
+            final var mvcResult = mockMvc.perform(asyncDispatch(asyncResult))
+                    .andDo(print())
+                    .andExpect(status().isOk())
+                    .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                    .andReturn();
+            final var lines = mvcResult.getResponse().getContentAsString().split("\n");
+            assertEquals(3, lines.length);
+            for (String line : lines) {
+                final var user = objectMapper.readValue(line, UserDto.class);
+                assertTrue(!user.getBirthDate().isBefore(fromDate) && !user.getBirthDate().isAfter(toDate));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Stream users by birth date range with invalid range returns 400")
+    void streamUsersByBirthDateRange_withInvalidRange_returns400() throws Exception {
+        mockMvc.perform(get("/users")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .param("from", LocalDate.now().format(DateTimeFormatter.ISO_DATE))
+                        .param("to", LocalDate.now().minusYears(1).format(DateTimeFormatter.ISO_DATE)))
+                .andDo(print())
+                .andExpect(status().is(Error.BAD_REQUEST.getHttpStatus().value()))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.reason").value(Error.BAD_REQUEST.getReason()))
+                .andExpect(jsonPath("$.details").value(Matchers.hasEntry("to, from", "To must be greater or equals from.")))
+                .andExpect(jsonPath("$.path").value("/users"));
+    }
+
     @Test
     @DisplayName("Register user - OK")
     void register_ok() throws Exception {
@@ -258,6 +359,53 @@ class UserControllerTest {
         assertEquals(VALID_REGISTER_REQUEST.getPhone(), saved.getPhone());
     }
 
+    @Test
+    @DisplayName("Register user with CBOR body - OK")
+    void register_cbor_ok() throws Exception {
+        final var cborMapper = new CBORMapper();
+        cborMapper.registerModule(new JavaTimeModule());
+        final var mvcResult = mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_CBOR)
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .content(cborMapper.writeValueAsBytes(DataDto.of(VALID_REGISTER_REQUEST))))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn();
+
+        final var response = cborMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), new TypeReference<DataDto<UserDto>>() {});
+        final var saved = userDao.findById(response.getData().getId()).orElseThrow();
+        assertEquals(VALID_REGISTER_REQUEST.getEmail(), response.getData().getEmail());
+        assertEquals(VALID_REGISTER_REQUEST.getBirthDate(), response.getData().getBirthDate());
+        assertEquals(VALID_REGISTER_REQUEST.getBirthDate(), saved.getBirthDate());
+        assertEquals(VALID_REGISTER_REQUEST.getPhone(), saved.getPhone());
+    }
+
+    @Test
+    @DisplayName("Find users by birth date range with Smile, JSON by default - OK")
+    void findUsersByBirthDateRange_smile_ok() throws Exception {
+        final var smileMapper = new SmileMapper();
+        smileMapper.registerModule(new JavaTimeModule());
+        final var from = USER.getBirthDate().format(DateTimeFormatter.ISO_DATE);
+        final var mvcResult = mockMvc.perform(get("/users")
+                        .param("from", from)
+                        .param("to", from)
+                        .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn();
+
+        final var result = smileMapper.readValue(mvcResult.getResponse().getContentAsByteArray(), new TypeReference<DataDto<List<UserDto>>>() {});
+        assertEquals(1, result.getData().size());
+        assertEquals(USER.getId(), result.getData().get(0).getId());
+        assertEquals(USER.getBirthDate(), result.getData().get(0).getBirthDate());
+        mockMvc.perform(get("/users")
+                        .param("from", from)
+                        .param("to", from)
+                        .accept(MediaType.ALL))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
     @Test
     @DisplayName("Register user with null data returns 400")
     void register_withNullData_returns400() throws Exception {
@@ -586,6 +734,162 @@ class UserControllerTest {
         assertEquals(PATCH_USER_CONTACTS_REQUEST.getPhone(), patched.getPhone());
     }
 
+    @Test
+    @DisplayName("Patch user with matching If-Match - OK")
+    void patchUser_withMatchingIfMatch_ok() throws Exception {
+        final var version = userDao.findById(USER.getId()).orElseThrow().getVersion();
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"%d\"".formatted(version))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(PATCH_USER_CONTACTS_REQUEST))))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"%d\"".formatted(version + 1)))
+                .andExpect(jsonPath("$.data.email").value(PATCH_USER_CONTACTS_REQUEST.getEmail()));
+        assertEquals(version + 1, userDao.findById(USER.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    @DisplayName("Patch user with stale If-Match returns 412")
+    void patchUser_withStaleIfMatch_returns412() throws Exception {
+        final var stored = userDao.findById(USER.getId()).orElseThrow();
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .header(HttpHeaders.IF_MATCH, "\"%d\"".formatted(stored.getVersion() + 1))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(PATCH_USER_CONTACTS_REQUEST))))
+                .andDo(print())
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.reason").value(Error.VERSION_MISMATCH.getReason()));
+        assertEquals(stored, userDao.findById(USER.getId()).orElseThrow());
+        assertEquals(stored.getVersion(), userDao.findById(USER.getId()).orElseThrow().getVersion());
+    }
+
+    @Test
+    @DisplayName("Find users by birth date range with If-Modified-Since returns 304 until the range changes")
+    void findUsersByBirthDateRange_withIfModifiedSince_returns304() throws Exception {
+        final var from = USER.getBirthDate().minusDays(1).format(DateTimeFormatter.ISO_DATE);
+        final var to = USER.getBirthDate().plusDays(1).format(DateTimeFormatter.ISO_DATE);
+        // a write of the current second gives no validator
+        Thread.sleep(1000);
+        final var lastModified = mockMvc.perform(get("/users").param("from", from).param("to", to))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.LAST_MODIFIED);
+        mockMvc.perform(get("/users").param("from", from).param("to", to)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        userDao.save(USER.withBirthDate(USER.getBirthDate().minusYears(10)));
+        Thread.sleep(1000);
+        mockMvc.perform(get("/users").param("from", from).param("to", to)
+                        .header(HttpHeaders.IF_MODIFIED_SINCE, lastModified))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data", Matchers.hasSize(0)));
+    }
+
+    @Test
+    @DisplayName("Range cache stats are exposed")
+    void rangeCacheStats_ok() throws Exception {
+        mockMvc.perform(get("/actuator/rangecache"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.hitCount").isNumber())
+                .andExpect(jsonPath("$.evictionCount").isNumber())
+                .andExpect(jsonPath("$.hitRatio").isNumber());
+    }
+
+    @Test
+    @DisplayName("Find user by id - OK")
+    void findUser_ok() throws Exception {
+        final var stored = userDao.findById(USER.getId()).orElseThrow();
+        mockMvc.perform(get("/users/{userId}", USER.getId()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"%d\"".formatted(stored.getVersion())))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.id").value(USER.getId()))
+                .andExpect(jsonPath("$.data.email").value(stored.getEmail()))
+                .andExpect(jsonPath("$.data.birthDate").value(stored.getBirthDate().format(DateTimeFormatter.ISO_DATE)));
+    }
+
+    @Test
+    @DisplayName("Find user with current If-None-Match returns 304 until the user changes")
+    void findUser_withIfNoneMatch_returns304() throws Exception {
+        final var entityTag = mockMvc.perform(get("/users/{userId}", USER.getId()))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/users/{userId}", USER.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, entityTag))
+                .andExpect(content().string(""));
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(PATCH_USER_CONTACTS_REQUEST))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{userId}", USER.getId())
+                        .header(HttpHeaders.IF_NONE_MATCH, entityTag))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.email").value(PATCH_USER_CONTACTS_REQUEST.getEmail()));
+    }
+
+    @Test
+    @DisplayName("Find user tags each representation of a version differently")
+    void findUser_entityTagPerMediaType() throws Exception {
+        final var version = userDao.findById(USER.getId()).orElseThrow().getVersion();
+        final var jsonTag = "\"%d\"".formatted(version);
+        final var cborTag = "\"%d-cbor\"".formatted(version);
+        mockMvc.perform(get("/users/{userId}", USER.getId()))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, jsonTag))
+                .andExpect(header().stringValues(HttpHeaders.VARY, hasItem(HttpHeaders.ACCEPT)));
+        mockMvc.perform(get("/users/{userId}", USER.getId())
+                        .accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string(HttpHeaders.ETAG, cborTag));
+        mockMvc.perform(get("/users/{userId}", USER.getId())
+                        .accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"%d-x-jackson-smile\"".formatted(version)));
+        // a cached JSON body is no answer to a request for CBOR
+        mockMvc.perform(get("/users/{userId}", USER.getId())
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonTag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users/{userId}", USER.getId())
+                        .accept(MediaType.APPLICATION_CBOR)
+                        .header(HttpHeaders.IF_NONE_MATCH, cborTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, cborTag));
+        // the tag of any representation names the version a write expects
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .header(HttpHeaders.IF_MATCH, cborTag)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(PATCH_USER_CONTACTS_REQUEST))))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"%d\"".formatted(version + 1)));
+    }
+
+    @Test
+    @DisplayName("Find user with non-existing id returns 404 and counts the error")
+    void findUser_withNonExistingId_returns404() throws Exception {
+        final var errors = meterRegistry.get("user.api.errors").tag("error", Error.USER_NOT_FOUND.name()).counter();
+        final var counted = errors.count();
+        mockMvc.perform(get("/users/{userId}", NON_EXISTING_USER_ID))
+                .andDo(print())
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.reason").value(Error.USER_NOT_FOUND.getReason()));
+        assertEquals(counted + 1, errors.count());
+    }
+
     @Test
     @DisplayName("Patch user email only - OK")
     void patchUser_onlyEmail_ok() throws Exception {
@@ -613,6 +917,190 @@ class UserControllerTest {
         assertEquals(USER.getPhone(), patched.getPhone());
     }
 
+    @Test
+    @DisplayName("Find users by email - OK")
+    void findUsersByEmail_ok() throws Exception {
+        mockMvc.perform(get("/users")
+                        .param("email", VALID_EMAIL.toUpperCase()))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(USER.getId()))
+                .andExpect(jsonPath("$.data[0].email").value(VALID_EMAIL));
+    }
+
+    @Test
+    @DisplayName("Find users by email follows patched email - OK")
+    void findUsersByEmail_afterPatch_ok() throws Exception {
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(PATCH_USER_EMAIL_REQUEST))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users")
+                        .param("email", VALID_EMAIL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+        mockMvc.perform(get("/users")
+                        .param("email", NEW_VALID_EMAIL))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(USER.getId()));
+    }
+
+    @Test
+    @DisplayName("Find users by upcoming birthday page by page - OK")
+    void findUsersByBirthday_ok() throws Exception {
+        final var today = LocalDate.now();
+        final var later = userDao.save(new User(null, NEW_VALID_EMAIL, FIRST_NAME, LAST_NAME, today.minusYears(30).plusDays(2), null, null));
+        final var mvcResult = mockMvc.perform(get("/users/birthdays")
+                        .param("from", today.format(DateTimeFormatter.ofPattern("MM-dd")))
+                        .param("days", "3")
+                        .param("limit", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(USER.getId()))
+                .andExpect(jsonPath("$.nextCursor").exists())
+                .andReturn();
+
+        final var cursor = readJson(mvcResult.getResponse().getContentAsByteArray(), new TypeReference<DataDto<List<UserDto>>>() {}).getNextCursor();
+        mockMvc.perform(get("/users/birthdays")
+                        .param("from", today.format(DateTimeFormatter.ofPattern("MM-dd")))
+                        .param("days", "3")
+                        .param("limit", "1")
+                        .param("cursor", cursor))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(later.getId()))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist());
+        mockMvc.perform(get("/users/birthdays")
+                        .param("from", today.plusDays(1).format(DateTimeFormatter.ofPattern("MM-dd"))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+    }
+
+    @Test
+    @DisplayName("Find users by birthday with invalid days returns 400")
+    void findUsersByBirthday_invalidDays_returns400() throws Exception {
+        mockMvc.perform(get("/users/birthdays")
+                        .param("from", "12-31")
+                        .param("days", "367"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.details.days").value("Days must be between 1 and 366."));
+        mockMvc.perform(get("/users/birthdays"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details.from").exists());
+    }
+
+    @Test
+    @DisplayName("Get user stats - OK")
+    void getStats_ok() throws Exception {
+        mockMvc.perform(post("/users")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(VALID_REGISTER_REQUEST))))
+                .andExpect(status().isCreated());
+        mockMvc.perform(get("/users/stats"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.total").value(2))
+                .andExpect(jsonPath("$.data.birthYears['%d']".formatted(USER.getBirthDate().getYear())).value(2))
+                .andExpect(jsonPath("$.data.ageBrackets['18-27']").value(2))
+                .andExpect(jsonPath("$.data.emailDomains['domain.com']").value(2));
+
+        userDao.deleteById(USER.getId());
+        mockMvc.perform(get("/users/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.total").value(1));
+    }
+
+    @Test
+    @DisplayName("Search users by name - OK")
+    void searchUsersByName_ok() throws Exception {
+        mockMvc.perform(get("/users/search")
+                        .param("name", FIRST_NAME.substring(0, 2).toUpperCase() + " " + LAST_NAME))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(USER.getId()));
+        mockMvc.perform(get("/users/search")
+                        .param("name", FIRST_NAME + "x"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+        mockMvc.perform(get("/actuator/nameindex"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.users").value(1))
+                .andExpect(jsonPath("$.bytesPerUser").isNumber());
+    }
+
+    @Test
+    @DisplayName("Search users by blank name returns 400")
+    void searchUsersByName_blank_returns400() throws Exception {
+        mockMvc.perform(get("/users/search")
+                        .param("name", " ")
+                        .param("limit", "0"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.details.name").value("Name must be not blank."))
+                .andExpect(jsonPath("$.details.limit").exists());
+    }
+
+    @Test
+    @DisplayName("Find users by phone patched in any format - OK")
+    void findUsersByPhone_afterPatch_ok() throws Exception {
+        final var contacts = new UserContactsDto();
+        contacts.setPhone("+1 (555) 123-4567");
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(contacts))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users")
+                        .param("phone", "1-555-123-4567"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(USER.getId()))
+                .andExpect(jsonPath("$.data[0].phone").value("+1 (555) 123-4567"));
+
+        contacts.setPhone("555 000 0000");
+        mockMvc.perform(patch("/users/{userId}/contacts", USER.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(contacts))))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/users")
+                        .param("phone", "15551234567"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.length()").value(0));
+    }
+
+    @Test
+    @DisplayName("Find users by phone without digits returns 400")
+    void findUsersByPhone_noDigits_returns400() throws Exception {
+        mockMvc.perform(get("/users")
+                        .param("phone", "(---)"))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.details.phone").value("Phone must contain digits."));
+    }
+
+    @Test
+    @DisplayName("Find users by blank email returns 400")
+    void findUsersByEmail_blank_returns400() throws Exception {
+        mockMvc.perform(get("/users")
+                        .param("email", ""))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.details.email").value("Email must be not blank."));
+    }
+
     @Test
     @DisplayName("Patch user address only - OK")
     void patchUser_onlyAddress_ok() throws Exception {
@@ -729,6 +1217,47 @@ class UserControllerTest {
         assertTrue(userDao.findById(USER.getId()).isEmpty());
     }
 
+    @Test
+    @DisplayName("Delete user with stale If-Match returns 412")
+    void deleteUser_withStaleIfMatch_returns412() throws Exception {
+        mockMvc.perform(delete("/users/{userId}", USER.getId())
+                        .header(HttpHeaders.IF_MATCH, "W/\"1\""))
+                .andDo(print())
+                .andExpect(status().isPreconditionFailed());
+        assertTrue(userDao.findById(USER.getId()).isPresent());
+    }
+
+    @Test
+    @DisplayName("Delete users by birth date range - OK")
+    void deleteUsersByBirthDateRange_ok() throws Exception {
+        final var birthDate = USER.getBirthDate();
+        for (int i = 0; i < 6; i++) {
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), birthDate.minusDays(i % 3), null, null);
+            userDao.save(user);
+        }
+        mockMvc.perform(delete("/users")
+                        .param("from", birthDate.minusDays(1).format(DateTimeFormatter.ISO_DATE))
+                        .param("to", birthDate.format(DateTimeFormatter.ISO_DATE)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data").value(5));
+        assertEquals(2, userDao.countAll());
+        assertTrue(userDao.findById(USER.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Delete users by birth date range with invalid range returns 400")
+    void deleteUsersByBirthDateRange_withInvalidRange_returns400() throws Exception {
+        mockMvc.perform(delete("/users")
+                        .param("from", LocalDate.now().format(DateTimeFormatter.ISO_DATE))
+                        .param("to", LocalDate.now().minusDays(1).format(DateTimeFormatter.ISO_DATE)))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details['to, from']").value("To must be greater or equals from."));
+        assertEquals(1, userDao.countAll());
+    }
+
     @Test
     @DisplayName("Delete user with non-existing user id returns 404")
     void deleteUser_withNonExistingId_returns404() throws Exception {
@@ -743,6 +1272,96 @@ class UserControllerTest {
         verify(userDao, times(0)).deleteById(any());
     }
 
+    @Test
+    @DisplayName("Apply batch reports a status per operation - OK")
+    void applyBatch_ok() throws Exception {
+        final var updated = getCopyFrom(VALID_REGISTER_REQUEST);
+        updated.setFirstName("Updated");
+        final var operations = List.of(
+                batchOperation(BatchOperation.Type.CREATE, null, VALID_REGISTER_REQUEST, null),
+                batchOperation(BatchOperation.Type.UPDATE, USER.getId(), updated, null),
+                batchOperation(BatchOperation.Type.PATCH, NON_EXISTING_USER_ID, null, PATCH_USER_PHONE_REQUEST),
+                batchOperation(BatchOperation.Type.CREATE, null, REGISTER_REQUEST_WITH_ILLEGAL_AGE, null),
+                batchOperation(BatchOperation.Type.DELETE, USER.getId(), null, null));
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(operations))))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.data.length()").value(5))
+                .andExpect(jsonPath("$.data[0].status").value(201))
+                .andExpect(jsonPath("$.data[0].data.id").exists())
+                .andExpect(jsonPath("$.data[0].data.email").value(VALID_EMAIL))
+                .andExpect(jsonPath("$.data[1].status").value(200))
+                .andExpect(jsonPath("$.data[1].data.id").value(USER.getId()))
+                .andExpect(jsonPath("$.data[1].data.firstName").value("Updated"))
+                .andExpect(jsonPath("$.data[2].status").value(Error.USER_NOT_FOUND.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[2].reason").value(Error.USER_NOT_FOUND.getReason()))
+                .andExpect(jsonPath("$.data[3].status").value(Error.INVALID_AGE.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[4].status").value(200))
+                .andExpect(jsonPath("$.data[4].data").doesNotExist());
+        assertTrue(userDao.findById(USER.getId()).isEmpty());
+        assertEquals(1, userDao.countAll());
+    }
+
+    @Test
+    @DisplayName("Apply atomic batch with a failed operation reverts the applied ones - OK")
+    void applyBatch_atomic_rollsBack() throws Exception {
+        final var operations = List.of(
+                batchOperation(BatchOperation.Type.CREATE, null, VALID_REGISTER_REQUEST, null),
+                batchOperation(BatchOperation.Type.PATCH, USER.getId(), null, PATCH_USER_CONTACTS_REQUEST),
+                batchOperation(BatchOperation.Type.DELETE, USER.getId(), null, null),
+                batchOperation(BatchOperation.Type.DELETE, NON_EXISTING_USER_ID, null, null),
+                batchOperation(BatchOperation.Type.CREATE, null, VALID_REGISTER_REQUEST, null));
+        mockMvc.perform(post("/users/batch")
+                        .param("atomic", "true")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(operations))))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].status").value(Error.BATCH_ROLLED_BACK.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[1].status").value(Error.BATCH_ROLLED_BACK.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[2].status").value(Error.BATCH_ROLLED_BACK.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[3].status").value(Error.USER_NOT_FOUND.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[4].status").value(Error.BATCH_ROLLED_BACK.getHttpStatus().value()))
+                .andExpect(jsonPath("$.data[4].reason").value(Error.BATCH_ROLLED_BACK.getReason()));
+        assertEquals(1, userDao.countAll());
+        assertEquals(USER, userDao.findById(USER.getId()).orElse(null));
+    }
+
+    @Test
+    @DisplayName("Apply batch with invalid operations returns 400")
+    void applyBatch_withInvalidOperations_returns400() throws Exception {
+        final var operations = List.of(
+                batchOperation(BatchOperation.Type.CREATE, null, REGISTER_REQUEST_WITH_INVALID_EMAIL, null),
+                batchOperation(BatchOperation.Type.DELETE, null, null, null));
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(operations))))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details['data[0].user.email']").value("Invalid email format"));
+        mockMvc.perform(post("/users/batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(writeJson(DataDto.of(operations.subList(1, 2)))))
+                .andDo(print())
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.details['data[0].userId']").value("User id must be present."));
+        verify(userDao, times(0)).save(any());
+        verify(userDao, times(0)).deleteById(any());
+    }
+
+    private static BatchOperationDto batchOperation(BatchOperation.Type type, Long userId,
+                                                    CreateUserDto user, UserContactsDto contacts) {
+        final var operation = new BatchOperationDto();
+        operation.setType(type);
+        operation.setUserId(userId);
+        operation.setUser(user);
+        operation.setContacts(contacts);
+        return operation;
+    }
+
     private <T> T readJson(final byte[] json, TypeReference<T> typeReference) throws IOException {
         return objectMapper.readValue(json, typeReference);
     }
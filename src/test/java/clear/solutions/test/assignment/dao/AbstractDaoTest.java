@@ -0,0 +1,28 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AbstractDaoTest {
+
+    @Test
+    @DisplayName("A dao built without indexes builds them for its entity type and plans queries over them")
+    void find_defaultConstructor() {
+        final var userDao = new AbstractDao<User>() {
+        };
+        final var from = LocalDate.of(1990, 1, 1);
+        final var gmail = userDao.save(new User(null, "a@gmail.com", "John", "Smith", from, null, null));
+        userDao.save(new User(null, "b@mail.com", "John", "Smith", from.plusDays(1), null, null));
+        userDao.save(new User(null, "c@gmail.com", "John", "Smith", from.plusYears(1), null, null));
+
+        assertEquals(List.of(gmail), userDao.find(Query.<User>all()
+                .equal("emailDomain", "gmail.com")
+                .between("birthDate", from, from.plusDays(1))));
+    }
+}
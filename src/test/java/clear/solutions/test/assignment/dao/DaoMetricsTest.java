@@ -0,0 +1,96 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DaoMetricsTest {
+
+    private static final User USER = new User(null, "test@mail.com", "John", "Smith", LocalDate.of(1990, 1, 1), null, null);
+
+    private SimpleMeterRegistry registry;
+    private DaoMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        metrics = new DaoMetrics(registry, 1);
+    }
+
+    @Test
+    @DisplayName("Dao operations are timed and range sizes recorded")
+    void userDao_recordsOperations() {
+        final UserDao userDao = new UserDaoImpl(new ConcurrentHashMap<>(), false, metrics);
+        exercise(userDao);
+
+        assertOperations();
+        assertEquals(2, registry.get("user.dao.copies").tag("cause", "write").counter().count());
+    }
+
+    @Test
+    @DisplayName("Sharded dao records every operation once")
+    void shardedUserDao_recordsOperationsOnce() {
+        exercise(new ShardedUserDao(4, 1, false, metrics));
+
+        assertOperations();
+        assertEquals(2, registry.get("user.dao.copies").tag("cause", "write").counter().count());
+    }
+
+    @Test
+    @DisplayName("Lookups are timed one in the sampling")
+    void lookups_sampled() {
+        final var userDao = new UserDaoImpl(new ConcurrentHashMap<>(), false, new DaoMetrics(registry, 8));
+        final var id = userDao.save(USER).getId();
+        for (int i = 0; i < 8_000; i++) {
+            userDao.findById(id);
+        }
+
+        final var sampled = timer("findById");
+        assertTrue(sampled > 800 && sampled < 1_200, "sampled " + sampled);
+        assertEquals(1, timer("save"));
+    }
+
+    @Test
+    @DisplayName("Off-heap reads count the users they materialize")
+    void offHeapUserDao_countsReadCopies() {
+        final var userDao = new OffHeapUserDao(16, false, metrics);
+        final var id = userDao.save(USER).getId();
+        final var copies = registry.get("user.dao.copies").tag("cause", "read").counter();
+        final var before = copies.count();
+
+        userDao.findById(id);
+        assertEquals(before + 1, copies.count());
+    }
+
+    private static void exercise(UserDao userDao) {
+        final var id = userDao.save(USER).getId();
+        userDao.save(USER.withEmail("other@mail.com"));
+        userDao.findById(id);
+        userDao.findById(-1L);
+        userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX);
+        userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX, null, 1);
+        userDao.removeIfPresent(id);
+    }
+
+    private void assertOperations() {
+        assertEquals(2, timer("save"));
+        assertEquals(2, timer("findById"));
+        assertEquals(2, timer("findByBirthDateRange"));
+        assertEquals(1, timer("remove"));
+        final var sizes = registry.get("user.dao.range.size").summary();
+        assertEquals(2, sizes.count());
+        assertEquals(3, sizes.totalAmount());
+    }
+
+    private long timer(String operation) {
+        return registry.get("user.dao.operations").tag("operation", operation).timer().count();
+    }
+}
@@ -0,0 +1,99 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapUserDaoTest extends UserDaoTest {
+
+    @Override
+    protected UserDao createDao(boolean uniqueEmail) {
+        return new OffHeapUserDao(16, uniqueEmail);
+    }
+
+    @Test
+    @DisplayName("Rewrites keep latest values after arena compaction")
+    void save_rewrites_compactArena() {
+        final var userCount = 1_000;
+        final var address = "a".repeat(100);
+        for (int round = 0; round < 100; round++) {
+            for (long id = 1; id <= userCount; id++) {
+                userDao.save(new User(id, "email%d@gmail.com".formatted(id), "name%d".formatted(round), "last", LocalDate.of(1990, 1, 1).plusDays(round), address + round, null));
+            }
+        }
+        assertEquals(userCount, userDao.countAll());
+        for (long id = 1; id <= userCount; id++) {
+            final var user = userDao.findById(id).orElseThrow();
+            assertEquals("email%d@gmail.com".formatted(id), user.getEmail());
+            assertEquals("name99", user.getFirstName());
+            assertEquals(LocalDate.of(1990, 1, 1).plusDays(99), user.getBirthDate());
+            assertEquals(address + 99, user.getAddress());
+            assertNull(user.getPhone());
+        }
+        assertEquals(userCount, userDao.findByBirthDateRange(LocalDate.of(1990, 1, 1), LocalDate.of(1991, 1, 1)).size());
+    }
+
+    @Test
+    @DisplayName("Compaction drops deleted records and keeps the rows of the others")
+    void delete_rewrites_compactArena() {
+        final var store = new OffHeapUserStore(16, DaoMetrics.DISABLED);
+        final var address = "a".repeat(1_000);
+        for (long id = 1; id <= 1_000; id++) {
+            store.put(id, user(id).withAddress(address));
+        }
+        for (long id = 1; id <= 1_000; id += 2) {
+            store.remove(id);
+        }
+        for (int round = 0; round < 50; round++) {
+            for (long id = 2; id <= 1_000; id += 2) {
+                store.put(id, user(id).withAddress(address + round));
+            }
+        }
+        assertEquals(500, store.size());
+        for (long id = 1; id <= 1_000; id++) {
+            if (id % 2 == 0) {
+                assertEquals(user(id).withAddress(address + 49), store.get(id));
+            } else {
+                assertNull(store.get(id));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("A write waiting in the function of one id holds up neither writes nor reads of other ids")
+    void compute_otherIdsNotBlocked() throws Exception {
+        final var store = new OffHeapUserStore(16, DaoMetrics.DISABLED);
+        final var entered = new CountDownLatch(1);
+        final var release = new CountDownLatch(1);
+        final var blocked = CompletableFuture.runAsync(() -> store.compute(1L, (id, previous) -> {
+            entered.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return user(id);
+        }));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CompletableFuture.runAsync(() -> store.put(2L, user(2L))).get(5, TimeUnit.SECONDS);
+        assertEquals(1, store.size());
+        assertNull(store.get(1L));
+
+        release.countDown();
+        blocked.get(5, TimeUnit.SECONDS);
+        assertEquals(user(1L), store.get(1L));
+    }
+
+    private static User user(long id) {
+        return new User(id, "email%d@gmail.com".formatted(id), "name", "last", LocalDate.of(1990, 1, 1), null, null);
+    }
+}
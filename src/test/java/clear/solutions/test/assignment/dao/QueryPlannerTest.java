@@ -0,0 +1,84 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class QueryPlannerTest {
+
+    private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+
+    private final Map<Long, User> entities = new ConcurrentHashMap<>();
+    private EntityIndexes<User> indexes;
+    private QueryPlanner<User> planner;
+
+    @BeforeEach
+    void setUp() {
+        indexes = EntityIndexes.of(User.class, IndexStorage.HEAP);
+        planner = new QueryPlanner<>(indexes, entities);
+        // 100 users born in 1990, one in ten of them with a gmail address
+        for (long id = 1; id <= 100; id++) {
+            save(new User(id, "user%d@%s".formatted(id, id % 10 == 0 ? "gmail.com" : "mail.com"), "John", "Smith",
+                    FROM.plusDays(id), null, null));
+        }
+    }
+
+    @Test
+    @DisplayName("The most selective index is read, the other hash indexes are probed")
+    void plan_mostSelective() {
+        final var narrowRange = Query.<User>all().between("birthDate", FROM, FROM.plusDays(5)).equal("emailDomain", "mail.com");
+        assertEquals("sorted index birthDate between 1990-01-01 and 1990-01-06 (5 ids), probe hash index emailDomain = mail.com,"
+                + " check 2 conditions", planner.plan(narrowRange).toString());
+
+        final var wideRange = Query.<User>all().between("birthDate", FROM, FROM.plusDays(80)).equal("emailDomain", "gmail.com");
+        assertEquals("hash index emailDomain = gmail.com (10 ids), check 2 conditions", planner.plan(wideRange).toString());
+
+        final var domains = Query.<User>all().equal("emailDomain", "mail.com").equal("emailDomain", "gmail.com");
+        assertEquals("hash index emailDomain = gmail.com (10 ids), probe hash index emailDomain = mail.com, check 2 conditions",
+                planner.plan(domains).toString());
+        assertEquals(0, planner.find(domains).size());
+    }
+
+    @Test
+    @DisplayName("Conditions without an index are checked on the results of an index or of a scan")
+    void plan_unindexed() {
+        final var byName = Query.<User>all().equal("firstName", "John").equal("emailDomain", "gmail.com");
+        assertEquals("hash index emailDomain = gmail.com, check 2 conditions", planner.plan(byName).toString());
+        assertEquals(10, planner.find(byName).size());
+
+        final var scan = Query.<User>all().equal("firstName", "John").between("emailDomain", "a", "z");
+        assertEquals("parallel scan, check 2 conditions", planner.plan(scan).toString());
+        assertEquals(100, planner.find(scan).size());
+
+        final var empty = Query.<User>all().between("birthDate", FROM.plusDays(1), FROM).equal("emailDomain", "gmail.com");
+        assertEquals("no match (0 ids), check 2 conditions", planner.plan(empty).toString());
+    }
+
+    @Test
+    @DisplayName("Results are read in order of id and stop at the limit")
+    void find_limit() {
+        final var found = planner.find(Query.<User>all().between("birthDate", FROM, FROM.plusDays(100)).limit(3));
+        assertEquals(3, found.size());
+        assertEquals(1L, found.get(0).getId());
+        assertEquals(3L, found.get(2).getId());
+
+        save(entities.get(2L).withBirthDate(FROM.minusDays(1)));
+        assertEquals(4L, planner.find(Query.<User>all().between("birthDate", FROM, FROM.plusDays(100)).limit(3)).get(2).getId());
+        assertThrows(IllegalArgumentException.class, () -> planner.plan(Query.<User>all().equal("id", "1")));
+    }
+
+    private void save(User user) {
+        entities.compute(user.getId(), (id, previous) -> {
+            indexes.update(previous, user);
+            return user;
+        });
+    }
+}
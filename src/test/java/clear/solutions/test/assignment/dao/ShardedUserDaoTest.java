@@ -0,0 +1,91 @@
+package clear.solutions.test.assignment.dao;
+
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardedUserDaoTest extends UserDaoTest {
+
+    @Override
+    protected UserDao createDao(boolean uniqueEmail) {
+        // small blocks spread a few users over every shard
+        return new ShardedUserDao(4, 8, uniqueEmail);
+    }
+
+    @Test
+    @DisplayName("Concurrent registrations get unique ids routed to their shard")
+    void save_concurrent_uniqueIds() throws InterruptedException, ExecutionException {
+        final var saved = new ConcurrentLinkedQueue<User>();
+        final var executor = Executors.newFixedThreadPool(8);
+        try {
+            final var tasks = new ArrayList<Callable<Boolean>>();
+            for (int thread = 0; thread < 8; thread++) {
+                final var number = thread;
+                tasks.add(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        saved.add(userDao.save(new User(null, "user%d-%d@mail.com".formatted(number, i), "John", "Smith",
+                                LocalDate.of(1990, 1, 1).plusDays(i), null, null)));
+                    }
+                    return true;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final var ids = new HashSet<Long>();
+        for (var user : saved) {
+            assertTrue(ids.add(user.getId()));
+            assertEquals(user, userDao.findById(user.getId()).orElseThrow());
+        }
+        assertEquals(4_000, userDao.countAll());
+        final var expected = saved.stream()
+                .sorted(Comparator.comparing(User::getBirthDate).thenComparing(User::getId))
+                .toList();
+        assertIterableEquals(expected, userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX));
+        assertIterableEquals(expected, userDao.streamByBirthDateRange(LocalDate.MIN, LocalDate.MAX).toList());
+    }
+
+    @Test
+    @DisplayName("Restored ids and sequence are not handed out again")
+    void restore_movesSequence() {
+        final var sharded = new ShardedUserDao(4, 8, false);
+        sharded.restore(new User(20L, "restored@mail.com", "John", "Smith", LocalDate.of(1990, 1, 1), null, null));
+        sharded.restoreSequence(41L);
+
+        final var ids = new ArrayList<Long>();
+        for (int i = 0; i < 100; i++) {
+            ids.add(sharded.save(USER_WITHOUT_ID.withEmail("user%d@mail.com".formatted(i))).getId());
+        }
+        assertTrue(ids.stream().allMatch(id -> id > 48));
+        assertEquals(List.of(20L), sharded.findByEmail("restored@mail.com").stream().map(User::getId).toList());
+        assertTrue(sharded.checkpoint(() -> {
+        }) >= ids.stream().mapToLong(Long::longValue).max().orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Ids that were never handed out are absent")
+    void findById_outsideBlocks() {
+        assertTrue(userDao.findById(0L).isEmpty());
+        assertTrue(userDao.findById(-5L).isEmpty());
+        assertTrue(userDao.removeIfPresent(Long.MAX_VALUE).isEmpty());
+    }
+
+    private static final User USER_WITHOUT_ID = new User(null, EMAIL, FIRST_NAME, LAST_NAME, BIRTH_DATE, ADDRESS, PHONE);
+}
@@ -4,13 +4,26 @@ import clear.solutions.test.assignment.model.User;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
-import org.springframework.beans.BeanUtils;
 
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertIterableEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class UserDaoTest {
@@ -22,21 +35,26 @@ class UserDaoTest {
     public static final String ADDRESS = "address";
     public static final String PHONE = "123456789";
 
+    private static final LocalDate RANDOM_EPOCH = LocalDate.of(1950, 1, 1);
+    private static final List<String> RANDOM_DOMAINS = List.of("gmail.com", "mail.com", "example.com", "yahoo.com");
+
     private static User USER;
 
-    private UserDaoImpl userDao;
+    protected UserDao userDao;
+
+    protected UserDao createDao() {
+        return createDao(false);
+    }
+
+    protected UserDao createDao(boolean uniqueEmail) {
+        return new UserDaoImpl(new ConcurrentHashMap<>(), uniqueEmail);
+    }
 
     @BeforeEach
     void setUp() {
-        userDao = new UserDaoImpl();
+        userDao = createDao();
 
-        USER = new User();
-        USER.setEmail(EMAIL);
-        USER.setFirstName(FIRST_NAME);
-        USER.setLastName(LAST_NAME);
-        USER.setBirthDate(BIRTH_DATE);
-        USER.setAddress(ADDRESS);
-        USER.setPhone(PHONE);
+        USER = new User(null, EMAIL, FIRST_NAME, LAST_NAME, BIRTH_DATE, ADDRESS, PHONE);
     }
 
     @Test
@@ -64,13 +82,9 @@ class UserDaoTest {
         final var saved = userDao.save(USER);
         assertNotNull(saved);
         final var id = saved.getId();
-        final var expected = new User();
-        BeanUtils.copyProperties(saved, expected);
-        expected.setEmail(newEmail);
-        expected.setId(id);
+        final var expected = saved.withEmail(newEmail);
 
-        saved.setEmail(newEmail);
-        final var updated = userDao.save(saved);
+        final var updated = userDao.save(saved.withEmail(newEmail));
         assertEquals(expected, updated);
         assertEquals(expected, userDao.findById(id).orElse(null));
         assertEquals(1, userDao.countAll());
@@ -97,13 +111,7 @@ class UserDaoTest {
     void deleteAll() {
         final var userCount = 10;
         for (int i = 0; i < userCount; i++) {
-            final var user = new User();
-            user.setEmail("email%d@gmail.com".formatted(i));
-            user.setFirstName("name%d".formatted(i));
-            user.setLastName("last%d".formatted(i));
-            user.setBirthDate(LocalDate.now().minusYears(50));
-            user.setAddress("address%d".formatted(i));
-            user.setPhone("phone%d".formatted(i));
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), LocalDate.now().minusYears(50), "address%d".formatted(i), "phone%d".formatted(i));
             userDao.save(user);
         }
         assertEquals(userCount, userDao.countAll());
@@ -120,19 +128,186 @@ class UserDaoTest {
         assertTrue(userDao.findById(userId).isEmpty());
     }
 
+    @Test
+    @DisplayName("Update applies the mutator to the stored entity and bumps the version")
+    void update() {
+        final var saved = userDao.save(USER);
+        assertEquals(1, saved.getVersion());
+
+        final var updated = userDao.update(saved.getId(), user -> user.withPhone("new phone")).orElseThrow();
+        assertEquals(saved.withPhone("new phone"), updated);
+        assertEquals(2, updated.getVersion());
+        assertEquals(updated, userDao.findById(saved.getId()).orElseThrow());
+        assertEquals(2, userDao.findById(saved.getId()).orElseThrow().getVersion());
+        assertTrue(userDao.update(100L, user -> user.withPhone("new phone")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Update of another version throws and keeps the entity")
+    void update_versionConflict() {
+        final var saved = userDao.save(USER);
+        userDao.update(saved.getId(), 1L, user -> user.withEmail("first@mail.com"));
+
+        assertThrows(VersionConflictException.class,
+                () -> userDao.update(saved.getId(), 1L, user -> user.withEmail("second@mail.com")));
+        assertEquals("first@mail.com", userDao.findById(saved.getId()).orElseThrow().getEmail());
+        assertTrue(userDao.findByEmail("second@mail.com").isEmpty());
+        assertEquals(3, userDao.update(saved.getId(), 2L, user -> user.withEmail("second@mail.com")).orElseThrow().getVersion());
+    }
+
+    @Test
+    @DisplayName("Concurrent updates of one entity are not lost")
+    void update_concurrent() throws InterruptedException, ExecutionException {
+        final var id = userDao.save(USER.withPhone("0")).getId();
+        final var updates = 200;
+        final var executor = Executors.newFixedThreadPool(8);
+        try {
+            final var tasks = new ArrayList<Callable<Boolean>>();
+            for (int thread = 0; thread < 8; thread++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < updates; i++) {
+                        userDao.update(id, user -> user.withPhone(String.valueOf(Integer.parseInt(user.getPhone()) + 1)));
+                    }
+                    return true;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        final var user = userDao.findById(id).orElseThrow();
+        assertEquals(String.valueOf(8 * updates), user.getPhone());
+        assertEquals(8 * updates + 1, user.getVersion());
+    }
+
+    @Test
+    @DisplayName("Remove if present returns the removed entity")
+    void removeIfPresent() {
+        final var saved = userDao.save(USER);
+
+        assertThrows(VersionConflictException.class, () -> userDao.removeIfPresent(saved.getId(), 2L));
+        assertTrue(userDao.findById(saved.getId()).isPresent());
+        assertEquals(saved, userDao.removeIfPresent(saved.getId(), 1L).orElseThrow());
+        assertTrue(userDao.findById(saved.getId()).isEmpty());
+        assertTrue(userDao.findByEmail(EMAIL).isEmpty());
+        assertTrue(userDao.removeIfPresent(saved.getId()).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Undelete stores a deleted entity again with its version")
+    void undelete() {
+        final var saved = userDao.save(USER);
+        final var updated = userDao.update(saved.getId(), user -> user.withFirstName("Jane")).orElseThrow();
+
+        assertFalse(userDao.undelete(saved));
+        userDao.deleteById(saved.getId());
+        assertTrue(userDao.undelete(updated));
+        final var undeleted = userDao.findById(saved.getId()).orElseThrow();
+        assertEquals(updated, undeleted);
+        assertEquals(2L, undeleted.getVersion());
+        assertEquals(List.of(undeleted), userDao.findByEmail(EMAIL));
+    }
+
+    @Test
+    @DisplayName("Find users by email ignores case and follows email changes")
+    void findByEmail() {
+        final var saved = userDao.save(USER);
+        final var other = userDao.save(USER.withEmail("Other@Mail.com"));
+
+        assertEquals(List.of(saved), userDao.findByEmail("TEST@mail.COM"));
+        assertEquals(List.of(other), userDao.findByEmail("other@mail.com"));
+
+        final var changed = userDao.save(saved.withEmail("other@MAIL.com"));
+        assertTrue(userDao.findByEmail(EMAIL).isEmpty());
+        assertEquals(List.of(changed, other), userDao.findByEmail("OTHER@mail.com"));
+
+        userDao.deleteById(other.getId());
+        assertEquals(List.of(changed), userDao.findByEmail("other@mail.com"));
+    }
+
+    @Test
+    @DisplayName("Find by phone compares the digits only")
+    void findByPhone() {
+        final var saved = userDao.save(USER.withPhone("(555) 555-5555"));
+        final var other = userDao.save(USER.withPhone("+1 555 555 0000"));
+        userDao.save(USER.withPhone(null));
+        userDao.save(USER.withPhone("unknown"));
+
+        assertEquals(List.of(saved), userDao.findByPhone("555.555.5555"));
+        assertEquals(List.of(other), userDao.findByPhone("15555550000"));
+        assertTrue(userDao.findByPhone("5555550000").isEmpty());
+        assertTrue(userDao.findByPhone("unknown").isEmpty());
+
+        final var changed = userDao.update(saved.getId(), user -> user.withPhone("+1-555-555-0000")).orElseThrow();
+        assertTrue(userDao.findByPhone("(555) 555-5555").isEmpty());
+        assertEquals(List.of(changed, other), userDao.findByPhone("1 (555) 555-0000"));
+        // reformatting keeps the user indexed under the same digits
+        final var reformatted = userDao.update(saved.getId(), user -> user.withPhone("15555550000")).orElseThrow();
+        assertEquals(List.of(reformatted, other), userDao.findByPhone("+15555550000"));
+
+        userDao.deleteById(other.getId());
+        assertEquals(List.of(reformatted), userDao.findByPhone("+1 555 555 0000"));
+    }
+
+    @Test
+    @DisplayName("Save with unique emails rejects another user's email")
+    void save_uniqueEmail() {
+        userDao = createDao(true);
+        final var saved = userDao.save(USER);
+
+        assertThrows(DuplicateEmailException.class, () -> userDao.save(USER.withEmail("Test@Mail.com")));
+        assertEquals(1, userDao.countAll());
+        assertEquals("Jane", userDao.save(saved.withFirstName("Jane")).getFirstName());
+
+        final var other = userDao.save(USER.withEmail("other@mail.com"));
+        assertThrows(DuplicateEmailException.class, () -> userDao.save(other.withEmail(EMAIL)));
+        assertEquals(List.of(other), userDao.findByEmail("other@mail.com"));
+
+        userDao.save(saved.withEmail("moved@mail.com"));
+        assertEquals(EMAIL, userDao.save(other.withEmail(EMAIL)).getEmail());
+    }
+
+    @Test
+    @DisplayName("Concurrent registrations of one email keep a single user")
+    void save_uniqueEmail_concurrent() throws InterruptedException, ExecutionException {
+        userDao = createDao(true);
+        final var emails = 50;
+        final var executor = Executors.newFixedThreadPool(8);
+        try {
+            final var tasks = new ArrayList<Callable<Boolean>>();
+            for (int thread = 0; thread < 8; thread++) {
+                tasks.add(() -> {
+                    for (int i = 0; i < emails; i++) {
+                        try {
+                            userDao.save(USER.withEmail("email%d@gmail.com".formatted(i)));
+                        } catch (DuplicateEmailException ignored) {
+                            // another thread registered it first
+                        }
+                    }
+                    return true;
+                });
+            }
+            for (var future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(emails, userDao.countAll());
+        for (int i = 0; i < emails; i++) {
+            assertEquals(1, userDao.findByEmail("EMAIL%d@gmail.com".formatted(i)).size());
+        }
+    }
+
     @Test
     @DisplayName("Find users by birth date range")
     void findByBirthDateRange() {
         final var count = 10;
         var userBirthDate = LocalDate.now().minusDays(5L);
         for (int i = 0; i < count; i++) {
-            final var user = new User();
-            user.setEmail("email%d@gmail.com".formatted(i));
-            user.setFirstName("name%d".formatted(i));
-            user.setLastName("last%d".formatted(i));
-            user.setBirthDate(userBirthDate);
-            user.setAddress("address%d".formatted(i));
-            user.setPhone("phone%d".formatted(i));
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), userBirthDate, "address%d".formatted(i), "phone%d".formatted(i));
             userDao.save(user);
             userBirthDate = userBirthDate.plusDays(1L);
         }
@@ -144,4 +319,245 @@ class UserDaoTest {
         assertTrue(users.stream().allMatch(user -> (user.getBirthDate().equals(fromDate) || user.getBirthDate().isAfter(fromDate))
                 && (user.getBirthDate().equals(toDate) || user.getBirthDate().isBefore(toDate))));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Delete users by birth date range")
+    void deleteByBirthDateRange() {
+        final var birthDate = LocalDate.of(1990, 1, 1);
+        for (int i = 0; i < 20; i++) {
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), birthDate.plusDays(i % 5), null, null);
+            userDao.save(user);
+        }
+        final var from = birthDate.plusDays(1);
+        final var to = birthDate.plusDays(2);
+
+        assertEquals(8, userDao.deleteByBirthDateRange(from, to));
+        assertEquals(12, userDao.countAll());
+        assertTrue(userDao.findByBirthDateRange(from, to).isEmpty());
+        assertEquals(12, userDao.findByBirthDateRange(birthDate, birthDate.plusDays(4)).size());
+        assertEquals(0, userDao.deleteByBirthDateRange(from, to));
+    }
+
+    @Test
+    @DisplayName("Find users by birth date range page by page")
+    void findByBirthDateRange_paged() {
+        final var birthDate = LocalDate.of(1990, 1, 1);
+        for (int i = 0; i < 25; i++) {
+            final var user = new User(null, "email%d@gmail.com".formatted(i), "name%d".formatted(i), "last%d".formatted(i), birthDate.plusDays(i % 5), null, null);
+            userDao.save(user);
+        }
+        final var from = birthDate.plusDays(1);
+        final var to = birthDate.plusDays(3);
+        final var expected = userDao.findByBirthDateRange(from, to);
+        assertEquals(15, expected.size());
+
+        final var pages = new ArrayList<User>();
+        BirthDateKey after = null;
+        List<User> page;
+        do {
+            page = userDao.findByBirthDateRange(from, to, after, 4);
+            pages.addAll(page);
+            if (!page.isEmpty()) {
+                final var last = page.get(page.size() - 1);
+                after = new BirthDateKey(last.getBirthDate(), last.getId());
+            }
+        } while (page.size() == 4);
+        assertIterableEquals(expected, pages);
+        assertTrue(userDao.findByBirthDateRange(from, to, BirthDateKey.highest(to), 4).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Birth date range bounds are inclusive, an empty or reversed range finds nobody")
+    void findByBirthDateRange_bounds() {
+        final var birthDate = LocalDate.of(1990, 1, 1);
+        final var first = userDao.save(USER.withEmail("first@mail.com").withBirthDate(birthDate));
+        final var second = userDao.save(USER.withEmail("second@mail.com").withBirthDate(birthDate.plusDays(1)));
+        userDao.save(USER.withEmail("third@mail.com").withBirthDate(birthDate.plusDays(3)));
+
+        assertIterableEquals(List.of(first, second), userDao.findByBirthDateRange(birthDate, birthDate.plusDays(1)));
+        assertIterableEquals(List.of(second), userDao.findByBirthDateRange(birthDate.plusDays(1), birthDate.plusDays(1)));
+        assertTrue(userDao.findByBirthDateRange(birthDate.plusDays(2), birthDate.plusDays(2)).isEmpty());
+        assertTrue(userDao.findByBirthDateRange(birthDate.plusDays(1), birthDate).isEmpty());
+        assertTrue(userDao.findByBirthDateRange(birthDate.plusDays(1), birthDate, null, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Find users by birth date range matches full scan on random data")
+    void findByBirthDateRange_matchesFullScan() {
+        final var random = new Random(42L);
+        final var ids = saveRandomUsers(random, 365 * 3);
+        for (int i = 0; i < 200; i++) {
+            final var from = RANDOM_EPOCH.plusDays(random.nextInt(365 * 3));
+            final var to = from.plusDays(random.nextInt(60));
+            assertIterableEquals(scan(ids, user -> !user.getBirthDate().isBefore(from) && !user.getBirthDate().isAfter(to),
+                            Comparator.comparing(User::getBirthDate).thenComparing(User::getId)),
+                    userDao.findByBirthDateRange(from, to));
+        }
+    }
+
+    @Test
+    @DisplayName("Find users by birthday wraps around the year end and follows birth date changes")
+    void findByBirthday() {
+        final var december = userDao.save(USER.withEmail("december@mail.com").withBirthDate(LocalDate.of(1990, 12, 30)));
+        final var january = userDao.save(USER.withEmail("january@mail.com").withBirthDate(LocalDate.of(1985, 1, 2)));
+        final var march = userDao.save(USER.withEmail("march@mail.com").withBirthDate(LocalDate.of(1970, 3, 1)));
+        final var from = LocalDate.of(2026, 12, 29);
+
+        assertIterableEquals(List.of(december, january), userDao.findByBirthday(from, 5, null, 10));
+        assertIterableEquals(List.of(december), userDao.findByBirthday(from, 5, null, 1));
+        assertIterableEquals(List.of(january), userDao.findByBirthday(from.plusDays(1), 4, december.getId(), 10));
+
+        final var moved = userDao.save(january.withBirthDate(LocalDate.of(1985, 12, 31)));
+        userDao.deleteById(december.getId());
+        assertIterableEquals(List.of(moved), userDao.findByBirthday(from, 5, null, 10));
+        assertIterableEquals(List.of(march), userDao.findByBirthday(LocalDate.of(2027, 3, 1), 1, null, 10));
+    }
+
+    @Test
+    @DisplayName("February 29 birthdays fall on February 28 in common years")
+    void findByBirthday_february29() {
+        final var leapDay = userDao.save(USER.withEmail("leap@mail.com").withBirthDate(LocalDate.of(2000, 2, 29)));
+        final var february = userDao.save(USER.withEmail("february@mail.com").withBirthDate(LocalDate.of(1999, 2, 28)));
+        final var march = userDao.save(USER.withEmail("march@mail.com").withBirthDate(LocalDate.of(1999, 3, 1)));
+
+        assertIterableEquals(List.of(leapDay, february), userDao.findByBirthday(LocalDate.of(2027, 2, 28), 1, null, 10));
+        assertIterableEquals(List.of(february), userDao.findByBirthday(LocalDate.of(2027, 2, 28), 1, leapDay.getId(), 10));
+        assertIterableEquals(List.of(february), userDao.findByBirthday(LocalDate.of(2028, 2, 28), 1, null, 10));
+        assertIterableEquals(List.of(leapDay, march), userDao.findByBirthday(LocalDate.of(2028, 2, 29), 2, null, 10));
+        // a year at most, every birthday once
+        assertEquals(3, userDao.findByBirthday(LocalDate.of(2027, 3, 1), 366, null, 10).size());
+        assertEquals(3, userDao.findByBirthday(LocalDate.of(2027, 2, 28), 366, null, 10).size());
+    }
+
+    @Test
+    @DisplayName("Find users by birthday page by page matches full scan on random data")
+    void findByBirthday_matchesFullScan() {
+        final var random = new Random(42L);
+        final var ids = saveRandomUsers(random, 365 * 50);
+        for (int i = 0; i < 100; i++) {
+            final var from = LocalDate.of(2024, 1, 1).plusDays(random.nextInt(365 * 4));
+            final var days = 1 + random.nextInt(i % 10 == 0 ? 366 : 30);
+            final var end = from.plusDays(days);
+            final var expected = scan(ids, user -> user.nextBirthday(from).isBefore(end) && user.nextBirthday(from).isBefore(from.plusYears(1)),
+                    Comparator.comparing((User user) -> user.nextBirthday(from)).thenComparing(User::getId));
+
+            final var pages = new ArrayList<User>();
+            var first = from;
+            Long afterId = null;
+            List<User> page;
+            do {
+                page = userDao.findByBirthday(first, (int) ChronoUnit.DAYS.between(first, end), afterId, 7);
+                pages.addAll(page);
+                if (!page.isEmpty()) {
+                    final var last = page.get(page.size() - 1);
+                    first = last.nextBirthday(first);
+                    afterId = last.getId();
+                }
+            } while (page.size() == 7);
+            assertIterableEquals(expected, pages);
+        }
+    }
+
+    @Test
+    @DisplayName("Find by query combines indexed and unindexed conditions and follows writes")
+    void find() {
+        final var gmail1990 = userDao.save(USER.withEmail("a@gmail.com").withBirthDate(LocalDate.of(1990, 5, 1)));
+        final var mail1990 = userDao.save(USER.withEmail("b@mail.com").withBirthDate(LocalDate.of(1990, 6, 1)));
+        final var gmail1980 = userDao.save(USER.withEmail("c@GMAIL.com").withBirthDate(LocalDate.of(1980, 1, 1)));
+        final var jane1990 = userDao.save(USER.withEmail("d@gmail.com").withFirstName("Jane").withBirthDate(LocalDate.of(1990, 12, 31)));
+        final var year1990 = Query.<User>all().between("birthDate", LocalDate.of(1990, 1, 1), LocalDate.of(1990, 12, 31));
+
+        // sharded ids are not handed out in the order of the saves
+        assertEquals(byId(gmail1990, jane1990), userDao.find(year1990.equal("emailDomain", "gmail.com")));
+        assertEquals(byId(gmail1990, gmail1980, jane1990), userDao.find(Query.<User>all().equal("emailDomain", "gmail.com")));
+        assertEquals(byId(gmail1990, jane1990).subList(0, 1), userDao.find(year1990.equal("emailDomain", "gmail.com").limit(1)));
+        assertEquals(List.of(gmail1980), userDao.find(Query.<User>all().equal("birthDate", LocalDate.of(1980, 1, 1))));
+        assertEquals(List.of(jane1990), userDao.find(year1990.equal("firstName", "Jane")));
+        assertEquals(List.of(mail1990), userDao.find(Query.<User>all().filter("mail.com", user -> user.getEmail().endsWith("@mail.com"))));
+        assertTrue(userDao.find(Query.<User>all().between("birthDate", LocalDate.of(1991, 1, 1), LocalDate.of(1990, 1, 1))).isEmpty());
+        assertEquals(4, userDao.find(Query.all()).size());
+
+        final var moved = userDao.update(mail1990.getId(), user -> user.withEmail("b@gmail.com")).orElseThrow();
+        userDao.deleteById(gmail1990.getId());
+        userDao.update(jane1990.getId(), user -> user.withBirthDate(LocalDate.of(1991, 1, 1)));
+        assertEquals(List.of(moved), userDao.find(year1990.equal("emailDomain", "gmail.com")));
+    }
+
+    @Test
+    @DisplayName("Find by query rejects unknown members and values of another type")
+    void find_invalidConditions() {
+        userDao.save(USER);
+
+        assertThrows(IllegalArgumentException.class, () -> userDao.find(Query.<User>all().equal("unknown", "value")));
+        assertThrows(IllegalArgumentException.class, () -> userDao.find(Query.<User>all().equal("birthDate", "1990-01-01")));
+        assertThrows(IllegalArgumentException.class, () -> userDao.find(Query.<User>all().between("emailDomain", 1, 2)));
+    }
+
+    @Test
+    @DisplayName("Find by query matches full scan on random data")
+    void find_matchesFullScan() {
+        final var random = new Random(42L);
+        final var days = 365 * 3;
+        final var ids = saveRandomUsers(random, days);
+        for (int i = 0; i < 200; i++) {
+            final var from = RANDOM_EPOCH.plusDays(random.nextInt(days));
+            final var to = from.plusDays(random.nextInt(i % 2 == 0 ? 30 : days));
+            final var domain = RANDOM_DOMAINS.get(random.nextInt(RANDOM_DOMAINS.size()));
+            final var firstName = "name%d".formatted(random.nextInt(10));
+            final var limit = 1 + random.nextInt(200);
+            final var kind = i % 4;
+            final var query = switch (kind) {
+                case 0 -> Query.<User>all().between("birthDate", from, to).equal("emailDomain", domain);
+                case 1 -> Query.<User>all().equal("emailDomain", domain).equal("firstName", firstName);
+                case 2 -> Query.<User>all().between("birthDate", from, to).equal("firstName", firstName);
+                default -> Query.<User>all().equal("firstName", firstName);
+            };
+            final var matching = scan(ids, user -> (kind % 2 == 1 || !user.getBirthDate().isBefore(from) && !user.getBirthDate().isAfter(to))
+                            && (kind >= 2 || user.emailDomain().equals(domain))
+                            && (kind == 0 || user.getFirstName().equals(firstName)),
+                    Comparator.comparing(User::getId));
+            final var expected = matching.subList(0, Math.min(limit, matching.size()));
+            assertIterableEquals(expected, userDao.find(query.limit(limit)), query.toString());
+        }
+    }
+
+    private static List<User> byId(User... users) {
+        return Stream.of(users).sorted(Comparator.comparing(User::getId)).toList();
+    }
+
+    /**
+     * Saves 2000 users born within {@code days} from {@link #RANDOM_EPOCH}, with emails at random
+     * {@link #RANDOM_DOMAINS} and ten first names, then deletes or rewrites the birth date or the
+     * email of 500 of them at random, the fixture of the tests checking a query against {@link #scan}.
+     *
+     * @return ids of all saved users, the deleted ones included
+     */
+    private List<Long> saveRandomUsers(Random random, int days) {
+        final var ids = new ArrayList<Long>();
+        for (int i = 0; i < 2_000; i++) {
+            final var user = new User(null, "email%d@%s".formatted(i, RANDOM_DOMAINS.get(random.nextInt(RANDOM_DOMAINS.size()))),
+                    "name%d".formatted(i % 10), "last%d".formatted(i), RANDOM_EPOCH.plusDays(random.nextInt(days)), null, null);
+            ids.add(userDao.save(user).getId());
+        }
+        for (int i = 0; i < 500; i++) {
+            final var id = ids.get(random.nextInt(ids.size()));
+            switch (random.nextInt(3)) {
+                case 0 -> userDao.deleteById(id);
+                case 1 -> userDao.update(id, user -> user.withBirthDate(RANDOM_EPOCH.plusDays(random.nextInt(days))));
+                default -> userDao.update(id, user -> user.withEmail("updated%d@%s".formatted(id, RANDOM_DOMAINS.get(random.nextInt(RANDOM_DOMAINS.size())))));
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Users of the ids still stored that match the filter, in order, read one by one.
+     */
+    private List<User> scan(List<Long> ids, Predicate<User> filter, Comparator<User> order) {
+        return ids.stream()
+                .flatMap(id -> userDao.findById(id).stream())
+                .filter(filter)
+                .sorted(order)
+                .toList();
+    }
+}
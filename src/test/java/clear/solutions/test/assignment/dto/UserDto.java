@@ -1,10 +1,16 @@
 package clear.solutions.test.assignment.dto;
 
+import clear.solutions.test.assignment.json.UserJsonComponent;
+import clear.solutions.test.assignment.model.User;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.format.annotation.DateTimeFormat;
 
 import java.time.LocalDate;
 
+/**
+ * A user as a client reads the responses. Responses are written straight from {@link User} by
+ * {@link UserJsonComponent.Serializer}, the tests and benchmarks read them back with this class.
+ */
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class UserDto {
     private Long id;
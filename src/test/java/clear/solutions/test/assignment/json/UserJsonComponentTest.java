@@ -0,0 +1,154 @@
+package clear.solutions.test.assignment.json;
+
+import clear.solutions.test.assignment.dto.BatchOperationDto;
+import clear.solutions.test.assignment.dto.BatchResultDto;
+import clear.solutions.test.assignment.dto.CreateUserDto;
+import clear.solutions.test.assignment.dto.DataDto;
+import clear.solutions.test.assignment.dto.UserContactsDto;
+import clear.solutions.test.assignment.dto.UserDto;
+import clear.solutions.test.assignment.model.BatchOperation;
+import clear.solutions.test.assignment.model.User;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.deser.DefaultDeserializationContext;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.json.JsonTest;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@JsonTest
+class UserJsonComponentTest {
+
+    private static final User USER = new User(100L, "username@domain.com", "John", "Smith \"Jr\"",
+            LocalDate.of(1990, 1, 29), "123 Main Street\nNew York", "(555) 555-5555", 7L);
+    private static final TypeReference<DataDto<CreateUserDto>> CREATE_REQUEST = new TypeReference<>() {
+    };
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    @DisplayName("Codecs are registered with the object mapper of the application")
+    void codecs_registered() throws IOException {
+        assertInstanceOf(UserJsonComponent.Serializer.class, objectMapper.getSerializerProviderInstance()
+                .findValueSerializer(User.class));
+        assertInstanceOf(DataDtoJsonComponent.Serializer.class, objectMapper.getSerializerProviderInstance()
+                .findValueSerializer(DataDto.class));
+        final var context = ((DefaultDeserializationContext) objectMapper.getDeserializationContext())
+                .createInstance(objectMapper.getDeserializationConfig(), null, null);
+        assertInstanceOf(DataDtoJsonComponent.Deserializer.class, context.findRootValueDeserializer(
+                objectMapper.constructType(CREATE_REQUEST)));
+        assertInstanceOf(UserJsonComponent.CreateUserDtoDeserializer.class, context.findRootValueDeserializer(
+                objectMapper.constructType(CreateUserDto.class)));
+        assertInstanceOf(UserJsonComponent.UserContactsDtoDeserializer.class, context.findRootValueDeserializer(
+                objectMapper.constructType(UserContactsDto.class)));
+    }
+
+    @Test
+    @DisplayName("Users are written as their dto would be")
+    void serialize_sameAsUserDto() throws IOException {
+        for (var user : List.of(USER, USER.withAddress(null).withPhone(null), new User(null, USER.getEmail(), USER.getFirstName(), USER.getLastName(), USER.getBirthDate(), null, null))) {
+            assertArrayEquals(objectMapper.writeValueAsBytes(toUserDto(user)), objectMapper.writeValueAsBytes(user));
+            assertArrayEquals(objectMapper.writeValueAsBytes(DataDto.of(toUserDto(user))), objectMapper.writeValueAsBytes(DataDto.of(user)));
+        }
+    }
+
+    @Test
+    @DisplayName("Data envelopes are written with their cursor and list elements")
+    void serialize_dataDto() throws IOException {
+        final var users = new ArrayList<User>(List.of(USER, USER.withId(101L)));
+        users.add(null);
+        final var dtos = new ArrayList<>(users.stream().limit(2).map(UserJsonComponentTest::toUserDto).toList());
+        dtos.add(null);
+        assertArrayEquals(objectMapper.writeValueAsBytes(DataDto.of(dtos, "cursor")), objectMapper.writeValueAsBytes(DataDto.of(users, "cursor")));
+        assertEquals("{\"data\":[],\"nextCursor\":\"next\"}", objectMapper.writeValueAsString(DataDto.of(List.of(), "next")));
+        assertEquals("{\"data\":null}", objectMapper.writeValueAsString(DataDto.of(null)));
+        assertEquals("{\"data\":5}", objectMapper.writeValueAsString(DataDto.of(5L)));
+
+        final var result = new BatchResultDto();
+        result.setStatus(201);
+        result.setData(USER);
+        assertEquals("{\"status\":201,\"data\":" + objectMapper.writeValueAsString(toUserDto(USER)) + "}",
+                objectMapper.writeValueAsString(result));
+    }
+
+    @Test
+    @DisplayName("Request bodies are read field by field, unknown fields skipped")
+    void deserialize_createUserDto() throws IOException {
+        final var json = """
+                {"ignored":{"nested":[1,{"email":"x"}]},"data":{"email":"username@domain.com","firstName":"John",
+                "lastName":"Smith","birthDate":"1990-01-29","address":null,"phone":5555555,"extra":[]}}""";
+        final var request = objectMapper.readValue(json, CREATE_REQUEST).getData();
+
+        assertEquals("username@domain.com", request.getEmail());
+        assertEquals("John", request.getFirstName());
+        assertEquals("Smith", request.getLastName());
+        assertEquals(LocalDate.of(1990, 1, 29), request.getBirthDate());
+        assertNull(request.getAddress());
+        assertEquals("5555555", request.getPhone());
+        // dates written as timestamps are read by the date deserializer of the mapper
+        assertEquals(LocalDate.of(1990, 1, 29), objectMapper.readValue("{\"data\":{\"birthDate\":[1990,1,29]}}", CREATE_REQUEST)
+                .getData().getBirthDate());
+        assertNull(objectMapper.readValue("{\"data\":null}", CREATE_REQUEST).getData());
+        assertNull(objectMapper.readValue("{}", CREATE_REQUEST).getData());
+    }
+
+    @Test
+    @DisplayName("Batch bodies reach the nested user and contacts")
+    void deserialize_batch() throws IOException {
+        final var json = """
+                {"data":[{"type":"CREATE","user":{"email":"username@domain.com","birthDate":"1990-01-29"}},
+                {"type":"PATCH","userId":3,"contacts":{"phone":"(555) 555-5555","firstName":"ignored"}}]}""";
+        final var operations = objectMapper.readValue(json, new TypeReference<DataDto<List<BatchOperationDto>>>() {
+        }).getData();
+
+        assertEquals(BatchOperation.Type.CREATE, operations.get(0).getType());
+        assertEquals("username@domain.com", operations.get(0).getUser().getEmail());
+        assertEquals(3L, operations.get(1).getUserId());
+        final UserContactsDto contacts = operations.get(1).getContacts();
+        assertEquals("(555) 555-5555", contacts.getPhone());
+        assertNull(contacts.getEmail());
+    }
+
+    @Test
+    @DisplayName("Malformed values are rejected like the bean deserializer rejects them")
+    void deserialize_invalid() {
+        for (var json : Arrays.asList(
+                "[]",
+                "{\"data\":\"user\"}",
+                "{\"data\":{\"email\":{\"value\":\"username@domain.com\"}}}",
+                "{\"data\":{\"firstName\":[\"John\"]}}",
+                "{\"data\":{\"birthDate\":\"29.01.1990\"}}",
+                "{\"data\":{},\"nextCursor\":{}}")) {
+            assertThrows(MismatchedInputException.class, () -> objectMapper.readValue(json, CREATE_REQUEST), json);
+        }
+    }
+
+    private static UserDto toUserDto(User user) {
+        if (user == null) {
+            return null;
+        }
+        final var userDto = new UserDto();
+        userDto.setId(user.getId());
+        userDto.setEmail(user.getEmail());
+        userDto.setFirstName(user.getFirstName());
+        userDto.setLastName(user.getLastName());
+        userDto.setBirthDate(user.getBirthDate());
+        userDto.setAddress(user.getAddress());
+        userDto.setPhone(user.getPhone());
+        return userDto;
+    }
+}
@@ -0,0 +1,102 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.dao.OffHeapUserDao;
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CheckpointerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Recover from snapshot and the log written after it")
+    void recover_snapshotAndLog() throws IOException {
+        final var userDao = new UserDaoImpl();
+        final var random = new Random(42);
+        try (var log = openLog()) {
+            final var checkpointer = checkpointer(userDao, log);
+            checkpointer.recover();
+            for (int i = 0; i < 1000; i++) {
+                userDao.save(user(i, LocalDate.of(1950, 1, 1).plusDays(random.nextInt(20000))));
+            }
+            userDao.deleteById(1000L);
+            assertEquals(999, checkpointer.checkpoint());
+            for (int i = 0; i < 100; i++) {
+                userDao.deleteById((long) random.nextInt(999) + 1);
+                userDao.save(userDao.findById((long) random.nextInt(999) + 1).orElseGet(() -> user(-1, LocalDate.now()))
+                        .withLastName("Changed"));
+            }
+        }
+        assertEquals(1, count(SnapshotStore.SNAPSHOT_SUFFIX));
+        assertEquals(1, count(WriteAheadLog.SEGMENT_SUFFIX));
+
+        final var recovered = new OffHeapUserDao(16);
+        try (var log = openLog()) {
+            checkpointer(recovered, log).recover();
+        }
+
+        userDao.setWriteAheadLog(null);
+        recovered.setWriteAheadLog(null);
+        assertEquals(userDao.countAll(), recovered.countAll());
+        assertEquals(userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX),
+                recovered.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX));
+        assertEquals(userDao.save(user(0, LocalDate.now())).getId(),
+                recovered.save(user(0, LocalDate.now())).getId());
+    }
+
+    @Test
+    @DisplayName("Close takes a final snapshot so nothing is left to replay")
+    void close_takesSnapshot() throws IOException {
+        final var userDao = new UserDaoImpl();
+        try (var log = openLog(); var checkpointer = checkpointer(userDao, log)) {
+            checkpointer.recover();
+            userDao.save(user(1, LocalDate.of(1990, 1, 1)));
+            userDao.save(user(2, LocalDate.of(1991, 1, 1)));
+        }
+
+        final var recovered = new UserDaoImpl();
+        try (var log = openLog()) {
+            assertEquals(0, log.replay(recovered::restore, recovered::restoreDeletion));
+        }
+        final var snapshot = new SnapshotStore<>(directory, new UserCodec(), 64).load(recovered::restore);
+        assertTrue(snapshot.isPresent());
+        assertEquals(2, snapshot.get().count());
+        assertEquals(userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX),
+                recovered.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX));
+    }
+
+    private Checkpointer<User> checkpointer(Recoverable<User> storage, WriteAheadLog<User> log) {
+        // small blocks to exercise the block boundaries
+        return new Checkpointer<>(storage, log, new SnapshotStore<>(directory, new UserCodec(), 256),
+                Duration.ZERO, Thread::new);
+    }
+
+    private WriteAheadLog<User> openLog() {
+        return new WriteAheadLog<>(directory, new UserCodec(), 64, Duration.ZERO, Thread::new);
+    }
+
+    private long count(String suffix) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+        }
+    }
+
+    private static User user(int number, LocalDate birthDate) {
+        return new User(null, "user" + number + "@mail.com", "John", "Johnson", birthDate,
+                number % 3 == 0 ? null : "address " + number, number % 2 == 0 ? null : "+380" + number);
+    }
+}
@@ -0,0 +1,373 @@
+package clear.solutions.test.assignment.persistence;
+
+import clear.solutions.test.assignment.dao.EntityListener;
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Replay restores saves, deletes and the id sequence")
+    void replay_restoresState() throws Exception {
+        final var userDao = new UserDaoImpl();
+        try (var log = open(Duration.ofMillis(1))) {
+            userDao.setWriteAheadLog(log);
+            final var executor = Executors.newFixedThreadPool(8);
+            try {
+                final var tasks = new ArrayList<Callable<User>>();
+                for (int i = 0; i < 400; i++) {
+                    tasks.add(() -> userDao.save(user("user@mail.com", LocalDate.of(1990, 1, 1))));
+                }
+                for (var future : executor.invokeAll(tasks)) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            userDao.save(userDao.findById(7L).orElseThrow().withEmail("changed@mail.com").withPhone(null));
+            userDao.deleteById(3L);
+            userDao.deleteById(1000L);
+        }
+
+        final var recovered = new UserDaoImpl();
+        try (var log = open(Duration.ZERO)) {
+            assertEquals(402, log.replay(recovered::restore, recovered::restoreDeletion));
+        }
+
+        assertEquals(399, recovered.countAll());
+        assertTrue(recovered.findById(3L).isEmpty());
+        assertEquals(userDao.findById(7L), recovered.findById(7L));
+        assertEquals(userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX),
+                recovered.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX));
+        assertEquals(401L, recovered.save(user("new@mail.com", LocalDate.of(2000, 1, 1))).getId());
+    }
+
+    @Test
+    @DisplayName("Replay stops at a torn record and truncates it")
+    void replay_truncatesTornTail() throws IOException {
+        final var userDao = new UserDaoImpl();
+        try (var log = open(Duration.ZERO)) {
+            userDao.setWriteAheadLog(log);
+            userDao.save(user("first@mail.com", LocalDate.of(1990, 1, 1)));
+            userDao.save(user("second@mail.com", LocalDate.of(1991, 1, 1)));
+        }
+        final Path segment;
+        try (var files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        final var size = Files.size(segment);
+        Files.write(segment, new byte[]{0, 0, 0, 42, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        final var recovered = new UserDaoImpl();
+        try (var log = open(Duration.ZERO)) {
+            assertEquals(2, log.replay(recovered::restore, recovered::restoreDeletion));
+        }
+        assertEquals(2, recovered.countAll());
+        assertEquals(size, Files.size(segment));
+    }
+
+    @Test
+    @DisplayName("Replay fails at a corrupt record of a segment before the last one")
+    void replay_corruptOlderSegment() throws IOException {
+        final var userDao = new UserDaoImpl();
+        final Path segment;
+        try (var log = open(Duration.ZERO)) {
+            userDao.setWriteAheadLog(log);
+            userDao.save(user("first@mail.com", LocalDate.of(1990, 1, 1)));
+            log.roll();
+            userDao.save(user("second@mail.com", LocalDate.of(1991, 1, 1)));
+        }
+        try (var files = Files.list(directory)) {
+            segment = files.sorted().findFirst().orElseThrow();
+        }
+        final var bytes = Files.readAllBytes(segment);
+        bytes[bytes.length - 1] ^= 1;
+        Files.write(segment, bytes);
+
+        final var recovered = new UserDaoImpl();
+        try (var log = open(Duration.ZERO)) {
+            assertThrows(UncheckedIOException.class, () -> log.replay(recovered::restore, recovered::restoreDeletion));
+        }
+        assertEquals(bytes.length, Files.size(segment));
+    }
+
+    @Test
+    @DisplayName("A failed batch is cut off, so the acknowledged batches after it are replayed")
+    void commit_failedBatchIsCutOff() {
+        final var failWrites = new AtomicBoolean();
+        final var userDao = new UserDaoImpl();
+        try (var log = open(file -> new FaultyChannel(file, failWrites, new AtomicBoolean()))) {
+            userDao.setWriteAheadLog(log);
+            userDao.save(user("first@mail.com", LocalDate.of(1990, 1, 1)));
+            failWrites.set(true);
+            assertThrows(UncheckedIOException.class, () -> userDao.save(user("failed@mail.com", LocalDate.of(1991, 1, 1))));
+            failWrites.set(false);
+            userDao.save(user("third@mail.com", LocalDate.of(1992, 1, 1)));
+        }
+
+        final var recovered = new UserDaoImpl();
+        try (var log = open(Duration.ZERO)) {
+            assertEquals(2, log.replay(recovered::restore, recovered::restoreDeletion));
+        }
+        assertEquals(1, recovered.findByEmail("first@mail.com").size());
+        assertTrue(recovered.findByEmail("failed@mail.com").isEmpty());
+        assertEquals(1, recovered.findByEmail("third@mail.com").size());
+    }
+
+    @Test
+    @DisplayName("Writes that fail to be logged change neither the users, nor the indexes, nor the listeners")
+    void write_failedAppend() {
+        final var failWrites = new AtomicBoolean();
+        final var userDao = new UserDaoImpl();
+        final var notified = new ArrayList<String>();
+        userDao.addListener(new EntityListener<>() {
+            @Override
+            public void onSave(User previous, User current) {
+                notified.add("save " + current.getEmail());
+            }
+
+            @Override
+            public void onDelete(User previous) {
+                notified.add("delete " + previous.getEmail());
+            }
+        });
+        try (var log = open(file -> new FaultyChannel(file, failWrites, new AtomicBoolean()))) {
+            userDao.setWriteAheadLog(log);
+            final var saved = userDao.save(user("first@mail.com", LocalDate.of(1990, 1, 1)));
+            failWrites.set(true);
+            assertThrows(UncheckedIOException.class, () -> userDao.save(user("second@mail.com", LocalDate.of(1991, 1, 1))));
+            assertThrows(UncheckedIOException.class, () -> userDao.update(saved.getId(),
+                    user -> user.withEmail("changed@mail.com").withBirthDate(LocalDate.of(1992, 6, 1))));
+            assertThrows(UncheckedIOException.class, () -> userDao.deleteById(saved.getId()));
+            failWrites.set(false);
+
+            assertEquals(List.of("save first@mail.com"), notified);
+            assertEquals(Optional.of(saved), userDao.findById(saved.getId()));
+            assertEquals(List.of(saved), userDao.findByEmail("first@mail.com"));
+            assertEquals(List.of(saved), userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX));
+            assertEquals(List.of(saved), userDao.findByBirthday(LocalDate.of(2023, 1, 1), 1, null, 10));
+            assertTrue(userDao.findByEmail("second@mail.com").isEmpty());
+            assertTrue(userDao.findByEmail("changed@mail.com").isEmpty());
+            assertTrue(userDao.findByBirthday(LocalDate.of(2023, 6, 1), 1, null, 10).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("A failed batch that cannot be cut off fails every later append")
+    void commit_failedCutOffFailsLog() {
+        final var failWrites = new AtomicBoolean();
+        final var failTruncates = new AtomicBoolean(true);
+        final var userDao = new UserDaoImpl();
+        try (var log = open(file -> new FaultyChannel(file, failWrites, failTruncates))) {
+            userDao.setWriteAheadLog(log);
+            userDao.save(user("first@mail.com", LocalDate.of(1990, 1, 1)));
+            failWrites.set(true);
+            assertThrows(UncheckedIOException.class, () -> userDao.save(user("failed@mail.com", LocalDate.of(1991, 1, 1))));
+            failWrites.set(false);
+            assertThrows(UncheckedIOException.class, () -> userDao.save(user("third@mail.com", LocalDate.of(1992, 1, 1))));
+            assertThrows(UncheckedIOException.class, log::roll);
+        }
+
+        final var recovered = new UserDaoImpl();
+        try (var log = open(Duration.ZERO)) {
+            assertEquals(1, log.replay(recovered::restore, recovered::restoreDeletion));
+        }
+        assertEquals(1, recovered.countAll());
+    }
+
+    @Test
+    @DisplayName("Writes to a closed log change neither the users, nor the indexes, nor the listeners")
+    void write_closedLog() {
+        final var userDao = new UserDaoImpl();
+        final var notified = new ArrayList<String>();
+        userDao.addListener(new EntityListener<>() {
+            @Override
+            public void onSave(User previous, User current) {
+                notified.add("save " + current.getEmail());
+            }
+
+            @Override
+            public void onDelete(User previous) {
+                notified.add("delete " + previous.getEmail());
+            }
+        });
+        final var log = open(Duration.ZERO);
+        userDao.setWriteAheadLog(log);
+        final var saved = userDao.save(user("first@mail.com", LocalDate.of(1990, 1, 1)));
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> userDao.save(user("second@mail.com", LocalDate.of(1991, 1, 1))));
+        assertThrows(IllegalStateException.class, () -> userDao.update(saved.getId(),
+                user -> user.withEmail("changed@mail.com").withBirthDate(LocalDate.of(1992, 1, 1))));
+        assertThrows(IllegalStateException.class, () -> userDao.deleteById(saved.getId()));
+
+        assertEquals(List.of("save first@mail.com"), notified);
+        assertEquals(List.of(saved), userDao.findByEmail("first@mail.com"));
+        assertTrue(userDao.findByEmail("changed@mail.com").isEmpty());
+        assertEquals(List.of(saved), userDao.findByBirthDateRange(LocalDate.MIN, LocalDate.MAX));
+    }
+
+    @Test
+    @DisplayName("Append after close - IllegalStateException")
+    void append_closed() {
+        final var log = open(Duration.ZERO);
+        log.close();
+
+        assertThrows(IllegalStateException.class, () -> log.appendDelete(1L));
+    }
+
+    private WriteAheadLog<User> open(Duration batchWindow) {
+        return new WriteAheadLog<>(directory, new UserCodec(), 64, batchWindow, Thread::new);
+    }
+
+    private WriteAheadLog<User> open(WriteAheadLog.SegmentOpener opener) {
+        return new WriteAheadLog<>(directory, new UserCodec(), 64, Duration.ZERO, Thread::new, opener);
+    }
+
+    private static User user(String email, LocalDate birthDate) {
+        return new User(null, email, "John", "Johnson", birthDate, "address", "123456789");
+    }
+
+    /**
+     * Segment that writes half of the first buffer and then fails while {@code failWrites} is
+     * set, and fails to truncate while {@code failTruncates} is set.
+     */
+    private static final class FaultyChannel extends FileChannel {
+        private final FileChannel delegate;
+        private final AtomicBoolean failWrites;
+        private final AtomicBoolean failTruncates;
+
+        FaultyChannel(Path file, AtomicBoolean failWrites, AtomicBoolean failTruncates) throws IOException {
+            this.delegate = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            this.failWrites = failWrites;
+            this.failTruncates = failTruncates;
+        }
+
+        @Override
+        public long write(ByteBuffer[] srcs, int offset, int length) throws IOException {
+            if (failWrites.get()) {
+                final var first = srcs[offset];
+                final var half = first.slice(first.position(), first.remaining() / 2);
+                first.position(first.position() + delegate.write(half));
+                throw new IOException("Injected write failure");
+            }
+            return delegate.write(srcs, offset, length);
+        }
+
+        @Override
+        public FileChannel truncate(long size) throws IOException {
+            if (failTruncates.get()) {
+                throw new IOException("Injected truncate failure");
+            }
+            delegate.truncate(size);
+            return this;
+        }
+
+        @Override
+        public int read(ByteBuffer dst) throws IOException {
+            return delegate.read(dst);
+        }
+
+        @Override
+        public long read(ByteBuffer[] dsts, int offset, int length) throws IOException {
+            return delegate.read(dsts, offset, length);
+        }
+
+        @Override
+        public int write(ByteBuffer src) throws IOException {
+            return (int) write(new ByteBuffer[]{src}, 0, 1);
+        }
+
+        @Override
+        public long position() throws IOException {
+            return delegate.position();
+        }
+
+        @Override
+        public FileChannel position(long newPosition) throws IOException {
+            delegate.position(newPosition);
+            return this;
+        }
+
+        @Override
+        public long size() throws IOException {
+            return delegate.size();
+        }
+
+        @Override
+        public void force(boolean metaData) throws IOException {
+            delegate.force(metaData);
+        }
+
+        @Override
+        public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+            return delegate.transferTo(position, count, target);
+        }
+
+        @Override
+        public long transferFrom(ReadableByteChannel src, long position, long count) throws IOException {
+            return delegate.transferFrom(src, position, count);
+        }
+
+        @Override
+        public int read(ByteBuffer dst, long position) throws IOException {
+            return delegate.read(dst, position);
+        }
+
+        @Override
+        public int write(ByteBuffer src, long position) throws IOException {
+            return delegate.write(src, position);
+        }
+
+        @Override
+        public MappedByteBuffer map(MapMode mode, long position, long size) throws IOException {
+            return delegate.map(mode, position, size);
+        }
+
+        @Override
+        public FileLock lock(long position, long size, boolean shared) throws IOException {
+            return delegate.lock(position, size, shared);
+        }
+
+        @Override
+        public FileLock tryLock(long position, long size, boolean shared) throws IOException {
+            return delegate.tryLock(position, size, shared);
+        }
+
+        @Override
+        protected void implCloseChannel() throws IOException {
+            delegate.close();
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.model.Page;
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BirthDateRangeCacheTest {
+
+    private static final LocalDate FROM = LocalDate.of(1990, 1, 1);
+    private static final LocalDate TO = LocalDate.of(1990, 12, 31);
+    private static final BirthDateRangeCache.Key KEY = new BirthDateRangeCache.Key(FROM, TO, null, 10);
+    private static final User USER = new User(1L, "test@mail.com", "John", "Smith", LocalDate.of(1990, 6, 1), null, null);
+
+    private MutableClock clock;
+    private BirthDateRangeCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(1_000_000L);
+        cache = new BirthDateRangeCache(1 << 20, clock);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Second get of a range is a hit")
+    void get_hit() {
+        final var page = cache.get(KEY, this::load);
+        assertEquals(page.getContent(), cache.get(KEY, this::load).getContent());
+        assertEquals(1, loads.get());
+        final var stats = cache.getStats();
+        assertEquals(1, stats.hitCount());
+        assertEquals(1, stats.missCount());
+        assertEquals(0.5, stats.getHitRatio());
+    }
+
+    @Test
+    @DisplayName("Write evicts only the ranges holding the previous or the new birth date")
+    void write_evictsContainingRanges() {
+        final var other = new BirthDateRangeCache.Key(LocalDate.of(2000, 1, 1), LocalDate.of(2000, 12, 31), null, 10);
+        cache.get(KEY, this::load);
+        cache.get(other, this::load);
+
+        cache.onSave(null, USER.withBirthDate(LocalDate.of(1980, 1, 1)));
+        cache.get(KEY, this::load);
+        cache.get(other, this::load);
+        assertEquals(2, loads.get());
+
+        cache.onSave(USER, USER.withBirthDate(LocalDate.of(2000, 6, 1)));
+        cache.get(KEY, this::load);
+        cache.get(other, this::load);
+        assertEquals(4, loads.get());
+        assertEquals(2, cache.getStats().invalidationCount());
+
+        cache.onDelete(USER);
+        cache.get(other, this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    @DisplayName("Page loaded during a write is not cached")
+    void get_concurrentWrite_notCached() {
+        cache.get(KEY, () -> {
+            cache.onSave(null, USER);
+            return load();
+        });
+        cache.get(KEY, this::load);
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Page loaded during a write to another range is cached")
+    void get_concurrentWriteElsewhere_cached() {
+        cache.get(KEY, () -> {
+            cache.onSave(null, USER.withBirthDate(LocalDate.of(2000, 1, 1)));
+            return load();
+        });
+        cache.get(KEY, this::load);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    @DisplayName("Ranges over many years are invalidated by writes to any of their dates")
+    void write_evictsWideRanges() {
+        final var wide = new BirthDateRangeCache.Key(LocalDate.of(1000, 1, 1), LocalDate.of(2999, 12, 31), null, 10);
+        cache.get(wide, this::load);
+        cache.get(KEY, this::load);
+
+        cache.onSave(null, USER.withBirthDate(LocalDate.of(1500, 1, 1)));
+        cache.get(wide, this::load);
+        cache.get(KEY, this::load);
+        assertEquals(3, loads.get());
+
+        cache.onDelete(USER);
+        assertEquals(0, cache.getStats().size());
+        assertEquals(0, cache.getStats().weight());
+    }
+
+    @Test
+    @DisplayName("Least recently used ranges are evicted above the max weight")
+    void get_evictsLeastRecentlyUsed() {
+        cache = new BirthDateRangeCache(1000, clock);
+        final var first = new BirthDateRangeCache.Key(FROM, TO, null, 1);
+        final var second = new BirthDateRangeCache.Key(FROM, TO, null, 2);
+        final var third = new BirthDateRangeCache.Key(FROM, TO, null, 3);
+        cache.get(first, this::load);
+        cache.get(second, this::load);
+        cache.get(first, this::load);
+        cache.get(third, this::load);
+        assertEquals(1, cache.getStats().evictionCount());
+
+        cache.get(first, this::load);
+        assertEquals(3, loads.get());
+        cache.get(second, this::load);
+        assertEquals(4, loads.get());
+    }
+
+    @Test
+    @DisplayName("Last modified follows the writes of the range once their second is over")
+    void get_lastModified() {
+        final var startedAt = clock.millis();
+        assertEquals(-1L, cache.get(KEY, this::load).getLastModified());
+        clock.advance(1000);
+        assertEquals(startedAt, cache.get(KEY, this::load).getLastModified());
+
+        clock.advance(1000);
+        final var writtenAt = clock.millis();
+        cache.onSave(null, USER);
+        assertEquals(-1L, cache.get(KEY, this::load).getLastModified());
+        clock.advance(1000);
+        assertEquals(writtenAt, cache.get(KEY, this::load).getLastModified());
+
+        cache.onSave(null, USER.withBirthDate(LocalDate.of(2000, 1, 1)));
+        clock.advance(1000);
+        assertEquals(writtenAt, cache.get(KEY, this::load).getLastModified());
+    }
+
+    @Test
+    @DisplayName("Zero max weight disables caching")
+    void get_disabled() {
+        cache = new BirthDateRangeCache(0, clock);
+        cache.get(KEY, this::load);
+        cache.get(KEY, this::load);
+        assertEquals(2, loads.get());
+        assertEquals(0, cache.getStats().size());
+    }
+
+    private Page<User> load() {
+        loads.incrementAndGet();
+        return Page.of(List.of(USER), null);
+    }
+
+    private static final class MutableClock extends Clock {
+        private long millis;
+
+        MutableClock(long millis) {
+            this.millis = millis;
+        }
+
+        void advance(long millis) {
+            this.millis += millis;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+    }
+}
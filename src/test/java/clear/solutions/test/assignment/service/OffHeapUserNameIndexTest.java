@@ -0,0 +1,11 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+
+class OffHeapUserNameIndexTest extends UserNameIndexTest {
+
+    @Override
+    protected UserNameIndex createIndex(UserDaoImpl userDao) {
+        return new UserNameIndex(userDao, true);
+    }
+}
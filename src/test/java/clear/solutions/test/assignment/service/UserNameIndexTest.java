@@ -0,0 +1,164 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.dao.Query;
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UserNameIndexTest {
+
+    private UserDaoImpl userDao;
+    private UserNameIndex nameIndex;
+
+    @BeforeEach
+    void setUp() {
+        userDao = new UserDaoImpl();
+        nameIndex = createIndex(userDao);
+        userDao.addListener(nameIndex);
+    }
+
+    protected UserNameIndex createIndex(UserDaoImpl userDao) {
+        return new UserNameIndex(userDao);
+    }
+
+    @Test
+    @DisplayName("Whole words rank before prefixes, prefixes before infixes")
+    void search_ranked() {
+        final var infix = save("Johnathan", "Smith");
+        final var exact = save("John", "Smith");
+        final var prefix = save("Johnny", "Smithers");
+        final var jane = save("Jane", "Smith");
+        final var nathan = save("Nathan", "Black");
+
+        assertEquals(List.of(exact, infix, prefix), search("john"));
+        assertEquals(List.of(infix, exact, prefix), search("ohn"));
+        assertEquals(List.of(nathan, infix), search("nath"));
+        assertEquals(List.of(infix, exact, jane, prefix), search("smith"));
+        assertEquals(List.of(infix, exact), search("smith", 2));
+        assertEquals(List.of(exact, infix, prefix), search("John Smith"));
+        assertEquals(List.of(exact, infix), search("john smith", 2));
+        assertEquals(List.of(), search("john jane"));
+        assertEquals(List.of(), search("hnsm"));
+    }
+
+    @Test
+    @DisplayName("Short words match the start of a word, accents and case are ignored")
+    void search_normalized() {
+        final var jose = save("José", "Álvarez-Núñez");
+        final var jo = save("Jo", "Ng");
+        save("Ajo", "Smith");
+
+        assertEquals(List.of(jo, jose), search("JO"));
+        assertEquals(List.of(jo), search("ng"));
+        assertEquals(List.of(jose), search("jose nunez"));
+        assertEquals(List.of(jose), search("ALVAREZ"));
+        assertEquals(List.of(jose, jo), search("j"));
+        assertEquals(List.of(), search("--"));
+    }
+
+    @Test
+    @DisplayName("Renames and deletes update the posting lists")
+    void search_afterUpdateAndDelete() {
+        final var user = save("John", "Smith");
+        userDao.update(user.getId(), it -> it.withFirstName("Jane"));
+        assertEquals(List.of(), search("john"));
+        assertEquals(List.of(user.getId()), search("jane smith").stream().map(User::getId).toList());
+
+        userDao.update(user.getId(), it -> it.withEmail("other@mail.com"));
+        assertEquals(1, search("jane").size());
+
+        userDao.deleteById(user.getId());
+        assertEquals(List.of(), search("jane"));
+        final var stats = nameIndex.getStats();
+        assertEquals(0, stats.users());
+        assertEquals(0, stats.postings());
+    }
+
+    @Test
+    @DisplayName("Results match a scan of all names, whatever the order of the writes")
+    void search_matchesFullScan() {
+        final var firstNames = List.of("Anna", "Hanna", "Annabel", "John", "Joanna", "Ann", "Jon");
+        final var lastNames = List.of("Smith", "Nash", "Hannah", "Johnson", "Annis", "Lee");
+        final var random = new SplittableRandom(42);
+        final var users = new ArrayList<User>();
+        for (int i = 0; i < 500; i++) {
+            users.add(save(firstNames.get(random.nextInt(firstNames.size())), lastNames.get(random.nextInt(lastNames.size()))));
+        }
+        // restored out of id order, as from a snapshot
+        final var restoredDao = new UserDaoImpl();
+        final var restoredIndex = createIndex(restoredDao);
+        restoredDao.addListener(restoredIndex);
+        for (int i = users.size() - 1; i >= 0; i--) {
+            restoredDao.restore(users.get(i));
+        }
+
+        for (var query : List.of("ann", "an", "a", "nna", "hann", "jo", "john son", "lee an", "sm", "nas")) {
+            final var words = List.of(query.split(" "));
+            final var expected = users.stream()
+                    .filter(user -> words.stream().allMatch(word -> matches(user, word)))
+                    .map(User::getId)
+                    .sorted()
+                    .toList();
+            assertEquals(expected, search(query, 1000).stream().map(User::getId).sorted().toList(), query);
+            assertEquals(expected, restoredIndex.search(query, 1000).stream().map(User::getId).sorted().toList(), query);
+        }
+        final var stats = nameIndex.getStats();
+        assertEquals(500, stats.users());
+        assertTrue(stats.bytesPerUser() > 0);
+    }
+
+    @Test
+    @DisplayName("Ids removed and added again between searches are kept once")
+    void search_afterRenamesBackAndForth() {
+        final var firstNames = List.of("Anna", "John", "Joanna");
+        final var random = new SplittableRandom(7);
+        final var users = new ArrayList<User>();
+        for (int i = 0; i < 100; i++) {
+            users.add(save(firstNames.get(random.nextInt(firstNames.size())), "Smith"));
+        }
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 1000; i++) {
+                final var id = users.get(random.nextInt(users.size())).getId();
+                userDao.update(id, it -> it.withFirstName(firstNames.get(random.nextInt(firstNames.size()))));
+            }
+            for (var query : List.of("ann", "john", "jo")) {
+                final var expected = userDao.find(Query.all()).stream()
+                        .filter(user -> matches(user, query))
+                        .map(User::getId)
+                        .sorted()
+                        .toList();
+                assertEquals(expected, search(query, 1000).stream().map(User::getId).sorted().toList(), query);
+            }
+        }
+        assertEquals(100, nameIndex.getStats().users());
+    }
+
+    private static boolean matches(User user, String word) {
+        return List.of(user.getFirstName(), user.getLastName()).stream()
+                .map(name -> name.toLowerCase(Locale.ROOT))
+                .anyMatch(name -> word.length() < 3 ? name.startsWith(word) : name.contains(word));
+    }
+
+    private List<User> search(String name) {
+        return search(name, 10);
+    }
+
+    private List<User> search(String name, int limit) {
+        return nameIndex.search(name, limit);
+    }
+
+    private User save(String firstName, String lastName) {
+        return userDao.save(new User(null, "user@mail.com", firstName, lastName, LocalDate.of(1990, 1, 1), null, null));
+    }
+}
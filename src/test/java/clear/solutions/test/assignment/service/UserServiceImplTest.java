@@ -1,27 +1,40 @@
 package clear.solutions.test.assignment.service;
 
 import clear.solutions.test.assignment.configuration.UserConfigurationProperties;
+import clear.solutions.test.assignment.dao.BirthDateKey;
+import clear.solutions.test.assignment.dao.DuplicateEmailException;
 import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.dao.VersionConflictException;
 import clear.solutions.test.assignment.exception.ApiException;
 import clear.solutions.test.assignment.exception.Error;
+import clear.solutions.test.assignment.exception.ErrorMetrics;
+import clear.solutions.test.assignment.model.BatchOperation;
+import clear.solutions.test.assignment.model.BatchResult;
 import clear.solutions.test.assignment.model.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Clock;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
@@ -38,21 +51,20 @@ class UserServiceImplTest {
     private UserConfigurationProperties properties;
     @Mock
     private UserDaoImpl userDao;
+    @Spy
+    private BirthDateRangeCache rangeCache = new BirthDateRangeCache(0L, Clock.systemUTC());
+    @Spy
+    private ErrorMetrics errorMetrics = new ErrorMetrics(new SimpleMeterRegistry());
 
     @BeforeEach
     void setUp() {
-        USER = new User();
-        USER.setEmail("test@mail.com");
-        USER.setBirthDate(LocalDate.now().minusYears(MIN_AGE + 1));
+        USER = new User(null, "test@mail.com", "John", "Smith", LocalDate.now().minusYears(MIN_AGE + 1), null, null);
     }
 
     @Test
     @DisplayName("Save - OK")
     void save_ok() {
-        var saved = new User();
-        saved.setBirthDate(USER.getBirthDate());
-        saved.setEmail(USER.getEmail());
-        saved.setId(1L);
+        var saved = USER.withId(1L);
 
         doReturn(MIN_AGE).when(properties).getMinAge();
         doReturn(saved).when(userDao).save(eq(USER));
@@ -62,23 +74,20 @@ class UserServiceImplTest {
     }
 
     @Test
-    @DisplayName("Save with null birth date throws")
+    @DisplayName("Users without a birth date cannot reach save")
     void save_withNullBirthDate_throws() {
-        final var user = new User();
-        doReturn(MIN_AGE).when(properties).getMinAge();
         final var exception = assertThrows(
-                ApiException.class,
-                () -> userService.save(user)
+                NullPointerException.class,
+                () -> userService.save(new User(null, USER.getEmail(), "John", "Smith", null, null, null))
         );
-        assertEquals(Error.INVALID_AGE, exception.getError());
+        assertEquals("birthDate must be not null", exception.getMessage());
         verify(userDao, times(0)).save(any());
     }
 
     @Test
     @DisplayName("Save with low age throws")
     void save_withLowAge_throws() {
-        final var user = new User();
-        user.setBirthDate(LocalDate.now().minusYears(MIN_AGE).plusDays(1));
+        final var user = USER.withBirthDate(LocalDate.now().minusYears(MIN_AGE).plusDays(1));
         doReturn(MIN_AGE).when(properties).getMinAge();
         final var exception = assertThrows(
                 ApiException.class,
@@ -88,6 +97,146 @@ class UserServiceImplTest {
         verify(userDao, times(0)).save(any());
     }
 
+    @Test
+    @DisplayName("Save with duplicate email throws conflict")
+    void save_withDuplicateEmail_throws() {
+        doReturn(MIN_AGE).when(properties).getMinAge();
+        doThrow(new DuplicateEmailException(USER.getEmail())).when(userDao).save(eq(USER));
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.save(USER)
+        );
+        assertEquals(Error.EMAIL_ALREADY_EXISTS, exception.getError());
+    }
+
+    @Test
+    @DisplayName("Find by email")
+    void findByEmail() {
+        doReturn(List.of(USER)).when(userDao).findByEmail("TEST@mail.com");
+        assertEquals(List.of(USER), userService.findByEmail("TEST@mail.com"));
+    }
+
+    @Test
+    @DisplayName("Find by blank email throws")
+    void findByEmail_blank_throws() {
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.findByEmail(" ")
+        );
+        assertEquals(Error.BAD_REQUEST, exception.getError());
+        assertEquals(Map.of("email", "Email must be not blank."), exception.getErrorDetails());
+    }
+
+    @Test
+    @DisplayName("Apply atomic batch with age below min applies nothing")
+    void applyBatch_atomic_withLowAge_appliesNothing() {
+        doReturn(MIN_AGE).when(properties).getMinAge();
+        doReturn(10).when(properties).getMaxBatchSize();
+        final var operations = List.of(
+                BatchOperation.create(USER),
+                BatchOperation.create(USER.withBirthDate(LocalDate.now())));
+        final var results = userService.applyBatch(operations, true);
+        assertEquals(List.of(Error.BATCH_ROLLED_BACK, Error.INVALID_AGE),
+                results.stream().map(BatchResult::getError).toList());
+        verify(userDao, times(0)).save(any());
+    }
+
+    @Test
+    @DisplayName("Rollback of an atomic batch keeps a concurrent write to the same user")
+    void applyBatch_atomic_concurrentUpdate_conflict() {
+        final var born = USER.getBirthDate().minusDays(1);
+        final var dao = raceDao(race -> race.update(1L, user -> user.withBirthDate(born)));
+        final var results = applyRacing(dao);
+        assertEquals(List.of(Error.ROLLBACK_CONFLICT, Error.USER_NOT_FOUND),
+                results.stream().map(BatchResult::getError).toList());
+        final var user = dao.findById(1L).orElseThrow();
+        assertEquals("other@mail.com", user.getEmail());
+        assertEquals(born, user.getBirthDate());
+    }
+
+    @Test
+    @DisplayName("Rollback of an atomic batch reports an email taken since as a conflict")
+    void applyBatch_atomic_emailTakenSince_conflict() {
+        final var dao = raceDao(race -> race.save(USER));
+        final var results = applyRacing(dao);
+        assertEquals(List.of(Error.ROLLBACK_CONFLICT, Error.USER_NOT_FOUND),
+                results.stream().map(BatchResult::getError).toList());
+        assertEquals("other@mail.com", dao.findById(1L).orElseThrow().getEmail());
+        assertEquals(1, dao.findByEmail(USER.getEmail()).size());
+    }
+
+    @Test
+    @DisplayName("Rollback of an atomic batch restores a deleted user with its version")
+    void applyBatch_atomic_rolledBackDelete_keepsVersion() {
+        doReturn(MIN_AGE).when(properties).getMinAge();
+        doReturn(10).when(properties).getMaxBatchSize();
+        final var dao = raceDao(race -> {
+        });
+        final var updated = dao.update(1L, user -> user.withEmail("other@mail.com")).orElseThrow();
+        final var service = new UserServiceImpl(properties, dao, rangeCache, new UserStatistics(MIN_AGE, Clock.systemUTC()),
+                new UserNameIndex(dao), errorMetrics);
+        final var results = service.applyBatch(List.of(BatchOperation.delete(1L), BatchOperation.delete(999L)), true);
+        assertEquals(List.of(Error.BATCH_ROLLED_BACK, Error.USER_NOT_FOUND),
+                results.stream().map(BatchResult::getError).toList());
+        assertEquals(2L, updated.getVersion());
+        assertEquals(updated, dao.findById(1L).orElseThrow());
+        assertEquals(2L, dao.findById(1L).orElseThrow().getVersion());
+    }
+
+    /**
+     * Dao with unique emails holding {@link #USER} as user 1, which runs the race just before it
+     * fails to delete the missing user 999.
+     */
+    private static UserDaoImpl raceDao(Consumer<UserDaoImpl> race) {
+        final var dao = new UserDaoImpl(new ConcurrentHashMap<>(), true) {
+            @Override
+            public Optional<User> removeIfPresent(Long id, Long expectedVersion) {
+                if (id == 999L) {
+                    race.accept(this);
+                }
+                return super.removeIfPresent(id, expectedVersion);
+            }
+        };
+        dao.save(USER);
+        return dao;
+    }
+
+    /**
+     * Atomically changes the email of user 1, then deletes the missing user 999.
+     */
+    private List<BatchResult> applyRacing(UserDaoImpl dao) {
+        doReturn(MIN_AGE).when(properties).getMinAge();
+        doReturn(10).when(properties).getMaxBatchSize();
+        final var service = new UserServiceImpl(properties, dao, rangeCache, new UserStatistics(MIN_AGE, Clock.systemUTC()),
+                new UserNameIndex(dao), errorMetrics);
+        return service.applyBatch(List.of(
+                BatchOperation.update(1L, USER.withEmail("other@mail.com")),
+                BatchOperation.delete(999L)), true);
+    }
+
+    @Test
+    @DisplayName("Apply batch above max size throws")
+    void applyBatch_aboveMaxSize_throws() {
+        doReturn(1).when(properties).getMaxBatchSize();
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.applyBatch(List.of(BatchOperation.delete(1L), BatchOperation.delete(2L)), false)
+        );
+        assertEquals(Error.BAD_REQUEST, exception.getError());
+        assertEquals(Map.of("data", "Batch must hold between 1 and 1 operations."), exception.getErrorDetails());
+    }
+
+    @Test
+    @DisplayName("Delete users by invalid birth date range throws")
+    void deleteByBirthDateRange_invalidRange_throws() {
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.deleteByBirthDateRange(LocalDate.now(), LocalDate.now().minusDays(1))
+        );
+        assertEquals(Error.BAD_REQUEST, exception.getError());
+        verify(userDao, times(0)).deleteByBirthDateRange(any(), any());
+    }
+
     @Test
     @DisplayName("Find - OK")
     void find_ok() {
@@ -113,8 +262,7 @@ class UserServiceImplTest {
     void findByBirthDateRange() {
         final var users = new ArrayList<User>();
         for (long i = 0; i < 5; i++) {
-            final var user = new User();
-            user.setId(i);
+            final var user = USER.withId(i);
             users.add(user);
         }
         final var from = LocalDate.now().minusDays(1);
@@ -149,25 +297,85 @@ class UserServiceImplTest {
         assertEquals(Map.of("to, from", "To must be greater or equals from."), exception.getErrorDetails());
     }
 
+    @Test
+    @DisplayName("Find users page returns next cursor when more users remain")
+    void findByBirthDateRangePage_returnsNextCursor() {
+        final var from = LocalDate.now().minusDays(1);
+        final var to = LocalDate.now().plusDays(1);
+        final var users = new ArrayList<User>();
+        for (long i = 0; i < 3; i++) {
+            final var user = USER.withId(i).withBirthDate(from);
+            users.add(user);
+        }
+        doReturn(100).when(properties).getMaxPageSize();
+        doReturn(users).when(userDao).findByBirthDateRange(eq(from), eq(to), eq(null), eq(3));
+        final var page = userService.findByBirthDateRange(from, to, null, 2);
+        assertEquals(users.subList(0, 2), page.getContent());
+        assertNotNull(page.getNextCursor());
+
+        doReturn(users.subList(2, 3)).when(userDao).findByBirthDateRange(eq(from), eq(to), eq(new BirthDateKey(from, 1L)), eq(3));
+        final var nextPage = userService.findByBirthDateRange(from, to, page.getNextCursor(), 2);
+        assertEquals(users.subList(2, 3), nextPage.getContent());
+        assertNull(nextPage.getNextCursor());
+    }
+
+    @Test
+    @DisplayName("Find users page with invalid limit and cursor throws api exception")
+    void findByBirthDateRangePage_withInvalidLimitAndCursor_throws() {
+        doReturn(100).when(properties).getMaxPageSize();
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.findByBirthDateRange(LocalDate.now(), LocalDate.now(), "not a cursor", 101)
+        );
+        assertEquals(Error.BAD_REQUEST, exception.getError());
+        assertEquals(Map.of(
+                "limit", "Limit must be between 1 and 100.",
+                "cursor", "Invalid cursor."
+        ), exception.getErrorDetails());
+    }
+
+    @Test
+    @DisplayName("Stream users with invalid birth date range throws api exception")
+    void streamByBirthDateRange_withInvalidRange_throws() {
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.streamByBirthDateRange(LocalDate.now().plusDays(1), LocalDate.now().minusDays(1))
+        );
+        assertEquals(Error.BAD_REQUEST, exception.getError());
+        verify(userDao, times(0)).streamByBirthDateRange(any(), any());
+    }
+
     @Test
     @DisplayName("Delete - OK")
     void delete_ok() {
         final var id = 1L;
-        USER.setId(id);
-        doReturn(Optional.of(USER)).when(userDao).findById(id);
+        USER = USER.withId(id);
+        doReturn(Optional.of(USER)).when(userDao).removeIfPresent(id, null);
         userService.delete(id);
-        verify(userDao).deleteById(eq(id));
+        verify(userDao).removeIfPresent(eq(id), eq(null));
     }
 
     @Test
     @DisplayName("Delete with non-existing id throws api exception")
     void delete_withNonExistingUserId_throws() {
         final var id = 1L;
-        doReturn(Optional.empty()).when(userDao).findById(id);
+        doReturn(Optional.empty()).when(userDao).removeIfPresent(id, null);
         final var exception = assertThrows(
                 ApiException.class,
                 () -> userService.delete(id)
         );
         assertEquals(Error.USER_NOT_FOUND, exception.getError());
     }
+
+    @Test
+    @DisplayName("Update of another version throws api exception")
+    void update_versionConflict_throws() {
+        final var id = 1L;
+        doThrow(new VersionConflictException(id, 1L, 2L)).when(userDao).update(eq(id), eq(1L), any());
+        final var exception = assertThrows(
+                ApiException.class,
+                () -> userService.update(id, 1L, user -> user)
+        );
+        assertEquals(Error.VERSION_MISMATCH, exception.getError());
+    }
 }
\ No newline at end of file
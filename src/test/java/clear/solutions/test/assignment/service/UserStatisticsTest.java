@@ -0,0 +1,117 @@
+package clear.solutions.test.assignment.service;
+
+import clear.solutions.test.assignment.dao.UserDaoImpl;
+import clear.solutions.test.assignment.model.User;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class UserStatisticsTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 5, 1);
+    private static final int MIN_AGE = 18;
+
+    private UserDaoImpl userDao;
+    private UserStatistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        userDao = new UserDaoImpl();
+        statistics = new UserStatistics(MIN_AGE, Clock.fixed(TODAY.atStartOfDay().toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+        userDao.addListener(statistics);
+    }
+
+    @Test
+    @DisplayName("Users are counted per birth year, age bracket and email domain")
+    void getStats() {
+        save("a@gmail.com", TODAY.minusYears(18));
+        save("b@Gmail.com", TODAY.minusYears(28).plusDays(1));
+        save("c@mail.com", TODAY.minusYears(28));
+        save("d@mail.com", TODAY.minusYears(17));
+        save("e@gmail.com", TODAY.minusYears(18));
+
+        final var stats = statistics.getStats();
+        assertEquals(5, stats.total());
+        assertEquals(List.of(1996, 2006, 2007), List.copyOf(stats.birthYears().keySet()));
+        assertEquals(Map.of(1996, 2L, 2006, 2L, 2007, 1L), stats.birthYears());
+        assertEquals(List.of("0-17", "18-27", "28-37"), List.copyOf(stats.ageBrackets().keySet()));
+        assertEquals(Map.of("0-17", 1L, "18-27", 3L, "28-37", 1L), stats.ageBrackets());
+        assertEquals(List.of("gmail.com", "mail.com"), List.copyOf(stats.emailDomains().keySet()));
+        assertEquals(Map.of("gmail.com", 3L, "mail.com", 2L), stats.emailDomains());
+    }
+
+    @Test
+    @DisplayName("Updates move the user between buckets, deletes empty them")
+    void getStats_updateAndDelete() {
+        final var user = save("a@gmail.com", LocalDate.of(1990, 6, 1));
+        save("b@gmail.com", LocalDate.of(1990, 7, 1));
+
+        userDao.update(user.getId(), it -> it.withBirthDate(LocalDate.of(1980, 6, 1)).withEmail("a@mail.com"));
+        var stats = statistics.getStats();
+        assertEquals(2, stats.total());
+        assertEquals(Map.of(1980, 1L, 1990, 1L), stats.birthYears());
+        assertEquals(Map.of("28-37", 1L, "38-47", 1L), stats.ageBrackets());
+        assertEquals(Map.of("gmail.com", 1L, "mail.com", 1L), stats.emailDomains());
+
+        userDao.update(user.getId(), it -> it.withFirstName("Jane"));
+        assertEquals(stats, statistics.getStats());
+
+        userDao.deleteById(user.getId());
+        stats = statistics.getStats();
+        assertEquals(1, stats.total());
+        assertEquals(Map.of(1990, 1L), stats.birthYears());
+        assertEquals(Map.of("28-37", 1L), stats.ageBrackets());
+        assertEquals(Map.of("gmail.com", 1L), stats.emailDomains());
+
+        userDao.deleteAll();
+        assertEquals(new UserStatistics.Stats(0, Map.of(), Map.of(), Map.of()), statistics.getStats());
+    }
+
+    @Test
+    @DisplayName("Concurrent writes leave the counts of the stored users")
+    void getStats_concurrentWrites() throws Exception {
+        final var executor = Executors.newFixedThreadPool(4);
+        try {
+            final var futures = new ArrayList<Future<?>>();
+            for (int thread = 0; thread < 4; thread++) {
+                final var offset = thread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 1000; i++) {
+                        final var user = save("user%d@domain%d.com".formatted(i, i % 3), LocalDate.of(1970 + i % 40, 1, 1 + offset));
+                        userDao.update(user.getId(), it -> it.withBirthDate(it.getBirthDate().plusYears(1)));
+                        if (i % 2 == 0) {
+                            userDao.deleteById(user.getId());
+                        }
+                    }
+                }));
+            }
+            for (var future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        final var stats = statistics.getStats();
+        assertEquals(userDao.countAll(), stats.total());
+        assertEquals(userDao.countAll(), stats.ageBrackets().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(userDao.countAll(), stats.emailDomains().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(userDao.findByBirthDateRange(LocalDate.of(1972, 1, 1), LocalDate.of(1972, 12, 31)).size(),
+                stats.birthYears().get(1972));
+    }
+
+    private User save(String email, LocalDate birthDate) {
+        return userDao.save(new User(null, email, "John", "Smith", birthDate, null, null));
+    }
+}
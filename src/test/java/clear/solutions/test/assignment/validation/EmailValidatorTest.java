@@ -0,0 +1,174 @@
+package clear.solutions.test.assignment.validation;
+
+import clear.solutions.test.assignment.constants.ApiConstants;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import jakarta.validation.constraints.Email;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Checks {@link EmailValidator} against the {@code @Email} constraint it replaces, on hand picked
+ * and on random inputs.
+ */
+class EmailValidatorTest {
+
+    private static final Pattern EMAIL_PATTERN = Pattern.compile(ApiConstants.EMAIL_REGEX);
+    private static final int SAMPLES = 200_000;
+    private static final String RANDOM_ALPHABET = "aZ09_-.@!#~ \nä。";
+    private static final String LOCAL_ALPHABET = "aZ09_-.";
+    private static final String DOMAIN_ALPHABET = "abZ09-.";
+    private static final char[] FIRST_DOMAIN_CHARS = {'a', 'Z', '0', '-', '.', '@', '!', '~', '"', ' ', '\n', 'ä', 'Ä', ' ', '。', '．', '\ud800'};
+
+    private static ValidatorFactory validatorFactory;
+    private static Validator validator;
+
+    @BeforeAll
+    static void setUp() {
+        validatorFactory = Validation.buildDefaultValidatorFactory();
+        validator = validatorFactory.getValidator();
+    }
+
+    @AfterAll
+    static void tearDown() {
+        validatorFactory.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "username@domain.com",
+            "first.middle.last_name-1@sub.example-domain.co.uk",
+            "a@bc.de",
+            "UPPER@CASE.COM",
+            "a@!b.cc",
+            "a@äb.cc",
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa@domain.com"
+    })
+    @DisplayName("Valid emails are accepted")
+    void isValid_valid(String email) {
+        assertTrue(EmailValidator.isValid(email));
+        assertEquals(reference(email), EmailValidator.isValid(email));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "",
+            "invalid@email",
+            "@domain.com",
+            "user@",
+            "user.@domain.com",
+            ".user@domain.com",
+            "us..er@domain.com",
+            "user@-domain.com",
+            "user@domain-.com",
+            "user@sub.-domain.com",
+            "user@b.cc",
+            "user@domain.c",
+            "user@domain.c0m",
+            "user@domain..com",
+            "user@@domain.com",
+            "user@.domain.com",
+            "user@domain.com.",
+            "user@domain.com\n",
+            "user name@domain.com",
+            "aaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaaa@domain.com"
+    })
+    @DisplayName("Invalid emails are rejected")
+    void isValid_invalid(String email) {
+        assertFalse(EmailValidator.isValid(email));
+        assertEquals(reference(email), EmailValidator.isValid(email));
+    }
+
+    @Test
+    @DisplayName("Null is valid")
+    void isValid_null() {
+        assertTrue(new EmailValidator().isValid(null, null));
+    }
+
+    @Test
+    @DisplayName("Label and domain length limits match")
+    void isValid_lengthLimits() {
+        for (int length = 60; length <= 66; length++) {
+            final var label = "a".repeat(length);
+            assertMatchesReference("user@" + label + ".com");
+            assertMatchesReference("user@ab." + label + ".com");
+            assertMatchesReference("user@ab." + label);
+            assertMatchesReference("user@ä" + label + ".com");
+        }
+        for (int length = 250; length <= 258; length++) {
+            final var domain = new StringBuilder("b");
+            while (domain.length() < length - 3) {
+                domain.append(domain.length() % 60 == 59 ? '.' : 'a');
+            }
+            assertMatchesReference("user@" + domain + ".cc");
+            assertMatchesReference("user@ä" + domain.substring(1) + ".cc");
+        }
+    }
+
+    @Test
+    @DisplayName("Random strings are judged like the @Email constraint")
+    void isValid_randomStrings() {
+        final var random = new Random(42L);
+        for (int i = 0; i < SAMPLES; i++) {
+            final var email = new StringBuilder();
+            final var length = random.nextInt(24);
+            for (int j = 0; j < length; j++) {
+                email.append(RANDOM_ALPHABET.charAt(random.nextInt(RANDOM_ALPHABET.length())));
+            }
+            assertMatchesReference(email.toString());
+        }
+    }
+
+    @Test
+    @DisplayName("Random near-valid emails are judged like the @Email constraint")
+    void isValid_randomEmails() {
+        final var random = new Random(7L);
+        for (int i = 0; i < SAMPLES; i++) {
+            final var email = new StringBuilder();
+            append(email, LOCAL_ALPHABET, 1 + random.nextInt(random.nextInt(10) == 0 ? 70 : 12), random);
+            email.append('@');
+            email.append(FIRST_DOMAIN_CHARS[random.nextInt(FIRST_DOMAIN_CHARS.length)]);
+            append(email, DOMAIN_ALPHABET, random.nextInt(random.nextInt(10) == 0 ? 80 : 16), random);
+            if (random.nextBoolean()) {
+                email.append('.');
+                append(email, "abZ", random.nextInt(4), random);
+            }
+            assertMatchesReference(email.toString());
+        }
+    }
+
+    private static void append(StringBuilder builder, String alphabet, int length, Random random) {
+        for (int i = 0; i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+    }
+
+    private static void assertMatchesReference(String email) {
+        final var valid = EmailValidator.isValid(email);
+        assertEquals(reference(email), valid, () -> "Mismatch for '%s'".formatted(email));
+        if (valid) {
+            assertTrue(EMAIL_PATTERN.matcher(email).matches(), () -> "Outside of the regex: '%s'".formatted(email));
+        }
+    }
+
+    private static boolean reference(String email) {
+        return validator.validateValue(Reference.class, "email", email).isEmpty();
+    }
+
+    private static final class Reference {
+        @Email(regexp = ApiConstants.EMAIL_REGEX)
+        private String email;
+    }
+}